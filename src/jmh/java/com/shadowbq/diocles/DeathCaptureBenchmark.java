@@ -0,0 +1,92 @@
+package com.shadowbq.diocles;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * The server-thread part of handling a death: the timed hook around
+ * {@link DeathboardManager#recordDeath}, with a memory-mapped journal, rollups,
+ * cause stats and the single-player payload handed to the dispatcher
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeathCaptureBenchmark {
+    private static final DeathCauseStats.Cause FALL = new DeathCauseStats.Cause("minecraft:fall",
+            DeathCauseStats.NONE, DeathCauseStats.NONE);
+
+    @Param({ "10", "1000", "100000" })
+    int players;
+
+    Path dir;
+    FakeServer server;
+    PostDispatcher dispatcher;
+    DeathboardManager.Pipeline pipeline;
+    HookProfiler.Hook hook;
+    int[] order;
+    int next;
+    long tick;
+
+    @Setup
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("diocles-bench");
+        server = new FakeServer(players, 0.75, DeathJournal.open(dir.resolve("journal")));
+        // posts are handed over, not sent
+        dispatcher = new PostDispatcher(1024, 1, PostDispatcher.OverloadPolicy.DROP_OLDEST,
+                (endpoint, payload, headers) -> {
+                });
+        pipeline = new DeathboardManager.Pipeline(new DeathDedup(DeathDedup.DEFAULT_SLOTS), server.leaderboard,
+                server.journal, new SyncTracker(1), DailyRollupStore.open(dir.resolve("rollups")),
+                new DeathCauseStats(), null, null, dispatcher);
+        hook = new HookProfiler(500_000L, 50_000_000L).hook("death");
+        order = new int[Math.max(1024, players)];
+        Random random = new Random(FakeServer.SEED);
+        for (int i = 0; i < order.length; i++)
+            order[i] = random.nextInt(players);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        dispatcher.shutdown(0);
+        server.journal.close();
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList())
+                Files.deleteIfExists(file);
+        }
+    }
+
+    @Benchmark
+    public boolean captureDeath() {
+        int i = order[next];
+        next = (next + 1) % order.length;
+        long start = hook.begin();
+        try {
+            return DeathboardManager.recordDeath(pipeline, new DeathboardManager.Death(server.uuids[i],
+                    server.names[i], tick++, ++server.scores[i], server.day, i, 64, -i,
+                    FakeServer.WORLDS[i % FakeServer.WORLDS.length], FALL));
+        } finally {
+            hook.end(start);
+        }
+    }
+}
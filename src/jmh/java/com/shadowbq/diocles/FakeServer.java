@@ -0,0 +1,72 @@
+package com.shadowbq.diocles;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Benchmark stand-in for a running server: a fixed roster of online players
+ * with scoreboard counts, a death journal and a leaderboard, built from a
+ * seeded random so every run measures the same data.
+ *
+ * Minecraft's server, scoreboard and player classes need a bootstrapped game
+ * to construct, so the fake holds their data in arrays and drives the same
+ * Diocles code the real accessors feed.
+ */
+final class FakeServer {
+    static final long SEED = 0xD10C1E5L;
+    static final String[] WORLDS = { "minecraft:overworld", "minecraft:the_nether", "minecraft:the_end" };
+
+    final int players;
+    final String[] names;
+    final UUID[] uuids;
+    final int[] scores;
+    final DeathJournal journal;
+    final LeaderboardIndex leaderboard = new LeaderboardIndex();
+    final long day = 42;
+
+    /**
+     * @param players     Online players
+     * @param journaled   Fraction of players with a journaled death
+     */
+    FakeServer(int players, double journaled) {
+        this(players, journaled, DeathJournal.inMemory());
+    }
+
+    /**
+     * @param players     Online players
+     * @param journaled   Fraction of players with a journaled death
+     * @param journal     Empty journal to fill
+     */
+    FakeServer(int players, double journaled, DeathJournal journal) {
+        this.players = players;
+        this.journal = journal;
+        this.names = new String[players];
+        this.uuids = new UUID[players];
+        this.scores = new int[players];
+        Random random = new Random(SEED);
+        for (int i = 0; i < players; i++) {
+            names[i] = String.format("Player%06d", i);
+            uuids[i] = new UUID(random.nextLong(), random.nextLong());
+            scores[i] = random.nextInt(500);
+            leaderboard.update(names[i], scores[i]);
+            if (random.nextDouble() < journaled) {
+                journal.append(uuids[i], names[i], 1_700_000_000_000L + i, random.nextInt((int) day + 1), scores[i],
+                        random.nextInt(20000) - 10000, random.nextInt(384) - 64, random.nextInt(20000) - 10000,
+                        WORLDS[random.nextInt(WORLDS.length)]);
+            }
+        }
+    }
+
+    /**
+     * Same assembly as {@link DeathboardManager#buildFullPayload}, over the
+     * fake roster.
+     */
+    Map<String, Object> buildFullPayload() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        for (int i = 0; i < players; i++)
+            out.put(names[i], DeathboardManager.playerInfo(scores[i], journal.get(uuids[i]), () -> day));
+        return out;
+    }
+}
@@ -0,0 +1,67 @@
+package com.shadowbq.diocles;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Leaderboard ranking: score updates, the top 10 and a player's rank
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LeaderboardBenchmark {
+    @Param({ "10", "1000", "100000" })
+    int players;
+
+    FakeServer server;
+    int[] order;
+    int next;
+
+    @Setup
+    public void setUp() {
+        server = new FakeServer(players, 0);
+        // a fixed pseudo-random visiting order, so each call hits a different player
+        order = new int[Math.max(1024, players)];
+        Random random = new Random(FakeServer.SEED);
+        for (int i = 0; i < order.length; i++)
+            order[i] = random.nextInt(players);
+    }
+
+    private int nextPlayer() {
+        int i = order[next];
+        next = (next + 1) % order.length;
+        return i;
+    }
+
+    @Benchmark
+    public void update() {
+        int i = nextPlayer();
+        server.leaderboard.update(server.names[i], ++server.scores[i]);
+    }
+
+    @Benchmark
+    public List<LeaderboardIndex.Entry> top10() {
+        return server.leaderboard.top(10);
+    }
+
+    @Benchmark
+    public int rank() {
+        return server.leaderboard.rank(server.names[nextPlayer()]);
+    }
+}
@@ -0,0 +1,64 @@
+package com.shadowbq.diocles;
+
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building and serializing the full /api/sync payload
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PayloadBenchmark {
+    private static final Gson GSON = new Gson();
+
+    @Param({ "10", "1000", "100000" })
+    int players;
+
+    FakeServer server;
+    Map<String, Object> payload;
+
+    @Setup
+    public void setUp() {
+        server = new FakeServer(players, 0.75);
+        payload = server.buildFullPayload();
+    }
+
+    @Benchmark
+    public Map<String, Object> buildFullPayload() {
+        return server.buildFullPayload();
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return PayloadEncoder.encode(payload);
+    }
+
+    @Benchmark
+    public PayloadEncoder.Body encodeGzip() {
+        return PayloadEncoder.encode(payload, true);
+    }
+
+    /** Baseline: what serialization cost before the streaming encoder. */
+    @Benchmark
+    public byte[] encodeGson() {
+        return GSON.toJson(payload).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -1,47 +1,81 @@
 package com.shadowbq.diocles;
 
-import com.google.gson.JsonArray;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
-
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
-import java.util.Random;
+import java.io.IOException;
+import java.nio.file.Path;
 
 /**
  * Utility class for handling announcement quotes.
- * Loads and provides random quotes from the announce_quotes.json resource file.
+ * Serves quotes from a {@link QuoteCatalog} loaded once from the
+ * announce_quotes.json resource (plus any quote packs), and reloads the
+ * catalog when a pack file changes.
  */
 public class AnnouncementQuotes {
+    private static volatile QuoteCatalog catalog;
+    private static volatile Path packDir;
+    private static ConfigWatcher watcher;
 
     /**
-     * Load a random quote from the announce_quotes.json resource file
-     * 
+     * Pick the next random quote
+     *
      * @return A formatted string with a random quote and its source
      */
     public static String getRandomQuote() {
-        try {
-            InputStream is = AnnouncementQuotes.class.getResourceAsStream("/announce_quotes.json");
-            if (is == null) {
-                return "No quotes available!";
+        QuoteCatalog c = catalog;
+        if (c == null) {
+            synchronized (AnnouncementQuotes.class) {
+                c = catalog;
+                if (c == null)
+                    catalog = c = QuoteCatalog.load(packDir);
             }
+        }
+        return c.next();
+    }
 
-            try (InputStreamReader reader = new InputStreamReader(is, StandardCharsets.UTF_8)) {
-                JsonArray quotes = JsonParser.parseReader(reader).getAsJsonArray();
-                if (quotes.size() == 0) {
-                    return "No quotes available!";
-                }
+    /**
+     * @return Number of quotes currently loaded
+     */
+    public static int size() {
+        QuoteCatalog c = catalog;
+        return c != null ? c.size() : 0;
+    }
 
-                Random random = new Random();
-                JsonObject selectedQuote = quotes.get(random.nextInt(quotes.size())).getAsJsonObject();
-                String quote = selectedQuote.get("quote").getAsString();
-                String source = selectedQuote.get("source").getAsString();
+    /**
+     * Load quote packs from a directory and reload whenever a file in it
+     * changes. Replaces any previous watch.
+     *
+     * @param dir Directory of {@code *.json} quote packs; created if missing
+     */
+    public static synchronized void watchPacks(Path dir) {
+        stopWatching();
+        packDir = dir;
+        try {
+            watcher = new ConfigWatcher(dir, name -> name.toString().endsWith(".json"), "Diocles-QuoteWatcher", () -> {
+                if (dir.equals(packDir))
+                    reload();
+            });
+        } catch (IOException e) {
+            DioclesLog.warn("Cannot watch quote packs dir={} error={}", dir, e.getMessage());
+        }
+        reload();
+    }
 
-                return "§6\"" + quote + "§6\" §7- " + source;
-            }
-        } catch (Exception e) {
-            return "§cError loading quotes: " + e.getMessage();
+    /**
+     * Stop watching the pack directory. The loaded quotes stay in use.
+     */
+    public static synchronized void stopWatching() {
+        if (watcher != null) {
+            watcher.close();
+            watcher = null;
         }
     }
+
+    /**
+     * Rebuild the catalog from the bundled quotes and current packs, and swap
+     * it in atomically.
+     */
+    public static void reload() {
+        QuoteCatalog next = QuoteCatalog.load(packDir);
+        catalog = next;
+        DioclesLog.info("Loaded announcement quotes count={}", next.size());
+    }
 }
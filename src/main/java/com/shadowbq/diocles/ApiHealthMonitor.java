@@ -0,0 +1,246 @@
+package com.shadowbq.diocles;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background health checks for the Diocles API.
+ *
+ * Every interval the monitor probes {@code /health}, {@code /ping} and the
+ * base URL concurrently and records, per endpoint, the last status, an
+ * exponentially weighted moving average of latency and a window of recent
+ * latencies for percentiles. The API counts as up while any endpoint answered
+ * its latest probe with HTTP 200. Readers get the last {@link Snapshot}
+ * without touching the network.
+ */
+public class ApiHealthMonitor {
+    /** Health endpoints, in order of preference. */
+    public static final String[] ENDPOINTS = { "/health", "/ping", "" };
+
+    private static final double EWMA_ALPHA = 0.2;
+    private static final int LATENCY_WINDOW = 64;
+
+    /**
+     * Starts one GET and completes with its HTTP status code.
+     */
+    @FunctionalInterface
+    public interface Prober {
+        CompletableFuture<Integer> get(String url);
+    }
+
+    /**
+     * Latest state of one endpoint.
+     *
+     * @param endpoint   Label, e.g. "/health" or "base URL"
+     * @param up         Whether the latest probe returned HTTP 200
+     * @param lastCode   Latest status code, 0 if the request failed
+     * @param lastError  Latest network error, or null
+     * @param ewmaMs     Moving average latency in milliseconds
+     * @param p50Ms      Median of recent latencies
+     * @param p90Ms      90th percentile of recent latencies
+     * @param p99Ms      99th percentile of recent latencies
+     * @param probes     Probes sent since start
+     * @param failures   Probes that did not return HTTP 200
+     */
+    public record EndpointStatus(String endpoint, boolean up, int lastCode, String lastError, double ewmaMs,
+            long p50Ms, long p90Ms, long p99Ms, long probes, long failures) {
+    }
+
+    /**
+     * State after the most recent probe round.
+     *
+     * @param up              Whether any endpoint is up
+     * @param checkedAtMillis When the round finished (0 if never)
+     * @param endpoints       Per-endpoint state, in {@link #ENDPOINTS} order
+     */
+    public record Snapshot(boolean up, long checkedAtMillis, List<EndpointStatus> endpoints) {
+        /**
+         * @return First endpoint that is up, or null
+         */
+        public EndpointStatus best() {
+            for (EndpointStatus e : endpoints) {
+                if (e.up())
+                    return e;
+            }
+            return null;
+        }
+    }
+
+    private static final class Tracker {
+        final String label;
+        final String url;
+        final long[] window = new long[LATENCY_WINDOW];
+        int windowCount;
+        int windowNext;
+        double ewmaMs = -1;
+        boolean up;
+        int lastCode;
+        String lastError;
+        long probes;
+        long failures;
+
+        Tracker(String label, String url) {
+            this.label = label;
+            this.url = url;
+        }
+
+        void record(long latencyMs, int code, String error) {
+            probes++;
+            up = code == 200;
+            if (!up)
+                failures++;
+            lastCode = code;
+            lastError = error;
+            if (error == null) {
+                // only completed requests say anything about latency
+                window[windowNext] = latencyMs;
+                windowNext = (windowNext + 1) % window.length;
+                windowCount = Math.min(windowCount + 1, window.length);
+                ewmaMs = ewmaMs < 0 ? latencyMs : EWMA_ALPHA * latencyMs + (1 - EWMA_ALPHA) * ewmaMs;
+            }
+        }
+
+        EndpointStatus status() {
+            long[] sorted = Arrays.copyOf(window, windowCount);
+            Arrays.sort(sorted);
+            return new EndpointStatus(label, up, lastCode, lastError, Math.max(0, ewmaMs),
+                    percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99), probes, failures);
+        }
+    }
+
+    private final Tracker[] trackers;
+    private final Prober prober;
+    private final ScheduledExecutorService scheduler;
+    private final long intervalMs;
+
+    private volatile Snapshot snapshot;
+    // guarded by this
+    private CompletableFuture<Snapshot> inFlight;
+    private ScheduledFuture<?> task;
+
+    /**
+     * @param baseUrl    API base URL
+     * @param prober     Sends the GET requests
+     * @param scheduler  Runs scheduled probe rounds
+     * @param intervalMs Time between probe rounds
+     */
+    public ApiHealthMonitor(String baseUrl, Prober prober, ScheduledExecutorService scheduler, long intervalMs) {
+        URI base = URI.create(baseUrl);
+        this.trackers = new Tracker[ENDPOINTS.length];
+        for (int i = 0; i < ENDPOINTS.length; i++) {
+            String label = ENDPOINTS[i].isEmpty() ? "base URL" : ENDPOINTS[i];
+            trackers[i] = new Tracker(label, base.resolve(ENDPOINTS[i]).toString());
+        }
+        this.prober = prober;
+        this.scheduler = scheduler;
+        this.intervalMs = intervalMs;
+        this.snapshot = buildSnapshot(0);
+    }
+
+    /**
+     * Start scheduled probing, beginning immediately.
+     */
+    public synchronized void start() {
+        if (task == null && intervalMs > 0)
+            task = scheduler.scheduleWithFixedDelay(this::probeNow, 0, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop scheduled probing. A round already in flight still completes.
+     */
+    public synchronized void stop() {
+        if (task != null) {
+            task.cancel(false);
+            task = null;
+        }
+    }
+
+    /**
+     * @return State after the most recent completed probe round
+     */
+    public Snapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * @return Time between scheduled probe rounds
+     */
+    public long intervalMs() {
+        return intervalMs;
+    }
+
+    /**
+     * Probe every endpoint concurrently. If a round is already running, its
+     * result is shared instead of starting another.
+     *
+     * @return Future completing with the snapshot after this round
+     */
+    public synchronized CompletableFuture<Snapshot> probeNow() {
+        if (inFlight != null)
+            return inFlight;
+        CompletableFuture<?>[] probes = new CompletableFuture<?>[trackers.length];
+        for (int i = 0; i < trackers.length; i++)
+            probes[i] = probe(trackers[i]);
+        CompletableFuture<Snapshot> round = CompletableFuture.allOf(probes).handle((v, e) -> {
+            Snapshot s = buildSnapshot(System.currentTimeMillis());
+            snapshot = s;
+            synchronized (this) {
+                inFlight = null;
+            }
+            return s;
+        });
+        // a round that finished synchronously has already cleared itself
+        if (!round.isDone())
+            inFlight = round;
+        return round;
+    }
+
+    private CompletableFuture<Void> probe(Tracker t) {
+        long start = System.nanoTime();
+        CompletableFuture<Integer> request;
+        try {
+            request = prober.get(t.url);
+        } catch (RuntimeException e) {
+            request = CompletableFuture.failedFuture(e);
+        }
+        return request.handle((code, error) -> {
+            long latencyMs = (System.nanoTime() - start) / 1_000_000L;
+            String message = null;
+            if (error != null) {
+                Throwable cause = error.getCause() != null ? error.getCause() : error;
+                message = cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+            }
+            synchronized (t) {
+                t.record(latencyMs, error == null ? code : 0, message);
+            }
+            return null;
+        });
+    }
+
+    private Snapshot buildSnapshot(long checkedAtMillis) {
+        List<EndpointStatus> statuses = new ArrayList<>(trackers.length);
+        boolean up = false;
+        for (Tracker t : trackers) {
+            EndpointStatus s;
+            synchronized (t) {
+                s = t.status();
+            }
+            up |= s.up();
+            statuses.add(s);
+        }
+        return new Snapshot(up, checkedAtMillis, List.copyOf(statuses));
+    }
+
+    private static long percentile(long[] sorted, double q) {
+        if (sorted.length == 0)
+            return 0;
+        int idx = (int) Math.ceil(q * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, idx))];
+    }
+}
@@ -0,0 +1,430 @@
+package com.shadowbq.diocles;
+
+import com.google.gson.Gson;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Optional read-only HTTP server that serves the deathboard as JSON, so a
+ * dashboard can poll the mod directly instead of an external API.
+ *
+ * Endpoints (GET or HEAD):
+ * <ul>
+ * <li>{@code /deathboard?limit=N} - top N players, highest count first</li>
+ * <li>{@code /players/<name>} - one player's count, rank and last death</li>
+ * <li>{@code /players/<name>/history?days=N} - deaths per closed day</li>
+ * <li>{@code /board} - every score holder, in the /api/sync payload shape</li>
+ * <li>{@code /events} - live death events as Server-Sent Events</li>
+ * </ul>
+ *
+ * Requests run on virtual threads and read only the thread-safe leaderboard
+ * index, death journal and rollups, never the server thread. Each response
+ * body is serialized once and cached as bytes with an ETag, keyed by the
+ * versions of those three; until one changes, every poll is served from the
+ * cache, and a client sending the ETag back in If-None-Match gets a 304.
+ * Event stream subscribers each hold a virtual thread that copies frames from
+ * the shared {@link DeathEventStream}.
+ */
+public class BoardHttpServer {
+    static final int DEFAULT_LIMIT = 10;
+    static final int MAX_LIMIT = 100;
+    static final int DEFAULT_HISTORY_DAYS = 30;
+    static final int MAX_HISTORY_DAYS = 3660;
+    static final int MAX_CACHE_ENTRIES = 4096;
+    static final int MAX_SUBSCRIBERS = 10_000;
+    static final long HEARTBEAT_MS = 15_000L;
+    static final long RETRY_MS = 3000L;
+
+    private static final Metrics.Counter REQUESTS = Metrics.counter("diocles_http_requests_total",
+            "Requests to the embedded HTTP server");
+    private static final Metrics.Counter NOT_MODIFIED = Metrics.counter("diocles_http_not_modified_total",
+            "Requests answered with 304 Not Modified");
+    private static final Metrics.Counter RENDERS = Metrics.counter("diocles_http_renders_total",
+            "Response bodies serialized because the board changed");
+
+    private static final Gson GSON = new Gson();
+
+    // versions of the data a cached body was rendered from, null where it reads none;
+    // index and stores compare by identity
+    private record Stamp(LeaderboardIndex board, long boardVersion, PlayerStatsStore stats, long statsVersion,
+            DailyRollupStore rollups, long rollupsVersion) {
+    }
+
+    private record Cached(Stamp stamp, String etag, byte[] body) {
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Supplier<LeaderboardIndex> leaderboard;
+    private final Supplier<DeathJournal> journal;
+    private final Supplier<DailyRollupStore> rollups;
+    private final Map<String, Cached> cache = new ConcurrentHashMap<>();
+    private final String etagPrefix = Long.toHexString(System.currentTimeMillis());
+    private final AtomicLong generation = new AtomicLong();
+    private final DeathEventStream events = new DeathEventStream(DeathEventStream.DEFAULT_CAPACITY);
+    private final AtomicInteger subscribers = new AtomicInteger();
+
+    /**
+     * Bind the server; call {@link #start()} to accept requests.
+     *
+     * @param address     Address and port to listen on (port 0 picks a free port)
+     * @param leaderboard Current leaderboard index
+     * @param journal     Current death journal
+     * @param rollups     Current per-day rollups; may supply null
+     * @throws IOException if the address cannot be bound
+     */
+    public BoardHttpServer(InetSocketAddress address, Supplier<LeaderboardIndex> leaderboard,
+            Supplier<DeathJournal> journal, Supplier<DailyRollupStore> rollups) throws IOException {
+        this.leaderboard = leaderboard;
+        this.journal = journal;
+        this.rollups = rollups;
+        this.server = HttpServer.create(address, 0);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.createContext("/events", this::handleEvents);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stop accepting requests and abandon any still running.
+     */
+    public void stop() {
+        events.close();
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return Stream that deaths are published to
+     */
+    public DeathEventStream events() {
+        return events;
+    }
+
+    /**
+     * @return Clients currently connected to /events
+     */
+    public int subscriberCount() {
+        return subscribers.get();
+    }
+
+    /**
+     * @return Port the server is bound to
+     */
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange ex) throws IOException {
+        try (ex) {
+            REQUESTS.increment();
+            String method = ex.getRequestMethod();
+            if (!"GET".equals(method) && !"HEAD".equals(method)) {
+                ex.getResponseHeaders().set("Allow", "GET, HEAD");
+                sendError(ex, 405, "method not allowed");
+                return;
+            }
+            String path = ex.getRequestURI().getPath();
+            Cached response;
+            String query = ex.getRequestURI().getRawQuery();
+            if ("/deathboard".equals(path)) {
+                int limit = parseParam(query, "limit", DEFAULT_LIMIT, MAX_LIMIT);
+                response = serve("deathboard:" + limit, this::boardStamp, () -> renderTop(limit));
+            } else if ("/board".equals(path)) {
+                response = serve("board", this::playersStamp, this::renderBoard);
+            } else if (path.startsWith("/players/") && path.endsWith("/history")
+                    && path.length() > "/players//history".length()) {
+                String name = path.substring("/players/".length(), path.length() - "/history".length());
+                int days = parseParam(query, "days", DEFAULT_HISTORY_DAYS, MAX_HISTORY_DAYS);
+                response = serve("history:" + days + ":" + name, this::rollupsStamp,
+                        () -> renderHistory(name, days));
+            } else if (path.startsWith("/players/") && path.length() > "/players/".length()) {
+                String name = path.substring("/players/".length());
+                response = serve("player:" + name, this::playersStamp, () -> renderPlayer(name));
+            } else {
+                sendError(ex, 404, "not found");
+                return;
+            }
+            if (response == null) {
+                sendError(ex, 404, "unknown player or no history");
+                return;
+            }
+
+            ex.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            ex.getResponseHeaders().set("ETag", response.etag());
+            ex.getResponseHeaders().set("Cache-Control", "no-cache");
+            ex.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
+            if (matches(ex.getRequestHeaders().getFirst("If-None-Match"), response.etag())) {
+                NOT_MODIFIED.increment();
+                ex.sendResponseHeaders(304, -1);
+            } else if ("HEAD".equals(method)) {
+                ex.sendResponseHeaders(200, -1);
+            } else {
+                ex.sendResponseHeaders(200, response.body().length);
+                try (OutputStream out = ex.getResponseBody()) {
+                    out.write(response.body());
+                }
+            }
+        }
+    }
+
+    /**
+     * Hold the connection open and copy event frames to it until the client
+     * goes away or the server stops. Idle connections get a comment line
+     * every {@link #HEARTBEAT_MS} so dead clients are noticed.
+     */
+    private void handleEvents(HttpExchange ex) throws IOException {
+        try (ex) {
+            REQUESTS.increment();
+            // the context also matches longer paths such as /eventsfoo
+            if (!"/events".equals(ex.getRequestURI().getPath())) {
+                sendError(ex, 404, "not found");
+                return;
+            }
+            if (!"GET".equals(ex.getRequestMethod())) {
+                ex.getResponseHeaders().set("Allow", "GET");
+                sendError(ex, 405, "method not allowed");
+                return;
+            }
+            if (subscribers.incrementAndGet() > MAX_SUBSCRIBERS) {
+                subscribers.decrementAndGet();
+                sendError(ex, 503, "too many subscribers");
+                return;
+            }
+            try {
+                stream(ex);
+            } finally {
+                subscribers.decrementAndGet();
+            }
+        }
+    }
+
+    private void stream(HttpExchange ex) throws IOException {
+        long cursor = events.cursor(ex.getRequestHeaders().getFirst("Last-Event-ID"));
+        boolean resync = cursor == DeathEventStream.RESYNC;
+        if (cursor < 0)
+            cursor = events.head(); // new or resynced subscriber: only events from now on
+        ex.getResponseHeaders().set("Content-Type", "text/event-stream; charset=utf-8");
+        ex.getResponseHeaders().set("Cache-Control", "no-cache");
+        ex.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
+        ex.getResponseHeaders().set("X-Accel-Buffering", "no"); // keep reverse proxies from buffering
+        ex.sendResponseHeaders(200, 0);
+        OutputStream out = ex.getResponseBody();
+        out.write(("retry: " + RETRY_MS + "\n\n").getBytes(StandardCharsets.UTF_8));
+        if (resync) // its id is from before a restart, so its view is stale
+            out.write("event: reset\ndata: {}\n\n".getBytes(StandardCharsets.UTF_8));
+        out.flush();
+        try {
+            while (!events.isClosed()) {
+                DeathEventStream.Batch batch = events.await(cursor, HEARTBEAT_MS);
+                if (batch.reset())
+                    out.write("event: reset\ndata: {}\n\n".getBytes(StandardCharsets.UTF_8));
+                if (batch.frames().isEmpty() && !batch.reset())
+                    out.write(": ping\n\n".getBytes(StandardCharsets.UTF_8));
+                for (byte[] frame : batch.frames())
+                    out.write(frame);
+                out.flush();
+                cursor = batch.lastId();
+            }
+        } catch (InterruptedException e) {
+            // server stopping
+        } catch (IOException e) {
+            // client disconnected
+        }
+    }
+
+    /**
+     * Cached body for a resource, rendered again only if the data it reads
+     * changed.
+     *
+     * @param stamp Versions of the data the renderer reads
+     * @return Cached response, or null if the renderer found nothing
+     */
+    private Cached serve(String key, Supplier<Stamp> stamp, Supplier<Object> render) {
+        // read the versions before rendering, so a change during rendering forces another render
+        Stamp current = stamp.get();
+        Cached cached = cache.get(key);
+        if (cached != null && cached.stamp().equals(current))
+            return cached;
+        Object body = render.get();
+        if (body == null)
+            return null;
+        RENDERS.increment();
+        cached = new Cached(current, "\"" + etagPrefix + "-" + Long.toHexString(generation.incrementAndGet()) + "\"",
+                GSON.toJson(body).getBytes(StandardCharsets.UTF_8));
+        // stale player entries pile up as names come and go; start over rather than track them
+        if (cache.size() >= MAX_CACHE_ENTRIES)
+            cache.clear();
+        cache.put(key, cached);
+        return cached;
+    }
+
+    // the top list reads only the leaderboard
+    private Stamp boardStamp() {
+        LeaderboardIndex board = leaderboard.get();
+        return new Stamp(board, board.version(), null, 0, null, 0);
+    }
+
+    // the board and player pages add journaled details
+    private Stamp playersStamp() {
+        LeaderboardIndex board = leaderboard.get();
+        PlayerStatsStore stats = journal.get().stats();
+        return new Stamp(board, board.version(), stats, stats.version(), null, 0);
+    }
+
+    // history covers closed days only, which change when a day is written; the
+    // journal only maps the name to a UUID
+    private Stamp rollupsStamp() {
+        DailyRollupStore days = rollups.get();
+        return new Stamp(null, 0, null, 0, days, days != null ? days.version() : 0);
+    }
+
+    private Object renderTop(int limit) {
+        LeaderboardIndex board = leaderboard.get();
+        List<LeaderboardIndex.Entry> top = board.top(limit);
+        List<Map<String, Object>> players = new ArrayList<>(top.size());
+        for (int i = 0; i < top.size(); i++) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("rank", i + 1);
+            row.put("name", top.get(i).name());
+            row.put("death_count", top.get(i).score());
+            players.add(row);
+        }
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("total", board.size());
+        out.put("players", players);
+        return out;
+    }
+
+    // journal rows are keyed by UUID; a by-name lookup is a scan, paid only on a cache miss
+    private DeathRecord findRecord(String name) {
+        PlayerStatsStore stats = journal.get().stats();
+        for (int i = stats.size() - 1; i >= 0; i--) {
+            if (name.equals(stats.name(i)))
+                return stats.get(i);
+        }
+        return null;
+    }
+
+    private Object renderPlayer(String name) {
+        LeaderboardIndex board = leaderboard.get();
+        Integer score = board.score(name);
+        DeathRecord details = findRecord(name);
+        if (score == null && details == null)
+            return null;
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("name", name);
+        int rank = board.rank(name);
+        if (rank > 0)
+            out.put("rank", rank);
+        out.put("death_count", score != null ? score : details.deathCount());
+        if (details != null)
+            putDetails(out, details);
+        return out;
+    }
+
+    private Object renderHistory(String name, int days) {
+        DailyRollupStore store = rollups.get();
+        DeathRecord record = store != null ? findRecord(name) : null;
+        if (record == null)
+            return null;
+        long lastDay = store.lastClosedDay();
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("name", name);
+        out.put("uuid", record.uuid().toString());
+        if (lastDay == Long.MIN_VALUE) {
+            out.put("deaths", List.of());
+            return out;
+        }
+        out.put("from_day", lastDay - days + 1);
+        out.put("to_day", lastDay);
+        out.put("deaths", store.history(record.uuid(), lastDay, days));
+        return out;
+    }
+
+    private Object renderBoard() {
+        Map<String, DeathRecord> byName = new HashMap<>();
+        for (DeathRecord record : journal.get().records())
+            byName.put(record.name(), record);
+        LeaderboardIndex board = leaderboard.get();
+        Map<String, Object> out = new LinkedHashMap<>();
+        for (LeaderboardIndex.Entry entry : board.top(Integer.MAX_VALUE)) {
+            Map<String, Object> info = new LinkedHashMap<>();
+            info.put("death_count", entry.score());
+            DeathRecord details = byName.get(entry.name());
+            if (details != null)
+                putDetails(info, details);
+            out.put(entry.name(), info);
+        }
+        return out;
+    }
+
+    private static void putDetails(Map<String, Object> info, DeathRecord details) {
+        Map<String, Object> recorded = details.toPayload();
+        info.put("last_death_time", recorded.get("last_death_time"));
+        info.put("last_death_day", recorded.get("last_death_day"));
+        info.put("location", recorded.get("location"));
+        info.put("world", recorded.get("world"));
+    }
+
+    static int parseParam(String query, String name, int fallback, int max) {
+        if (query != null) {
+            for (String param : query.split("&")) {
+                if (param.startsWith(name + "=")) {
+                    try {
+                        return Math.max(1, Math.min(max, Integer.parseInt(param.substring(name.length() + 1))));
+                    } catch (NumberFormatException ignored) {
+                    }
+                }
+            }
+        }
+        return fallback;
+    }
+
+    // If-None-Match may list several tags, or weak ones
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null)
+            return false;
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith("W/"))
+                tag = tag.substring(2);
+            if (tag.equals("*") || tag.equals(etag))
+                return true;
+        }
+        return false;
+    }
+
+    private static void sendError(HttpExchange ex, int status, String message) throws IOException {
+        byte[] body = GSON.toJson(Map.of("error", message)).getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        if ("HEAD".equals(ex.getRequestMethod())) {
+            ex.sendResponseHeaders(status, -1);
+            return;
+        }
+        ex.sendResponseHeaders(status, body.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.shadowbq.diocles;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.function.Predicate;
+
+/**
+ * Watches one file, or the files of one directory, and runs a callback after
+ * one is created, changed or deleted.
+ *
+ * The file's directory is watched (a WatchService cannot watch a single
+ * file), and events for other files in it are ignored. Editors often write a
+ * file in several steps, so events are left to settle before the callback
+ * runs once. The callback runs on the watcher's daemon thread.
+ */
+public class ConfigWatcher implements AutoCloseable {
+    static final long SETTLE_MS = 250L;
+
+    private final WatchService watchService;
+
+    /**
+     * Start watching.
+     *
+     * @param file     File to watch; its directory is created if missing
+     * @param onChange Called after the file changes
+     * @throws IOException if the directory cannot be watched
+     */
+    public ConfigWatcher(Path file, Runnable onChange) throws IOException {
+        this(file.toAbsolutePath().getParent(), file.getFileName()::equals, "Diocles-ConfigWatcher", onChange);
+    }
+
+    /**
+     * Start watching every file in a directory whose name matches.
+     *
+     * @param dir        Directory to watch; created if missing
+     * @param names      Selects the file names that trigger the callback
+     * @param threadName Name of the watcher thread
+     * @param onChange   Called after a matching file changes
+     * @throws IOException if the directory cannot be watched
+     */
+    public ConfigWatcher(Path dir, Predicate<Path> names, String threadName, Runnable onChange) throws IOException {
+        Files.createDirectories(dir);
+        WatchService ws = FileSystems.getDefault().newWatchService();
+        try {
+            dir.register(ws, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+                    StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException e) {
+            ws.close();
+            throw e;
+        }
+        this.watchService = ws;
+        Thread t = new Thread(() -> watchLoop(names, onChange), threadName);
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /**
+     * Stop watching.
+     */
+    @Override
+    public void close() {
+        try {
+            watchService.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private void watchLoop(Predicate<Path> names, Runnable onChange) {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean relevant = touches(key, names);
+                Thread.sleep(SETTLE_MS);
+                WatchKey more;
+                while ((more = watchService.poll()) != null) {
+                    relevant |= touches(more, names);
+                    more.reset();
+                }
+                if (relevant) {
+                    try {
+                        onChange.run();
+                    } catch (RuntimeException e) {
+                        DioclesLog.error("Reload after file change failed error={}", e.getMessage(), e);
+                    }
+                }
+                if (!key.reset())
+                    return;
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            // stopped
+        }
+    }
+
+    private static boolean touches(WatchKey key, Predicate<Path> names) {
+        boolean hit = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            // OVERFLOW carries no file name; re-read to be safe
+            if (!(event.context() instanceof Path name) || names.test(name))
+                hit = true;
+        }
+        return hit;
+    }
+}
@@ -0,0 +1,387 @@
+package com.shadowbq.diocles;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Per-day death rollups, one small columnar file per closed server day.
+ *
+ * Deaths are counted in memory during the day. When the day changes the
+ * counts are closed into {@code day-<n>.rollup}: a header followed by four
+ * fixed-width columns (UUID high bits, UUID low bits, deaths that day,
+ * cumulative death count), with rows sorted by UUID and only players who died
+ * that day present. Because the columns have fixed widths their offsets
+ * follow from the row count, so a query reads just the bytes it needs: a
+ * player's history binary-searches the two UUID columns and reads one int
+ * from the deaths column per day, and a day total reads only the deaths
+ * column.
+ *
+ * The open day is saved to {@code open.rollup} (same format) on shutdown and
+ * picked up again at the next start.
+ */
+public class DailyRollupStore {
+    private static final int MAGIC = 0x44524C50; // "DRLP"
+    private static final int VERSION = 1;
+    static final int HEADER_SIZE = 20;
+    static final int ROW_SIZE = 24;
+    private static final String DAY_PREFIX = "day-";
+    private static final String SUFFIX = ".rollup";
+    private static final String OPEN_FILE = "open" + SUFFIX;
+
+    /**
+     * One closed day, column-wise, rows sorted by UUID.
+     */
+    public record Day(long day, long[] uuidHigh, long[] uuidLow, int[] deaths, int[] totals) {
+        public int rows() {
+            return deaths.length;
+        }
+    }
+
+    private final Path dir;
+    // player -> {deaths so far today, latest cumulative count}; guarded by this
+    private final Map<UUID, int[]> today = new HashMap<>();
+    private long lastClosedDay = Long.MIN_VALUE; // guarded by this
+    private long version; // guarded by this
+    private long closes; // days closed since open; guarded by this
+    private long openSavedAt; // value of closes when open.rollup was last saved; guarded by this
+
+    private DailyRollupStore(Path dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Open (or create) the rollup directory and restore the open day.
+     *
+     * @param dir Directory holding the rollup files
+     * @return Store ready for deaths and queries
+     * @throws IOException if the directory cannot be read or created
+     */
+    public static DailyRollupStore open(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        DailyRollupStore store = new DailyRollupStore(dir);
+        try (Stream<Path> files = Files.list(dir)) {
+            files.map(p -> p.getFileName().toString())
+                    .filter(n -> n.startsWith(DAY_PREFIX) && n.endsWith(SUFFIX))
+                    .forEach(n -> {
+                        try {
+                            long day = Long.parseLong(
+                                    n.substring(DAY_PREFIX.length(), n.length() - SUFFIX.length()));
+                            store.lastClosedDay = Math.max(store.lastClosedDay, day);
+                        } catch (NumberFormatException ignored) {
+                        }
+                    });
+        }
+        Day open = read(dir.resolve(OPEN_FILE));
+        if (open != null) {
+            for (int i = 0; i < open.rows(); i++)
+                store.today.put(new UUID(open.uuidHigh()[i], open.uuidLow()[i]),
+                        new int[] { open.deaths()[i], open.totals()[i] });
+        }
+        return store;
+    }
+
+    /**
+     * Count a death in the open day.
+     *
+     * @param uuid  Player UUID
+     * @param total Player's death count after this death
+     */
+    public synchronized void recordDeath(UUID uuid, int total) {
+        int[] counts = today.computeIfAbsent(uuid, k -> new int[2]);
+        counts[0]++;
+        counts[1] = total;
+    }
+
+    /**
+     * Close the open day and start a new one. Cheap enough for the server
+     * thread; write the result with {@link #write(Day)} elsewhere.
+     *
+     * @param day The day being closed
+     * @return The day's counts, ready to write
+     */
+    public synchronized Day closeDay(long day) {
+        Day closed = snapshot(day);
+        today.clear();
+        closes++;
+        return closed;
+    }
+
+    /**
+     * Write a closed day to its file, merging with any file already there
+     * (time set back and played through again), and forget the saved open day
+     * unless it was saved after the close.
+     *
+     * @param closed Day from {@link #closeDay(long)}
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Day closed) throws IOException {
+        Path file = dayFile(closed.day());
+        Day existing = read(file);
+        writeFile(file, existing != null ? merge(existing, closed) : closed);
+        synchronized (this) {
+            // a save after the close holds the new day's deaths, not this one's
+            if (openSavedAt < closes)
+                Files.deleteIfExists(dir.resolve(OPEN_FILE));
+            lastClosedDay = Math.max(lastClosedDay, closed.day());
+            version++;
+        }
+    }
+
+    /**
+     * Save the open day so a restart does not lose it.
+     *
+     * @param day Current day, stored in the header
+     * @throws IOException if the file cannot be written
+     */
+    public synchronized void saveOpen(long day) throws IOException {
+        writeFile(dir.resolve(OPEN_FILE), snapshot(day));
+        openSavedAt = closes;
+    }
+
+    /**
+     * Deaths per day for one player.
+     *
+     * @param uuid    Player UUID
+     * @param lastDay Last day of the range, inclusive
+     * @param days    Number of days
+     * @return Deaths on each day, oldest first; 0 for days without a file
+     */
+    public int[] history(UUID uuid, long lastDay, int days) {
+        int[] out = new int[Math.max(0, days)];
+        ByteBuffer buf = ByteBuffer.allocate(HEADER_SIZE);
+        long hi = uuid.getMostSignificantBits();
+        long lo = uuid.getLeastSignificantBits();
+        for (int i = 0; i < out.length; i++) {
+            long day = lastDay - out.length + 1 + i;
+            try (FileChannel ch = FileChannel.open(dayFile(day), StandardOpenOption.READ)) {
+                int rows = readHeader(ch, buf);
+                int row = rows > 0 ? find(ch, rows, hi, lo, buf) : -1;
+                if (row >= 0)
+                    out[i] = readInt(ch, deathsOffset(rows) + 4L * row, buf);
+            } catch (NoSuchFileException e) {
+                // no rollup for that day
+            } catch (IOException e) {
+                DioclesLog.warn("Skipping unreadable rollup day={} error={}", day, e.getMessage());
+            }
+        }
+        return out;
+    }
+
+    /**
+     * @param day Closed day
+     * @return Deaths of all players on that day, read from the deaths column only
+     * @throws IOException if the rollup file cannot be read
+     */
+    public long totalOn(long day) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        try (FileChannel ch = FileChannel.open(dayFile(day), StandardOpenOption.READ)) {
+            int rows = readHeader(ch, header);
+            ByteBuffer column = ByteBuffer.allocate(4 * rows);
+            readFully(ch, column, deathsOffset(rows));
+            long sum = 0;
+            while (column.hasRemaining())
+                sum += column.getInt();
+            return sum;
+        } catch (NoSuchFileException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * @return Newest closed day, or {@link Long#MIN_VALUE} if none
+     */
+    public synchronized long lastClosedDay() {
+        return lastClosedDay;
+    }
+
+    /** @return Counter that changes whenever a day is closed */
+    public synchronized long version() {
+        return version;
+    }
+
+    /** @return Players who died in the open day */
+    public synchronized int openDayPlayers() {
+        return today.size();
+    }
+
+    private Day snapshot(long day) {
+        UUID[] players = today.keySet().toArray(new UUID[0]);
+        Arrays.sort(players, Comparator.comparingLong(UUID::getMostSignificantBits)
+                .thenComparingLong(UUID::getLeastSignificantBits));
+        int n = players.length;
+        Day out = new Day(day, new long[n], new long[n], new int[n], new int[n]);
+        for (int i = 0; i < n; i++) {
+            int[] counts = today.get(players[i]);
+            out.uuidHigh()[i] = players[i].getMostSignificantBits();
+            out.uuidLow()[i] = players[i].getLeastSignificantBits();
+            out.deaths()[i] = counts[0];
+            out.totals()[i] = counts[1];
+        }
+        return out;
+    }
+
+    // both inputs sorted by UUID; deaths add up, the cumulative count keeps the larger value
+    static Day merge(Day a, Day b) {
+        int n = a.rows() + b.rows();
+        long[] hi = new long[n];
+        long[] lo = new long[n];
+        int[] deaths = new int[n];
+        int[] totals = new int[n];
+        int i = 0, j = 0, k = 0;
+        while (i < a.rows() || j < b.rows()) {
+            int c = i == a.rows() ? 1
+                    : j == b.rows() ? -1
+                            : compare(a.uuidHigh()[i], a.uuidLow()[i], b.uuidHigh()[j], b.uuidLow()[j]);
+            if (c <= 0) {
+                hi[k] = a.uuidHigh()[i];
+                lo[k] = a.uuidLow()[i];
+                deaths[k] = a.deaths()[i];
+                totals[k] = a.totals()[i];
+                i++;
+            }
+            if (c >= 0) {
+                hi[k] = b.uuidHigh()[j];
+                lo[k] = b.uuidLow()[j];
+                deaths[k] = (c == 0 ? deaths[k] : 0) + b.deaths()[j];
+                totals[k] = c == 0 ? Math.max(totals[k], b.totals()[j]) : b.totals()[j];
+                j++;
+            }
+            k++;
+        }
+        return new Day(b.day(), Arrays.copyOf(hi, k), Arrays.copyOf(lo, k), Arrays.copyOf(deaths, k),
+                Arrays.copyOf(totals, k));
+    }
+
+    private static int compare(long hiA, long loA, long hiB, long loB) {
+        int c = Long.compare(hiA, hiB);
+        return c != 0 ? c : Long.compare(loA, loB);
+    }
+
+    private Path dayFile(long day) {
+        return dir.resolve(DAY_PREFIX + day + SUFFIX);
+    }
+
+    private static long deathsOffset(int rows) {
+        return HEADER_SIZE + 16L * rows;
+    }
+
+    private void writeFile(Path file, Day day) throws IOException {
+        int n = day.rows();
+        ByteBuffer buf = ByteBuffer.allocate(HEADER_SIZE + ROW_SIZE * n);
+        buf.putInt(MAGIC).putInt(VERSION).putLong(day.day()).putInt(n);
+        for (long v : day.uuidHigh())
+            buf.putLong(v);
+        for (long v : day.uuidLow())
+            buf.putLong(v);
+        for (int v : day.deaths())
+            buf.putInt(v);
+        for (int v : day.totals())
+            buf.putInt(v);
+        buf.flip();
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buf.hasRemaining())
+                ch.write(buf);
+            ch.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return The whole file, or null if it is missing or not a valid rollup
+     */
+    static Day read(Path file) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            int n = readHeader(ch, header);
+            ByteBuffer buf = ByteBuffer.allocate(ROW_SIZE * n);
+            readFully(ch, buf, HEADER_SIZE);
+            Day day = new Day(header.getLong(8), new long[n], new long[n], new int[n], new int[n]);
+            for (int i = 0; i < n; i++)
+                day.uuidHigh()[i] = buf.getLong();
+            for (int i = 0; i < n; i++)
+                day.uuidLow()[i] = buf.getLong();
+            for (int i = 0; i < n; i++)
+                day.deaths()[i] = buf.getInt();
+            for (int i = 0; i < n; i++)
+                day.totals()[i] = buf.getInt();
+            return day;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            DioclesLog.warn("Ignoring unreadable rollup file={} error={}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Read and check the header.
+     *
+     * @return Row count
+     * @throws IOException if the file is not a complete rollup
+     */
+    private static int readHeader(FileChannel ch, ByteBuffer header) throws IOException {
+        header.clear();
+        readFully(ch, header, 0);
+        int rows = header.getInt(16);
+        if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION || rows < 0
+                || ch.size() != HEADER_SIZE + (long) ROW_SIZE * rows)
+            throw new IOException("Not a rollup file or truncated");
+        return rows;
+    }
+
+    // binary search over the UUID columns, reading one entry of each per step
+    private static int find(FileChannel ch, int rows, long hi, long lo, ByteBuffer buf) throws IOException {
+        int low = 0, high = rows - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midHi = readLong(ch, HEADER_SIZE + 8L * mid, buf);
+            int c = Long.compare(midHi, hi);
+            if (c == 0)
+                c = Long.compare(readLong(ch, HEADER_SIZE + 8L * rows + 8L * mid, buf), lo);
+            if (c < 0)
+                low = mid + 1;
+            else if (c > 0)
+                high = mid - 1;
+            else
+                return mid;
+        }
+        return -1;
+    }
+
+    private static long readLong(FileChannel ch, long pos, ByteBuffer buf) throws IOException {
+        buf.clear().limit(8);
+        readFully(ch, buf, pos);
+        return buf.getLong(0);
+    }
+
+    private static int readInt(FileChannel ch, long pos, ByteBuffer buf) throws IOException {
+        buf.clear().limit(4);
+        readFully(ch, buf, pos);
+        return buf.getInt(0);
+    }
+
+    // positional read; leaves buf flipped for reading
+    private static void readFully(FileChannel ch, ByteBuffer buf, long pos) throws IOException {
+        while (buf.hasRemaining()) {
+            int n = ch.read(buf, pos);
+            if (n < 0)
+                throw new IOException("Unexpected end of rollup file");
+            pos += n;
+        }
+        buf.flip();
+    }
+}
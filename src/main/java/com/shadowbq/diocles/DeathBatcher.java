@@ -0,0 +1,98 @@
+package com.shadowbq.diocles;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Coalesces per-death payloads into multi-player batches.
+ *
+ * The first death after a flush opens a window of {@code windowMs}; every
+ * death inside the window is merged into the same name-keyed payload (a later
+ * death of the same player replaces the earlier entry, since it carries the
+ * newer count). The batch is flushed when the window closes or when it reaches
+ * {@code maxSize} players, whichever comes first.
+ */
+public class DeathBatcher {
+    private final long windowMs;
+    private final int maxSize;
+    private final Consumer<Map<String, Object>> target;
+    private final ScheduledExecutorService scheduler;
+
+    // guarded by this
+    private Map<String, Object> pending = new LinkedHashMap<>();
+    private long generation;
+
+    /**
+     * @param windowMs  How long to collect deaths after the first one
+     * @param maxSize   Flush immediately once this many players are pending
+     * @param target    Receives each flushed batch
+     * @param scheduler Runs window-expiry flushes
+     */
+    public DeathBatcher(long windowMs, int maxSize, Consumer<Map<String, Object>> target,
+            ScheduledExecutorService scheduler) {
+        this.windowMs = windowMs;
+        this.maxSize = Math.max(1, maxSize);
+        this.target = target;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Add one player's death details to the current batch.
+     *
+     * @param name Player name (payload key)
+     * @param info Per-player payload object
+     */
+    public void add(String name, Map<String, Object> info) {
+        Map<String, Object> full = null;
+        synchronized (this) {
+            boolean first = pending.isEmpty();
+            pending.remove(name); // keep insertion order by latest death
+            pending.put(name, info);
+            if (pending.size() >= maxSize) {
+                full = takePending();
+            } else if (first) {
+                long gen = generation;
+                scheduler.schedule(() -> flushGeneration(gen), windowMs, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (full != null)
+            target.accept(full);
+    }
+
+    /**
+     * Remove and return everything pending without sending it.
+     *
+     * @return Pending batch, or null if nothing is pending
+     */
+    public synchronized Map<String, Object> drain() {
+        return pending.isEmpty() ? null : takePending();
+    }
+
+    /**
+     * @return Number of players waiting in the current batch
+     */
+    public synchronized int pendingCount() {
+        return pending.size();
+    }
+
+    private void flushGeneration(long gen) {
+        Map<String, Object> batch;
+        synchronized (this) {
+            // a size-triggered flush already sent this window
+            if (gen != generation || pending.isEmpty())
+                return;
+            batch = takePending();
+        }
+        target.accept(batch);
+    }
+
+    private Map<String, Object> takePending() {
+        Map<String, Object> batch = pending;
+        pending = new LinkedHashMap<>();
+        generation++;
+        return batch;
+    }
+}
@@ -0,0 +1,410 @@
+package com.shadowbq.diocles;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Death counts per cause, overall, for the last seven server days and per
+ * player.
+ *
+ * A cause is the damage type, the attacker's entity type and the weapon.
+ * Each string is dictionary-encoded to a small int, and each distinct
+ * combination gets a dense cause id, so counting a death touches only int
+ * arrays. Counters keep their causes in rank order as they change (a +1 or
+ * -1 moves a cause to the edge of its run of equal counts with one swap, found
+ * by binary search; a larger change, as when loading or expiring a day, shifts
+ * the causes it passes with one array copy), so the top k is read off the
+ * front in O(k). The week
+ * window holds one bucket per server day; a bucket that ages out is
+ * subtracted from the window.
+ *
+ * The counts are saved to a JSON file on day change and shutdown.
+ */
+public class DeathCauseStats {
+    public static final int WEEK_DAYS = 7;
+    public static final String NONE = "none";
+
+    private static final Gson GSON = new Gson();
+
+    /**
+     * How a player died.
+     *
+     * @param type     Damage type id, e.g. "minecraft:fall"
+     * @param attacker Attacker entity type id, or {@link #NONE}
+     * @param weapon   Weapon item id, or {@link #NONE}
+     */
+    public record Cause(String type, String attacker, String weapon) {
+        /**
+         * @return Short label, e.g. "mob_attack by zombie with iron_sword"
+         */
+        public String label() {
+            StringBuilder sb = new StringBuilder(shortId(type));
+            if (!NONE.equals(attacker))
+                sb.append(" by ").append(shortId(attacker));
+            if (!NONE.equals(weapon))
+                sb.append(" with ").append(shortId(weapon));
+            return sb.toString();
+        }
+
+        /**
+         * @return Map in the shape sent with death payloads
+         */
+        public Map<String, Object> toPayload() {
+            Map<String, Object> out = new LinkedHashMap<>();
+            out.put("type", type);
+            out.put("attacker", attacker);
+            out.put("weapon", weapon);
+            return out;
+        }
+
+        private static String shortId(String id) {
+            return id.startsWith("minecraft:") ? id.substring("minecraft:".length()) : id;
+        }
+    }
+
+    /**
+     * @param cause Cause
+     * @param count Deaths by it
+     */
+    public record Ranked(Cause cause, int count) {
+    }
+
+    /**
+     * Counts per id, with the ids kept sorted by count, highest first. A
+     * change of any size moves the id once: a binary search finds its new
+     * place. If the ids it passes all had its old count (always so for +1 and
+     * -1) it swaps with the first of them; otherwise they shift by one.
+     */
+    static final class RankedCounter {
+        private int[] counts = new int[8];
+        private int[] order = new int[8]; // ids by descending count
+        private int[] pos = new int[8]; // id -> index in order
+        private int size;
+
+        private void ensure(int id) {
+            if (id < size)
+                return;
+            if (id >= counts.length) {
+                int n = Math.max(counts.length * 2, id + 1);
+                counts = Arrays.copyOf(counts, n);
+                order = Arrays.copyOf(order, n);
+                pos = Arrays.copyOf(pos, n);
+            }
+            // new ids start at zero, the lowest count, so they go at the end
+            for (; size <= id; size++) {
+                order[size] = size;
+                pos[size] = size;
+            }
+        }
+
+        void add(int id, int delta) {
+            ensure(id);
+            int v = (int) Math.max(0L, (long) counts[id] + delta);
+            if (v > counts[id])
+                moveUp(id, v);
+            else if (v < counts[id])
+                moveDown(id, v);
+        }
+
+        private void moveUp(int id, int v) {
+            // leftmost position before id with a count below v: everything before it stays ahead
+            int lo = 0, hi = pos[id];
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (counts[order[mid]] >= v)
+                    lo = mid + 1;
+                else
+                    hi = mid;
+            }
+            int from = pos[id];
+            if (counts[order[lo]] == counts[id]) {
+                // only passes its own run of equal counts
+                int other = order[lo];
+                order[from] = other;
+                pos[other] = from;
+            } else {
+                System.arraycopy(order, lo, order, lo + 1, from - lo);
+                for (int i = lo + 1; i <= from; i++)
+                    pos[order[i]] = i;
+            }
+            order[lo] = id;
+            pos[id] = lo;
+            counts[id] = v;
+        }
+
+        private void moveDown(int id, int v) {
+            // rightmost position after id with a count above v: everything after it stays behind
+            int lo = pos[id], hi = size - 1;
+            while (lo < hi) {
+                int mid = (lo + hi + 1) >>> 1;
+                if (counts[order[mid]] > v)
+                    lo = mid;
+                else
+                    hi = mid - 1;
+            }
+            int from = pos[id];
+            if (counts[order[lo]] == counts[id]) {
+                int other = order[lo];
+                order[from] = other;
+                pos[other] = from;
+            } else {
+                System.arraycopy(order, from + 1, order, from, lo - from);
+                for (int i = from; i < lo; i++)
+                    pos[order[i]] = i;
+            }
+            order[lo] = id;
+            pos[id] = lo;
+            counts[id] = v;
+        }
+
+        int count(int id) {
+            return id < size ? counts[id] : 0;
+        }
+
+        /**
+         * @return Up to k ids with a non-zero count, highest first
+         */
+        int[] top(int k) {
+            int n = 0;
+            while (n < Math.min(k, size) && counts[order[n]] > 0)
+                n++;
+            return Arrays.copyOf(order, n);
+        }
+    }
+
+    // string dictionary shared by all three cause fields
+    private final Map<String, Integer> stringIds = new HashMap<>();
+    private final List<String> strings = new ArrayList<>();
+    // packed string ids -> cause id, and back
+    private final Map<Long, Integer> causeIds = new HashMap<>();
+    private final List<Cause> causes = new ArrayList<>();
+
+    private final RankedCounter total = new RankedCounter();
+    private final RankedCounter week = new RankedCounter();
+    private final Map<UUID, RankedCounter> players = new HashMap<>();
+    private final int[][] dayCounts = new int[WEEK_DAYS][];
+    private final long[] bucketDay = new long[WEEK_DAYS];
+
+    public DeathCauseStats() {
+        Arrays.fill(bucketDay, Long.MIN_VALUE);
+    }
+
+    /**
+     * Count a death.
+     *
+     * @param player Player UUID
+     * @param cause  How the player died
+     * @param day    Server day of the death
+     * @return The cause id
+     */
+    public synchronized int record(UUID player, Cause cause, long day) {
+        int id = encode(cause);
+        total.add(id, 1);
+        players.computeIfAbsent(player, k -> new RankedCounter()).add(id, 1);
+        int[] bucket = bucket(day);
+        if (bucket != null) {
+            if (id >= bucket.length)
+                bucket = dayCounts[Math.floorMod(day, WEEK_DAYS)] = Arrays.copyOf(bucket, causes.size());
+            bucket[id]++;
+            week.add(id, 1);
+        }
+        return id;
+    }
+
+    /**
+     * @param k     Number of causes wanted
+     * @param today Current server day; days before the last {@link #WEEK_DAYS} are dropped
+     * @return Top causes over the last {@link #WEEK_DAYS} days, most deaths first
+     */
+    public synchronized List<Ranked> topThisWeek(int k, long today) {
+        advance(today);
+        return ranked(week, k);
+    }
+
+    /**
+     * @return Top causes since counting began, most deaths first
+     */
+    public synchronized List<Ranked> topAllTime(int k) {
+        return ranked(total, k);
+    }
+
+    /**
+     * @return A player's top causes since counting began, most deaths first
+     */
+    public synchronized List<Ranked> topFor(UUID player, int k) {
+        RankedCounter counter = players.get(player);
+        return counter != null ? ranked(counter, k) : List.of();
+    }
+
+    /** @return Number of distinct causes seen */
+    public synchronized int causeCount() {
+        return causes.size();
+    }
+
+    /** @return Number of distinct strings in the dictionary */
+    public synchronized int dictionarySize() {
+        return strings.size();
+    }
+
+    /**
+     * Drop day buckets that have left the week window.
+     */
+    public synchronized void advance(long today) {
+        for (int slot = 0; slot < WEEK_DAYS; slot++) {
+            if (bucketDay[slot] != Long.MIN_VALUE && bucketDay[slot] <= today - WEEK_DAYS)
+                expire(slot);
+        }
+    }
+
+    synchronized int encode(Cause cause) {
+        long key = ((long) stringId(cause.type()) << 42) | ((long) stringId(cause.attacker()) << 21)
+                | stringId(cause.weapon());
+        Integer id = causeIds.get(key);
+        if (id == null) {
+            id = causes.size();
+            causeIds.put(key, id);
+            causes.add(new Cause(strings.get((int) (key >>> 42)), strings.get((int) (key >>> 21) & 0x1FFFFF),
+                    strings.get((int) key & 0x1FFFFF)));
+        }
+        return id;
+    }
+
+    private int stringId(String s) {
+        Integer id = stringIds.get(s);
+        if (id == null) {
+            id = strings.size();
+            stringIds.put(s, id);
+            strings.add(s);
+        }
+        return id;
+    }
+
+    /**
+     * @return The bucket counting deaths on this day, or null if the day is
+     *         already outside the window
+     */
+    private int[] bucket(long day) {
+        int slot = Math.floorMod(day, WEEK_DAYS);
+        if (bucketDay[slot] == day)
+            return dayCounts[slot];
+        if (bucketDay[slot] != Long.MIN_VALUE && bucketDay[slot] > day)
+            return null; // a newer day owns the slot
+        expire(slot);
+        bucketDay[slot] = day;
+        dayCounts[slot] = new int[Math.max(1, causes.size())];
+        return dayCounts[slot];
+    }
+
+    private void expire(int slot) {
+        int[] counts = dayCounts[slot];
+        if (counts != null) {
+            for (int id = 0; id < counts.length; id++) {
+                if (counts[id] > 0)
+                    week.add(id, -counts[id]);
+            }
+        }
+        dayCounts[slot] = null;
+        bucketDay[slot] = Long.MIN_VALUE;
+    }
+
+    private List<Ranked> ranked(RankedCounter counter, int k) {
+        int[] ids = counter.top(k);
+        List<Ranked> out = new ArrayList<>(ids.length);
+        for (int id : ids)
+            out.add(new Ranked(causes.get(id), counter.count(id)));
+        return out;
+    }
+
+    // on-disk form; counts are indexed by position in causes
+    private record Saved(List<Cause> causes, int[] total, long[] days, int[][] dayCounts,
+            Map<String, int[]> players) {
+    }
+
+    /**
+     * Write the counts to a file, atomically.
+     */
+    public void save(Path file) throws IOException {
+        String json;
+        synchronized (this) {
+            int n = causes.size();
+            int[] totals = new int[n];
+            for (int id = 0; id < n; id++)
+                totals[id] = total.count(id);
+            Map<String, int[]> perPlayer = new LinkedHashMap<>();
+            for (Map.Entry<UUID, RankedCounter> e : players.entrySet()) {
+                int[] counts = new int[n];
+                for (int id = 0; id < n; id++)
+                    counts[id] = e.getValue().count(id);
+                perPlayer.put(e.getKey().toString(), counts);
+            }
+            json = GSON.toJson(new Saved(new ArrayList<>(causes), totals, bucketDay.clone(),
+                    Arrays.stream(dayCounts).map(c -> c != null ? c.clone() : null).toArray(int[][]::new),
+                    perPlayer));
+        }
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.writeString(tmp, json, StandardCharsets.UTF_8);
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Read counts saved by {@link #save(Path)}.
+     *
+     * @return The saved counts, or empty counts if the file does not exist
+     * @throws IOException if the file exists but cannot be read or parsed
+     */
+    public static DeathCauseStats load(Path file) throws IOException {
+        DeathCauseStats stats = new DeathCauseStats();
+        Saved saved;
+        try {
+            saved = GSON.fromJson(Files.readString(file, StandardCharsets.UTF_8), Saved.class);
+        } catch (NoSuchFileException e) {
+            return stats;
+        } catch (JsonParseException e) {
+            throw new IOException("Invalid JSON in " + file + ": " + e.getMessage(), e);
+        }
+        if (saved == null || saved.causes() == null)
+            return stats;
+        int n = saved.causes().size();
+        for (Cause cause : saved.causes())
+            stats.encode(cause);
+        if (saved.total() != null) {
+            for (int id = 0; id < Math.min(n, saved.total().length); id++)
+                stats.total.add(id, saved.total()[id]);
+        }
+        if (saved.players() != null) {
+            for (Map.Entry<String, int[]> e : saved.players().entrySet()) {
+                RankedCounter counter = new RankedCounter();
+                for (int id = 0; id < Math.min(n, e.getValue().length); id++)
+                    counter.add(id, e.getValue()[id]);
+                stats.players.put(UUID.fromString(e.getKey()), counter);
+            }
+        }
+        if (saved.days() != null && saved.dayCounts() != null) {
+            for (int slot = 0; slot < Math.min(WEEK_DAYS, saved.days().length); slot++) {
+                int[] counts = slot < saved.dayCounts().length ? saved.dayCounts()[slot] : null;
+                if (saved.days()[slot] == Long.MIN_VALUE || counts == null)
+                    continue;
+                stats.bucketDay[slot] = saved.days()[slot];
+                stats.dayCounts[slot] = Arrays.copyOf(counts, Math.max(n, 1));
+                for (int id = 0; id < Math.min(n, counts.length); id++)
+                    stats.week.add(id, counts[id]);
+            }
+        }
+        return stats;
+    }
+}
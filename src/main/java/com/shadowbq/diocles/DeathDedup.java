@@ -0,0 +1,128 @@
+package com.shadowbq.diocles;
+
+import java.security.SecureRandom;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Death event IDs and a lock-free window that collapses duplicate death
+ * notifications.
+ *
+ * A death can be reported by more than one hook (the Fabric AFTER_DEATH
+ * event and, when enabled, the player death mixin). Every report of one death
+ * happens in the same server tick, so the event ID is derived from the
+ * player UUID and the tick: all sources compute the same ID without sharing
+ * any state. The tick count starts again at zero when the server launches, so
+ * the ID also mixes in a random salt picked once per launch; a death in
+ * another session at the same tick gets a different ID.
+ *
+ * The window is a table of recent IDs in 4-way buckets, updated only with
+ * compare-and-set. A report looks for its ID in the bucket; if it is not
+ * there, it claims a free slot (or evicts one when the bucket is full). If two
+ * reports of one ID race and claim two slots, the copy in the lower slot wins
+ * and the other report gives its slot back and counts as a duplicate. An ID
+ * is forgotten only when its bucket fills up with newer IDs, which with
+ * {@link #DEFAULT_SLOTS} slots takes thousands of deaths.
+ */
+public class DeathDedup {
+    public static final int DEFAULT_SLOTS = 4096;
+
+    private static final long EMPTY = 0L;
+    private static final int WAYS = 4;
+
+    private final AtomicLongArray ids;
+    private final int mask;
+    private final long runSalt;
+    private final LongAdder duplicates = new LongAdder();
+
+    /**
+     * @param slots Window size, rounded up to a power of two
+     */
+    public DeathDedup(int slots) {
+        this(slots, new SecureRandom().nextLong());
+    }
+
+    /**
+     * @param slots   Window size, rounded up to a power of two
+     * @param runSalt Mixed into every event ID; differs between launches
+     */
+    public DeathDedup(int slots, long runSalt) {
+        this.runSalt = runSalt;
+        int size = Integer.highestOneBit(Math.max(2 * WAYS, slots) - 1) << 1;
+        this.ids = new AtomicLongArray(size);
+        this.mask = size / WAYS - 1;
+    }
+
+    /**
+     * @param player Player UUID
+     * @param tick   Server tick the death happened in
+     * @return Event ID for this launch, never zero
+     */
+    public long eventId(UUID player, long tick) {
+        long h = mix(player.getMostSignificantBits()
+                ^ mix(player.getLeastSignificantBits() ^ mix(tick ^ mix(runSalt))));
+        return h != EMPTY ? h : 1L;
+    }
+
+    /**
+     * @return Event ID as 16 hex digits, as sent in payloads
+     */
+    public static String format(long eventId) {
+        String hex = Long.toHexString(eventId);
+        return "0".repeat(16 - hex.length()) + hex;
+    }
+
+    /**
+     * Record an event ID.
+     *
+     * @return true for the first report of this ID, false for a duplicate
+     */
+    public boolean firstSeen(long eventId) {
+        long h = mix(eventId);
+        int base = ((int) h & mask) * WAYS;
+        int claimed = -1;
+        while (claimed < 0) {
+            int free = -1;
+            for (int i = base; i < base + WAYS; i++) {
+                long current = ids.get(i);
+                if (current == eventId)
+                    return duplicate();
+                if (current == EMPTY && free < 0)
+                    free = i;
+            }
+            // bucket full: evict a slot picked by the ID's own hash bits
+            int victim = free >= 0 ? free : base + (int) ((h >>> 32) & (WAYS - 1));
+            long old = ids.get(victim);
+            if (old != eventId && ids.compareAndSet(victim, old, eventId))
+                claimed = victim;
+        }
+        // a racing report of the same ID may have claimed another slot; the lower slot wins
+        for (int i = base; i < claimed; i++) {
+            if (ids.get(i) == eventId) {
+                ids.compareAndSet(claimed, eventId, EMPTY);
+                return duplicate();
+            }
+        }
+        return true;
+    }
+
+    private boolean duplicate() {
+        duplicates.increment();
+        return false;
+    }
+
+    /**
+     * @return Duplicate reports collapsed since start
+     */
+    public long duplicateCount() {
+        return duplicates.sum();
+    }
+
+    // splitmix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,183 @@
+package com.shadowbq.diocles;
+
+import com.google.gson.Gson;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Ring buffer of recent events, already encoded as Server-Sent Events
+ * frames, shared by every stream subscriber.
+ *
+ * An event is serialized once when it is published; subscribers only copy
+ * the same bytes to their sockets, so a thousand viewers cost one
+ * serialization per death. Each event gets an increasing sequence number,
+ * sent as the SSE {@code id:} field prefixed with the stream's epoch (its
+ * creation time), e.g. {@code 1760745600000-42}. A client that reconnects with
+ * Last-Event-ID receives whatever it missed, as long as it is still in the
+ * ring. A client that fell further behind is told to reset and continues from
+ * the oldest event kept; one whose id has another epoch (it was issued before
+ * a restart, when numbering began again) is told to reset and continues from
+ * the newest.
+ *
+ * Subscribers wait on a {@link ReentrantLock} condition rather than a
+ * monitor, so the virtual threads serving them unmount while idle.
+ */
+public class DeathEventStream {
+    public static final int DEFAULT_CAPACITY = 1024;
+    /** {@link #cursor} result for an id from another epoch. */
+    public static final long RESYNC = -2;
+
+    private static final Gson GSON = new Gson();
+
+    /**
+     * Frames a subscriber has not seen yet.
+     *
+     * @param frames Encoded frames, oldest first
+     * @param lastId Id of the newest frame returned (the new cursor)
+     * @param reset  Whether events were missed and the client should reload
+     */
+    public record Batch(List<byte[]> frames, long lastId, boolean reset) {
+    }
+
+    private final long epoch;
+    private final byte[][] ring;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition published = lock.newCondition();
+    private long head; // id of the newest event; ids start at 1, guarded by lock
+    private boolean closed; // guarded by lock
+
+    /**
+     * @param capacity Number of recent events kept for reconnecting clients
+     */
+    public DeathEventStream(int capacity) {
+        this(capacity, System.currentTimeMillis());
+    }
+
+    DeathEventStream(int capacity, long epoch) {
+        this.epoch = epoch;
+        this.ring = new byte[Math.max(1, capacity)][];
+    }
+
+    /**
+     * @return Prefix of every event id this stream sends
+     */
+    public long epoch() {
+        return epoch;
+    }
+
+    /**
+     * Read a reconnecting client's Last-Event-ID.
+     *
+     * @param lastEventId Header value, may be null
+     * @return The sequence number the client has, -1 if it sent none, or
+     *         {@link #RESYNC} if the id is not one of this stream's
+     */
+    public long cursor(String lastEventId) {
+        if (lastEventId == null)
+            return -1;
+        String id = lastEventId.trim();
+        String prefix = epoch + "-";
+        if (!id.startsWith(prefix))
+            return RESYNC;
+        try {
+            long seq = Long.parseLong(id.substring(prefix.length()));
+            return seq >= 0 ? seq : RESYNC;
+        } catch (NumberFormatException e) {
+            return RESYNC;
+        }
+    }
+
+    /**
+     * Serialize an event and wake every subscriber.
+     *
+     * @param event SSE event name, e.g. "death"
+     * @param data  Object serialized as the JSON data line
+     * @return The event's sequence number
+     */
+    public long publish(String event, Object data) {
+        // serialize outside the lock; only the frame header needs the id
+        String json = GSON.toJson(data);
+        lock.lock();
+        try {
+            long id = ++head;
+            ring[(int) (id % ring.length)] = ("id: " + epoch + "-" + id + "\nevent: " + event + "\ndata: " + json
+                    + "\n\n").getBytes(StandardCharsets.UTF_8);
+            published.signalAll();
+            return id;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Id of the newest event, or 0 if none has been published
+     */
+    public long head() {
+        lock.lock();
+        try {
+            return head;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wait for events newer than a cursor.
+     *
+     * @param after     Id of the last event the subscriber has
+     * @param timeoutMs Longest time to wait
+     * @return New frames; empty if the wait timed out or the stream closed
+     * @throws InterruptedException if the waiting thread is interrupted
+     */
+    public Batch await(long after, long timeoutMs) throws InterruptedException {
+        lock.lock();
+        try {
+            if (after > head) // never issued
+                return new Batch(List.of(), head, true);
+            long nanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+            while (head == after && !closed) {
+                if (nanos <= 0)
+                    return new Batch(List.of(), after, false);
+                nanos = published.awaitNanos(nanos);
+            }
+            long oldest = Math.max(1, head - ring.length + 1);
+            long from = Math.max(after + 1, oldest);
+            List<byte[]> frames = new ArrayList<>((int) (head - from + 1));
+            for (long id = from; id <= head; id++)
+                frames.add(ring[(int) (id % ring.length)]);
+            return new Batch(frames, head, after + 1 < oldest);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wake all subscribers for good, e.g. when the HTTP server stops.
+     */
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            published.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Whether {@link #close()} has been called
+     */
+    public boolean isClosed() {
+        lock.lock();
+        try {
+            return closed;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
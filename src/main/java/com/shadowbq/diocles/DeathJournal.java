@@ -0,0 +1,427 @@
+package com.shadowbq.diocles;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Durable append-only journal of player deaths.
+ *
+ * Deaths are appended to fixed-size memory-mapped segment files. Once enough
+ * segments have been sealed, the latest record per player is written to a
+ * snapshot file and the covered segments are deleted (log compaction). At
+ * startup the snapshot is loaded and only the segments written after it are
+ * replayed.
+ *
+ * Each record is framed as {@code [int length][int crc32][payload]}. The
+ * length is written last, so a record torn by a crash reads back as the end
+ * of the segment.
+ *
+ * The latest death per player is held in a {@link PlayerStatsStore}, and
+ * records are encoded straight from their fields, so appending a death for a
+ * known player allocates nothing.
+ */
+public class DeathJournal {
+    static final int SEGMENT_SIZE = 1 << 20;
+    static final int COMPACT_AFTER_SEGMENTS = 4;
+
+    private static final int SNAPSHOT_MAGIC = 0x444A534E; // "DJSN"
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final int SNAPSHOT_HEADER_SIZE = 20;
+    private static final int FRAME_HEADER_SIZE = 8;
+    private static final int MAX_RECORD_SIZE = 4096;
+    private static final int MAX_STRING_BYTES = 1024;
+    private static final String SNAPSHOT_FILE = "snapshot.bin";
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path dir;
+    private final PlayerStatsStore latest = new PlayerStatsStore();
+    private final ByteBuffer scratch = ByteBuffer.allocate(MAX_RECORD_SIZE);
+    private final CRC32 crc = new CRC32();
+
+    private long activeSeq;
+    private FileChannel activeChannel;
+    private MappedByteBuffer active;
+    private int sealedSegments;
+    private boolean closed;
+
+    private DeathJournal(Path dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Open (or create) a journal in the given directory and rebuild the latest
+     * death per player from the snapshot and any newer segments.
+     *
+     * @param dir Directory holding the snapshot and segment files
+     * @return Open journal ready for appends
+     * @throws IOException if the directory or files cannot be read or created
+     */
+    public static DeathJournal open(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        DeathJournal journal = new DeathJournal(dir);
+        journal.load();
+        return journal;
+    }
+
+    /**
+     * Create a journal that keeps the latest deaths in memory only. Used as a
+     * fallback when the world directory cannot be written.
+     *
+     * @return Journal whose appends are never persisted
+     */
+    public static DeathJournal inMemory() {
+        return new DeathJournal(null);
+    }
+
+    /**
+     * Latest recorded death for a player.
+     *
+     * @param uuid Player UUID
+     * @return Latest record, or null if the player has never died
+     */
+    public DeathRecord get(UUID uuid) {
+        return latest.get(uuid);
+    }
+
+    /**
+     * @return Column store holding the latest death for every recorded player
+     */
+    public PlayerStatsStore stats() {
+        return latest;
+    }
+
+    /**
+     * @return Copy of the latest death for every recorded player
+     */
+    public List<DeathRecord> records() {
+        int n = latest.size();
+        List<DeathRecord> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++)
+            out.add(latest.get(i));
+        return out;
+    }
+
+    /**
+     * @return Number of players with at least one recorded death
+     */
+    public int size() {
+        return latest.size();
+    }
+
+    /**
+     * Record a death. The in-memory view is always updated; a failure to
+     * persist is reported but never thrown to the caller.
+     *
+     * @param record Death to append
+     */
+    public void append(DeathRecord record) {
+        append(record.uuid(), record.name(), record.epochMillis(), record.day(), record.deathCount(), record.x(),
+                record.y(), record.z(), record.world());
+    }
+
+    /**
+     * Record a death from its fields, without building a {@link DeathRecord}.
+     *
+     * @return The player's index in {@link #stats()}
+     */
+    public synchronized int append(UUID uuid, String name, long epochMillis, long day, int deathCount, int x, int y,
+            int z, String world) {
+        int index = latest.record(uuid, name, epochMillis, day, deathCount, x, y, z, world);
+        if (dir == null || closed)
+            return index;
+        try {
+            encode(uuid, name, epochMillis, day, deathCount, x, y, z, world);
+            if (active.remaining() < scratch.remaining() + FRAME_HEADER_SIZE + 4) {
+                rollSegment();
+                if (sealedSegments >= COMPACT_AFTER_SEGMENTS) {
+                    compact();
+                    // compaction reuses the scratch buffer
+                    encode(uuid, name, epochMillis, day, deathCount, x, y, z, world);
+                }
+            }
+            writeFrame(active, scratch);
+        } catch (IOException e) {
+            DioclesLog.error("Failed to append death journal error={}", e.getMessage());
+        }
+        return index;
+    }
+
+    /**
+     * Write a snapshot of the latest deaths and drop every segment it covers.
+     *
+     * @throws IOException if the snapshot cannot be written
+     */
+    public synchronized void compact() throws IOException {
+        if (dir == null || closed)
+            return;
+        // everything in segments up to (and including) coveredSeq is in the snapshot
+        long coveredSeq = activeSeq - 1;
+        if (active != null && active.position() > 0) {
+            rollSegment();
+            coveredSeq = activeSeq - 1;
+        }
+        writeSnapshot(coveredSeq);
+        for (Path segment : listSegments()) {
+            if (segmentSeq(segment) <= coveredSeq) {
+                try {
+                    Files.deleteIfExists(segment);
+                } catch (IOException e) {
+                    // still mapped on some platforms; skipped on replay and retried next compaction
+                }
+            }
+        }
+        sealedSegments = 0;
+    }
+
+    /**
+     * Compact and release the active segment. The journal must not be used
+     * afterwards.
+     */
+    public synchronized void close() {
+        if (dir == null || closed)
+            return;
+        try {
+            compact();
+        } catch (IOException e) {
+            DioclesLog.error("Failed to compact death journal error={}", e.getMessage());
+        }
+        boolean empty = active != null && active.position() == 0;
+        try {
+            if (active != null)
+                active.force();
+            if (activeChannel != null)
+                activeChannel.close();
+        } catch (IOException e) {
+            DioclesLog.error("Failed to close death journal error={}", e.getMessage());
+        }
+        if (empty) {
+            try {
+                Files.deleteIfExists(segmentPath(activeSeq));
+            } catch (IOException ignored) {
+            }
+        }
+        active = null;
+        activeChannel = null;
+        closed = true;
+    }
+
+    private void load() throws IOException {
+        long coveredSeq = readSnapshot();
+        List<Path> segments = listSegments();
+        long lastSeq = coveredSeq;
+        for (Path segment : segments) {
+            long seq = segmentSeq(segment);
+            if (seq <= coveredSeq)
+                continue;
+            try (FileChannel ch = FileChannel.open(segment, StandardOpenOption.READ)) {
+                readFrames(ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()));
+            }
+            lastSeq = Math.max(lastSeq, seq);
+            sealedSegments++;
+        }
+        // always start a fresh segment; partially filled ones are sealed as-is
+        activeSeq = lastSeq + 1;
+        mapSegment(activeSeq);
+    }
+
+    private long readSnapshot() throws IOException {
+        Path file = dir.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(file))
+            return 0;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (ch.size() < SNAPSHOT_HEADER_SIZE)
+                return 0;
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            if (buf.getInt() != SNAPSHOT_MAGIC || buf.getInt() != SNAPSHOT_VERSION) {
+                DioclesLog.warn("Ignoring unrecognized death journal snapshot file={}", file);
+                return 0;
+            }
+            long coveredSeq = buf.getLong();
+            buf.getInt(); // record count, informational
+            readFrames(buf);
+            return coveredSeq;
+        }
+    }
+
+    private void writeSnapshot(long coveredSeq) throws IOException {
+        Path tmp = dir.resolve(SNAPSHOT_FILE + ".tmp");
+        ByteBuffer header = ByteBuffer.allocate(SNAPSHOT_HEADER_SIZE);
+        header.putInt(SNAPSHOT_MAGIC).putInt(SNAPSHOT_VERSION).putLong(coveredSeq).putInt(latest.size()).flip();
+        ByteBuffer frame = ByteBuffer.allocate(MAX_RECORD_SIZE + FRAME_HEADER_SIZE);
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ch.write(header);
+            for (int i = 0; i < latest.size(); i++) {
+                DeathRecord record = latest.get(i);
+                encode(record.uuid(), record.name(), record.epochMillis(), record.day(), record.deathCount(),
+                        record.x(), record.y(), record.z(), record.world());
+                frame.clear();
+                writeFrame(frame, scratch);
+                frame.flip();
+                while (frame.hasRemaining())
+                    ch.write(frame);
+            }
+            ch.force(true);
+        }
+        Files.move(tmp, dir.resolve(SNAPSHOT_FILE), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void readFrames(ByteBuffer buf) {
+        while (buf.remaining() >= FRAME_HEADER_SIZE) {
+            int start = buf.position();
+            int length = buf.getInt();
+            int expectedCrc = buf.getInt();
+            if (length <= 0 || length > MAX_RECORD_SIZE || length > buf.remaining())
+                return;
+            ByteBuffer payload = buf.slice(buf.position(), length);
+            crc.reset();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != expectedCrc) {
+                DioclesLog.warn("Death journal checksum mismatch offset={}, ignoring rest of segment", start);
+                return;
+            }
+            latest.record(decode(payload));
+            buf.position(buf.position() + length);
+        }
+    }
+
+    private void writeFrame(ByteBuffer target, ByteBuffer payload) {
+        int start = target.position();
+        int length = payload.remaining();
+        crc.reset();
+        crc.update(payload.duplicate());
+        target.position(start + FRAME_HEADER_SIZE);
+        target.put(payload);
+        target.putInt(start + 4, (int) crc.getValue());
+        // length last: a frame is only visible once it is complete
+        target.putInt(start, length);
+    }
+
+    private void rollSegment() throws IOException {
+        if (active != null) {
+            active.force();
+            activeChannel.close();
+            sealedSegments++;
+            activeSeq++;
+        }
+        mapSegment(activeSeq);
+    }
+
+    private void mapSegment(long seq) throws IOException {
+        Path file = segmentPath(seq);
+        activeChannel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        active = activeChannel.map(FileChannel.MapMode.READ_WRITE, 0, SEGMENT_SIZE);
+    }
+
+    private Path segmentPath(long seq) {
+        return dir.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, seq, SEGMENT_SUFFIX));
+    }
+
+    private List<Path> listSegments() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.filter(p -> {
+                String n = p.getFileName().toString();
+                return n.startsWith(SEGMENT_PREFIX) && n.endsWith(SEGMENT_SUFFIX);
+            }).forEach(segments::add);
+        }
+        segments.sort((a, b) -> Long.compare(segmentSeq(a), segmentSeq(b)));
+        return segments;
+    }
+
+    private static long segmentSeq(Path segment) {
+        String n = segment.getFileName().toString();
+        try {
+            return Long.parseLong(n.substring(SEGMENT_PREFIX.length(), n.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private void encode(UUID uuid, String name, long epochMillis, long day, int deathCount, int x, int y, int z,
+            String world) {
+        scratch.clear();
+        scratch.putLong(uuid.getMostSignificantBits());
+        scratch.putLong(uuid.getLeastSignificantBits());
+        scratch.putLong(epochMillis);
+        scratch.putLong(day);
+        scratch.putInt(deathCount);
+        scratch.putInt(x);
+        scratch.putInt(y);
+        scratch.putInt(z);
+        putString(scratch, name);
+        putString(scratch, world);
+        scratch.flip();
+    }
+
+    private static DeathRecord decode(ByteBuffer buf) {
+        UUID uuid = new UUID(buf.getLong(), buf.getLong());
+        long epochMillis = buf.getLong();
+        long day = buf.getLong();
+        int count = buf.getInt();
+        int x = buf.getInt();
+        int y = buf.getInt();
+        int z = buf.getInt();
+        String name = getString(buf);
+        String world = getString(buf);
+        return new DeathRecord(uuid, name, epochMillis, day, count, x, y, z, world);
+    }
+
+    // UTF-8 encoded in place (no byte[] per call), truncated to MAX_STRING_BYTES at a character boundary
+    private static void putString(ByteBuffer buf, String s) {
+        int lenPos = buf.position();
+        buf.position(lenPos + 2);
+        int start = buf.position();
+        int n = s != null ? s.length() : 0;
+        for (int i = 0; i < n; i++) {
+            char c = s.charAt(i);
+            int cp = c;
+            if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(s.charAt(i + 1)))
+                cp = Character.toCodePoint(c, s.charAt(i + 1));
+            else if (Character.isSurrogate(c))
+                cp = '?';
+            int size = cp < 0x80 ? 1 : cp < 0x800 ? 2 : cp < 0x10000 ? 3 : 4;
+            if (buf.position() - start + size > MAX_STRING_BYTES)
+                break;
+            if (size == 1) {
+                buf.put((byte) cp);
+            } else if (size == 2) {
+                buf.put((byte) (0xC0 | (cp >> 6)));
+                buf.put((byte) (0x80 | (cp & 0x3F)));
+            } else if (size == 3) {
+                buf.put((byte) (0xE0 | (cp >> 12)));
+                buf.put((byte) (0x80 | ((cp >> 6) & 0x3F)));
+                buf.put((byte) (0x80 | (cp & 0x3F)));
+            } else {
+                buf.put((byte) (0xF0 | (cp >> 18)));
+                buf.put((byte) (0x80 | ((cp >> 12) & 0x3F)));
+                buf.put((byte) (0x80 | ((cp >> 6) & 0x3F)));
+                buf.put((byte) (0x80 | (cp & 0x3F)));
+                i++;
+            }
+        }
+        buf.putShort(lenPos, (short) (buf.position() - start));
+    }
+
+    private static String getString(ByteBuffer buf) {
+        int len = buf.getShort() & 0xFFFF;
+        byte[] bytes = new byte[len];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,28 @@
+package com.shadowbq.diocles;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Details of a player's most recent death, as recorded in the death journal.
+ */
+public record DeathRecord(UUID uuid, String name, long epochMillis, long day, int deathCount,
+        int x, int y, int z, String world) {
+
+    /**
+     * Build the per-player JSON object sent to the API.
+     *
+     * @return Map in the same shape used by /api/deathboard and /api/sync
+     */
+    public Map<String, Object> toPayload() {
+        Map<String, Object> info = new LinkedHashMap<>();
+        info.put("last_death_time", Instant.ofEpochMilli(epochMillis).toString());
+        info.put("last_death_day", day);
+        info.put("death_count", deathCount);
+        info.put("location", Map.of("x", x, "y", y, "z", z));
+        info.put("world", world);
+        return info;
+    }
+}
@@ -1,122 +1,655 @@
 package com.shadowbq.diocles;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.EntityType;
+import net.minecraft.entity.LivingEntity;
+import net.minecraft.entity.damage.DamageSource;
+import net.minecraft.item.ItemStack;
+import net.minecraft.registry.Registries;
 import net.minecraft.scoreboard.Scoreboard;
-import net.minecraft.scoreboard.ScoreboardCriterion;
+import net.minecraft.scoreboard.ScoreboardEntry;
 import net.minecraft.scoreboard.ScoreboardObjective;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.network.ServerPlayerEntity;
-import net.minecraft.text.Text;
+import net.minecraft.registry.RegistryKey;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
 
 import java.io.IOException;
-import java.io.Reader;
-import java.net.HttpURLConnection;
-import java.net.URI;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.time.Instant;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
 import java.util.stream.Collectors;
 
 /**
  * Deathboard manager: handles per-death posts and day-sync posts.
  */
 public class DeathboardManager {
-    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
     public static final String OBJECTIVE_NAME = "diocles_deaths";
+    private static final int DISPATCH_THREADS = 2;
+    private static final long DISPATCH_DRAIN_TIMEOUT_MS = 5000L;
+    private static final Duration HEALTH_TIMEOUT = Duration.ofSeconds(5);
 
-    private static String postUrl = null; // base URL, e.g. http://xhost:3000
-    private static String authKey = null;
-    private static volatile long lastServerDay = Long.MIN_VALUE;
+    private static final Metrics.Counter DEATHS = Metrics.counter("diocles_deaths_total",
+            "Player deaths handled");
+    private static final Metrics.Counter POSTS_SENT = Metrics.counter("diocles_posts_sent_total",
+            "POST attempts sent to the API, including retries");
+    private static final Metrics.Counter POSTS_FAILED = Metrics.counter("diocles_posts_failed_total",
+            "POST attempts that failed with a network error or non-2xx status");
+    private static final Metrics.Histogram POST_LATENCY = Metrics.histogram("diocles_post_latency_seconds",
+            "Time from sending a POST to its response", Metrics.LATENCY_BUCKETS);
+    private static final Metrics.Histogram SYNC_BYTES = Metrics.histogram("diocles_sync_payload_bytes",
+            "Encoded size of /api/sync bodies", Metrics.SIZE_BUCKETS);
+    public static final String SYNC_MODE_HEADER = "X-Diocles-Sync-Mode";
+    public static final String SYNC_SEQ_HEADER = "X-Diocles-Sync-Seq";
 
-    // in-memory last-death details (player -> map of details)
-    private static final Map<String, Map<String, Object>> lastDeathDetails = new ConcurrentHashMap<>();
+    // current configuration; replaced as a whole on reload, read once per operation
+    private static final AtomicReference<DioclesConfig> config = new AtomicReference<>(DioclesConfig.DEFAULTS);
+    // reloads config/diocles.json when it changes; null when stopped
+    private static ConfigWatcher configWatcher = null;
+    private static ScheduledFuture<?> metricsTask = null;
 
-    private static final ExecutorService executor = Executors.newFixedThreadPool(2);
+    // times the server-thread callbacks; hooks are created at mod init, before the server starts
+    private static final HookProfiler profiler = new HookProfiler(DioclesConfig.DEFAULTS.hookBudgetUs() * 1000L,
+            DioclesConfig.DEFAULTS.slowHookMs() * 1_000_000L);
+    // counts down to the next server-day boundary; null until init
+    private static volatile ServerDayClock dayClock;
 
-    public static void init(MinecraftServer server) {
-        loadConfig(server);
+    // durable last-death details (player uuid -> latest death), rebuilt from the world save on start
+    private static volatile DeathJournal journal = DeathJournal.inMemory();
+
+    // per-day death counts closed into columnar files; null if the directory cannot be opened
+    private static volatile DailyRollupStore rollups = null;
+    // latest closed-day write handed to the scheduler; shutdown waits for it
+    private static volatile Future<?> rollupWrite = null;
+    private static final long ROLLUP_WRITE_TIMEOUT_MS = 10_000L;
+
+    // death counts per cause (damage type, attacker, weapon)
+    private static volatile DeathCauseStats causeStats = new DeathCauseStats();
+
+    // registry key -> id string, so a death does not format the world id each time
+    private static final Map<RegistryKey<World>, String> WORLD_NAMES = new ConcurrentHashMap<>();
+
+    // ranked death counts for every score holder, kept current by ScoreboardMixin
+    private static volatile LeaderboardIndex leaderboard = new LeaderboardIndex();
+
+    // write-ahead spool for outbound posts; null when no API is configured
+    private static volatile OutboundSpool spool = null;
+    private static final long SPOOL_INITIAL_BACKOFF_MS = 1000L;
+    private static final long SPOOL_MAX_BACKOFF_MS = 5 * 60 * 1000L;
+    private static final Duration POST_TIMEOUT = Duration.ofSeconds(10);
+
+    // bounded queue + daemon workers that serialize and spool posts; null when no API is configured
+    private static volatile PostDispatcher dispatcher = null;
+
+    // background /health, /ping and base URL probes; null when no API is configured
+    private static volatile ApiHealthMonitor healthMonitor = null;
+
+    // timers for batch windows and other delayed work
+    private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "Diocles-Scheduler");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // collapses repeat reports of one death from the event and mixin paths; replaced
+    // on every launch, so event IDs get a new salt when the tick count restarts
+    private static volatile DeathDedup deathDedup = new DeathDedup(DeathDedup.DEFAULT_SLOTS);
+
+    // per-player change stamps for delta /api/sync posts
+    private static volatile SyncTracker syncTracker = new SyncTracker(1);
+
+    // read-only JSON endpoints for dashboards; null when http_port is 0
+    private static volatile BoardHttpServer httpServer = null;
+
+    // coalesces deaths into one /api/deathboard post per window; null when batching is off
+    private static volatile DeathBatcher batcher = null;
+
+    public static synchronized void init(MinecraftServer server) {
+        java.nio.file.Path cfgPath = server.getSavePath(net.minecraft.util.WorldSavePath.ROOT)
+                .resolve("config").resolve("diocles.json");
+        DioclesConfig cfg;
+        try {
+            cfg = DioclesConfig.load(cfgPath, System.getenv());
+        } catch (IOException e) {
+            DioclesLog.warn("Failed reading config error={}", e.getMessage());
+            cfg = DioclesConfig.parse(Map.of(), System.getenv());
+        }
+        config.set(cfg);
+        deathDedup = new DeathDedup(DeathDedup.DEFAULT_SLOTS);
+        syncTracker = new SyncTracker(cfg.deltaSync() ? cfg.fullSyncEvery() : 1);
+        openJournal(server);
+        openRollups(server);
+        loadCauseStats(server);
+        openSpool(server, cfg);
+        AnnouncementQuotes.watchPacks(server.getSavePath(net.minecraft.util.WorldSavePath.ROOT)
+                .resolve("config").resolve("diocles_quotes"));
+        startDispatcher(cfg);
+        startHealthMonitor(cfg);
+        configureProfiler(cfg);
+        registerGauges();
+        startMetricsExport(server, cfg);
+        batcher = newBatcher(cfg);
 
         Scoreboard scoreboard = server.getScoreboard();
-        ScoreboardObjective obj = scoreboard.getObjectives().stream()
-                .filter(o -> o.getName().equals(OBJECTIVE_NAME))
-                .findFirst().orElse(null);
-        if (obj == null) {
-            scoreboard.addObjective(
-                    OBJECTIVE_NAME,
-                    ScoreboardCriterion.DEATH_COUNT,
-                    Text.literal("Deaths"),
-                    ScoreboardCriterion.RenderType.INTEGER,
-                    false,
-                    null);
-        }
-
-        // initialize lastServerDay
+        ScoreboardObjective obj = ObjectiveRegistry.getOrCreate(scoreboard);
+        rebuildLeaderboard(scoreboard, obj);
+
+        ServerDayClock clock = new ServerDayClock(() -> server.getOverworld().getTimeOfDay());
+        clock.addListener((previousDay, day) -> closeRollupDay(previousDay));
+        clock.addListener((previousDay, day) -> scheduler.execute(() -> saveCauseStats(server)));
+        clock.addListener((previousDay, day) -> {
+            // build full or delta payload and post to /api/sync
+            if (config.get().hasApi()) {
+                postSync(server);
+            }
+        });
+        dayClock = clock;
+        startHttpServer(cfg);
+
+        try {
+            configWatcher = new ConfigWatcher(cfgPath, () -> reloadConfig(server, cfgPath));
+        } catch (IOException e) {
+            DioclesLog.warn("Cannot watch config, changes need a restart error={}", e.getMessage());
+        }
+        DioclesLog.info("Initialized post_base={}", cfg.hasApi() ? cfg.postUrl() : "none");
+    }
+
+    /**
+     * Re-read diocles.json after it changed and publish the new snapshot.
+     * Components whose settings changed are restarted; posts already queued
+     * or spooled are kept and go to the new endpoint. A file that cannot be
+     * read or parsed leaves the current configuration in place.
+     */
+    private static synchronized void reloadConfig(MinecraftServer server, java.nio.file.Path cfgPath) {
+        if (configWatcher == null)
+            return; // stopped while the change settled
+        DioclesConfig next;
         try {
-            lastServerDay = server.getOverworld().getTimeOfDay() / 24000L;
+            next = DioclesConfig.load(cfgPath, System.getenv());
+        } catch (IOException e) {
+            DioclesLog.warn("Config reload failed, keeping current config error={}", e.getMessage());
+            return;
+        }
+        DioclesConfig prev = config.getAndSet(next);
+        if (prev.equals(next))
+            return;
+
+        boolean endpointChanged = !Objects.equals(prev.postUrl(), next.postUrl())
+                || !Objects.equals(prev.authKey(), next.authKey());
+        if (prev.hasApi() != next.hasApi())
+            openSpool(server, next);
+        if (prev.hasApi() != next.hasApi() || prev.dispatchCapacity() != next.dispatchCapacity()
+                || prev.overloadPolicy() != next.overloadPolicy())
+            startDispatcher(next);
+        if (endpointChanged || prev.healthIntervalMs() != next.healthIntervalMs())
+            startHealthMonitor(next);
+        if (prev.batchWindowMs() != next.batchWindowMs() || prev.batchMaxSize() != next.batchMaxSize()) {
+            DeathBatcher old = batcher;
+            batcher = newBatcher(next);
+            Map<String, Object> pending = old != null ? old.drain() : null;
+            if (pending != null)
+                dispatch("/api/deathboard", pending);
+        }
+        if (prev.deltaSync() != next.deltaSync() || prev.fullSyncEvery() != next.fullSyncEvery())
+            syncTracker = new SyncTracker(next.deltaSync() ? next.fullSyncEvery() : 1); // next sync is full
+        if (!Objects.equals(prev.metricsTextfile(), next.metricsTextfile())
+                || prev.metricsIntervalMs() != next.metricsIntervalMs())
+            startMetricsExport(server, next);
+        if (prev.hookBudgetUs() != next.hookBudgetUs() || prev.slowHookMs() != next.slowHookMs())
+            configureProfiler(next);
+        if (prev.httpPort() != next.httpPort() || !prev.httpBind().equals(next.httpBind()))
+            startHttpServer(next);
+        DioclesLog.info("Config reloaded post_base={}", next.hasApi() ? next.postUrl() : "none");
+    }
+
+    /**
+     * Called when the server is stopping: flush pending batches, drain the
+     * dispatch queue (bounded by a deadline), flush and compact the death
+     * journal and stop spool delivery (undelivered posts are kept for the next
+     * start).
+     */
+    public static synchronized void shutdown(MinecraftServer server) {
+        ServerDayClock clock = dayClock;
+        dayClock = null;
+        if (configWatcher != null) {
+            configWatcher.close();
+            configWatcher = null;
+        }
+        profiler.stopWatchdog();
+        AnnouncementQuotes.stopWatching();
+        BoardHttpServer http = httpServer;
+        httpServer = null;
+        if (http != null)
+            http.stop();
+        ApiHealthMonitor monitor = healthMonitor;
+        if (monitor != null)
+            monitor.stop();
+        if (metricsTask != null) {
+            metricsTask.cancel(false);
+            metricsTask = null;
+            writeMetrics(server.getRunDirectory().resolve(config.get().metricsTextfile()));
+        }
+        DeathBatcher b = batcher;
+        batcher = null;
+        if (b != null) {
+            Map<String, Object> pending = b.drain();
+            if (pending != null)
+                dispatch("/api/deathboard", pending);
+        }
+        PostDispatcher d = dispatcher;
+        dispatcher = null;
+        if (d != null) {
+            int abandoned = d.shutdown(DISPATCH_DRAIN_TIMEOUT_MS);
+            if (abandoned > 0)
+                DioclesLog.warn("Dispatch queue did not drain in time, abandoned={} post(s)", abandoned);
+        }
+        journal.close();
+        DailyRollupStore r = rollups;
+        Future<?> pendingWrite = rollupWrite;
+        if (pendingWrite != null) {
+            // a day closed just before the stop: its counts are already out of the open day
+            try {
+                pendingWrite.get(ROLLUP_WRITE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException | TimeoutException e) {
+                DioclesLog.warn("Closed rollup day not written before stop error={}", e.getMessage());
+            }
+        }
+        if (r != null && clock != null) {
+            try {
+                r.saveOpen(clock.currentDay());
+            } catch (IOException e) {
+                DioclesLog.warn("Failed saving open rollup day error={}", e.getMessage());
+            }
+        }
+        saveCauseStats(server);
+        if (spool != null) {
+            spool.close();
+            spool = null;
+        }
+        DioclesLog.flush(1000);
+    }
+
+    /**
+     * @return The current configuration snapshot
+     */
+    public static DioclesConfig getConfig() {
+        return config.get();
+    }
+
+    /**
+     * @return Per-day death rollups, or null if they could not be opened
+     */
+    public static DailyRollupStore getRollups() {
+        return rollups;
+    }
+
+    /**
+     * @return Death counts per cause
+     */
+    public static DeathCauseStats getCauseStats() {
+        return causeStats;
+    }
+
+    /**
+     * @return The current server day, or 0 before the server has started
+     */
+    public static long currentDay() {
+        ServerDayClock clock = dayClock;
+        return clock != null ? clock.currentDay() : 0L;
+    }
+
+    /**
+     * @return The running post dispatcher, or null when no API is configured
+     */
+    public static PostDispatcher getDispatcher() {
+        return dispatcher;
+    }
+
+    /**
+     * @return The profiler timing Diocles callbacks on the server thread
+     */
+    public static HookProfiler getProfiler() {
+        return profiler;
+    }
+
+    /**
+     * @return The outbound spool, or null when no API is configured
+     */
+    public static OutboundSpool getSpool() {
+        return spool;
+    }
+
+    /**
+     * @return The API health monitor, or null when no API is configured
+     */
+    public static ApiHealthMonitor getHealthMonitor() {
+        return healthMonitor;
+    }
+
+    /**
+     * @return Ranked death counts for every score holder
+     */
+    public static LeaderboardIndex getLeaderboard() {
+        return leaderboard;
+    }
+
+    /**
+     * Called when a death count changes on the server scoreboard.
+     */
+    public static void onDeathScoreChanged(String name, int score) {
+        leaderboard.update(name, score);
+    }
+
+    /**
+     * Called when a score holder's death count is reset.
+     */
+    public static void onDeathScoreRemoved(String name) {
+        leaderboard.remove(name);
+    }
+
+    /**
+     * Called when the deaths objective is removed from the server scoreboard.
+     */
+    public static void onDeathsObjectiveRemoved() {
+        leaderboard.clear();
+    }
+
+    private static void rebuildLeaderboard(Scoreboard scoreboard, ScoreboardObjective obj) {
+        LeaderboardIndex index = new LeaderboardIndex();
+        for (ScoreboardEntry entry : scoreboard.getScoreboardEntries(obj))
+            index.update(entry.owner(), entry.value());
+        leaderboard = index;
+    }
+
+    private static void startDispatcher(DioclesConfig cfg) {
+        PostDispatcher old = dispatcher;
+        dispatcher = cfg.hasApi()
+                ? new PostDispatcher(cfg.dispatchCapacity(), DISPATCH_THREADS, cfg.overloadPolicy(),
+                        DeathboardManager::post)
+                : null;
+        // posts already queued on the old dispatcher still go out
+        if (old != null) {
+            int abandoned = old.shutdown(DISPATCH_DRAIN_TIMEOUT_MS);
+            if (abandoned > 0)
+                DioclesLog.warn("Dispatch queue did not drain in time, abandoned={} post(s)", abandoned);
+        }
+    }
+
+    private static DeathBatcher newBatcher(DioclesConfig cfg) {
+        return cfg.batchWindowMs() > 0
+                ? new DeathBatcher(cfg.batchWindowMs(), cfg.batchMaxSize(),
+                        batch -> dispatch("/api/deathboard", batch), scheduler)
+                : null;
+    }
+
+    private static void configureProfiler(DioclesConfig cfg) {
+        profiler.stopWatchdog();
+        profiler.configure(cfg.hookBudgetUs() * 1000L, cfg.slowHookMs() * 1_000_000L);
+        // a stuck call is caught within two thresholds, while a short poll would wake the
+        // watchdog hundreds of times a second for nothing
+        profiler.startWatchdog(Math.max(1, cfg.slowHookMs()),
+                sample -> DioclesLog.warn("{}", HookProfiler.format(sample)));
+    }
+
+    private static void startHttpServer(DioclesConfig cfg) {
+        BoardHttpServer old = httpServer;
+        httpServer = null;
+        if (old != null)
+            old.stop();
+        if (cfg.httpPort() == 0)
+            return;
+        try {
+            BoardHttpServer http = new BoardHttpServer(
+                    new java.net.InetSocketAddress(cfg.httpBind(), cfg.httpPort()), () -> leaderboard, () -> journal,
+                    () -> rollups);
+            http.start();
+            httpServer = http;
+            DioclesLog.info("HTTP server listening bind={} port={}", cfg.httpBind(), http.port());
         } catch (Exception e) {
-            lastServerDay = Long.MIN_VALUE;
+            DioclesLog.error("Failed starting HTTP server bind={} port={} error={}", cfg.httpBind(), cfg.httpPort(),
+                    e.getMessage());
         }
+    }
 
-        System.out.println("[Diocles] initialized. POST base=" + (postUrl != null ? postUrl : "none"));
+    private static void startHealthMonitor(DioclesConfig cfg) {
+        ApiHealthMonitor old = healthMonitor;
+        if (old != null)
+            old.stop();
+        if (!cfg.hasApi()) {
+            healthMonitor = null;
+            return;
+        }
+        Map<String, String> headers = new LinkedHashMap<>();
+        if (cfg.authKey() != null && !cfg.authKey().isBlank())
+            headers.put("authkey", cfg.authKey());
+        try {
+            ApiHealthMonitor monitor = new ApiHealthMonitor(cfg.postUrl(),
+                    url -> HttpTransport.get(url, headers, HEALTH_TIMEOUT), scheduler, cfg.healthIntervalMs());
+            monitor.start();
+            healthMonitor = monitor;
+        } catch (IllegalArgumentException e) {
+            DioclesLog.warn("Invalid API URL, health checks disabled error={}", e.getMessage());
+            healthMonitor = null;
+        }
     }
 
-    private static void loadConfig(MinecraftServer server) {
-        postUrl = System.getenv("DIOCLES_XHOST");
-        authKey = System.getenv("DIOCLES_AUTHKEY");
+    private static void registerGauges() {
+        Metrics.gauge("diocles_dispatch_queue_depth", "Posts waiting for a dispatch worker", () -> {
+            PostDispatcher d = dispatcher;
+            return d != null ? d.queueDepth() : 0;
+        });
+        Metrics.counterFunction("diocles_dispatch_dropped_total", "Posts dropped by the dispatch queue", () -> {
+            PostDispatcher d = dispatcher;
+            return d != null ? d.droppedCount() : 0;
+        });
+        Metrics.counterFunction("diocles_dispatch_coalesced_total", "Posts merged into a queued post", () -> {
+            PostDispatcher d = dispatcher;
+            return d != null ? d.coalescedCount() : 0;
+        });
+        Metrics.counterFunction("diocles_dispatch_spilled_total", "Posts handed to the spill thread", () -> {
+            PostDispatcher d = dispatcher;
+            return d != null ? d.spilledCount() : 0;
+        });
+        Metrics.gauge("diocles_spool_pending", "Posts in the spool awaiting delivery", () -> {
+            OutboundSpool sp = spool;
+            return sp != null ? sp.pendingCount() : 0;
+        });
+        Metrics.gauge("diocles_spool_pending_bytes", "Bytes in the spool awaiting delivery", () -> {
+            OutboundSpool sp = spool;
+            return sp != null ? sp.pendingBytes() : 0;
+        });
+        Metrics.gauge("diocles_spool_parked", "Posts moved to spool.dead after the API rejected them", () -> {
+            OutboundSpool sp = spool;
+            return sp != null ? sp.parkedCount() : 0;
+        });
+        Metrics.gauge("diocles_api_up", "1 if the last health check found the API up", () -> {
+            ApiHealthMonitor m = healthMonitor;
+            return m != null && m.snapshot().up() ? 1 : 0;
+        });
+        Metrics.gauge("diocles_http_stream_subscribers", "Clients connected to the /events stream", () -> {
+            BoardHttpServer h = httpServer;
+            return h != null ? h.subscriberCount() : 0;
+        });
+        Metrics.gauge("diocles_death_causes", "Distinct death causes counted", () -> causeStats.causeCount());
+        Metrics.gauge("diocles_journal_players", "Players with a recorded death", () -> journal.size());
+        for (HookProfiler.Hook hook : profiler.hooks()) {
+            Metrics.counterFunction("diocles_" + hook.name() + "_hook_nanoseconds_total",
+                    "Server-thread time spent in the Diocles " + hook.name() + " hook", hook::totalNanos);
+            Metrics.counterFunction("diocles_" + hook.name() + "_hook_slow_total",
+                    "Calls of the Diocles " + hook.name() + " hook over slow_hook_ms", hook::slowCalls);
+        }
+        Metrics.counterFunction("diocles_duplicate_deaths_total", "Repeat death reports collapsed by event ID",
+                () -> deathDedup.duplicateCount());
+        Metrics.counterFunction("diocles_log_suppressed_total", "Log lines suppressed by rate limiting",
+                DioclesLog::suppressedCount);
+        Metrics.counterFunction("diocles_log_dropped_total", "Log lines dropped because the log queue was full",
+                DioclesLog::droppedCount);
+        Metrics.counterFunction("diocles_ticks_over_budget_total", "Ticks where Diocles hooks exceeded hook_budget_us",
+                profiler::overBudgetTicks);
+    }
 
-        if (postUrl != null)
+    private static void startMetricsExport(MinecraftServer server, DioclesConfig cfg) {
+        if (metricsTask != null) {
+            metricsTask.cancel(false);
+            metricsTask = null;
+        }
+        if (cfg.metricsTextfile() == null)
             return;
+        java.nio.file.Path file = server.getRunDirectory().resolve(cfg.metricsTextfile());
+        metricsTask = scheduler.scheduleWithFixedDelay(() -> writeMetrics(file), 0, cfg.metricsIntervalMs(),
+                TimeUnit.MILLISECONDS);
+    }
 
+    private static void writeMetrics(java.nio.file.Path file) {
         try {
-            java.nio.file.Path cfgPath = server.getSavePath(net.minecraft.util.WorldSavePath.ROOT)
-                    .resolve("config").resolve("diocles.json");
-            if (Files.exists(cfgPath)) {
-                try (Reader r = Files.newBufferedReader(cfgPath, StandardCharsets.UTF_8)) {
-                    @SuppressWarnings("unchecked")
-                    Map<String, Object> cfg = GSON.fromJson(r, Map.class);
-                    if (postUrl == null && cfg.containsKey("deathboard_uri"))
-                        postUrl = cfg.get("deathboard_uri").toString();
-                    if (authKey == null && cfg.containsKey("authkey"))
-                        authKey = cfg.get("authkey").toString();
-                }
+            Metrics.writeTextfile(file);
+        } catch (IOException e) {
+            DioclesLog.warn("Failed writing metrics file={} error={}", file, e.getMessage());
+        }
+    }
+
+    private static void dispatch(String endpoint, Map<String, Object> payload) {
+        dispatch(endpoint, payload, Map.of());
+    }
+
+    private static void dispatch(String endpoint, Map<String, Object> payload, Map<String, String> headers) {
+        dispatch(dispatcher, endpoint, payload, headers);
+    }
+
+    private static void dispatch(PostDispatcher d, String endpoint, Map<String, Object> payload,
+            Map<String, String> headers) {
+        if (d == null || !d.submit(endpoint, payload, headers))
+            DioclesLog.warn("Dispatcher not running, dropping post endpoint={}", endpoint);
+    }
+
+    private static void openSpool(MinecraftServer server, DioclesConfig cfg) {
+        if (spool != null) {
+            spool.close();
+            spool = null;
+        }
+        if (!cfg.hasApi())
+            return;
+        try {
+            java.nio.file.Path dir = server.getSavePath(net.minecraft.util.WorldSavePath.ROOT)
+                    .resolve("diocles").resolve("spool");
+            spool = OutboundSpool.open(dir, DeathboardManager::sendPost, scheduler, SPOOL_INITIAL_BACKOFF_MS,
+                    SPOOL_MAX_BACKOFF_MS);
+            spool.setDeliveryListener(DeathboardManager::onDelivered);
+            spool.start();
+        } catch (Exception e) {
+            DioclesLog.error("Failed opening outbound spool, posts will not be retried error={}", e.getMessage());
+            spool = null;
+        }
+    }
+
+    private static void openRollups(MinecraftServer server) {
+        try {
+            rollups = DailyRollupStore.open(server.getSavePath(net.minecraft.util.WorldSavePath.ROOT)
+                    .resolve("diocles").resolve("rollups"));
+        } catch (IOException e) {
+            DioclesLog.error("Failed opening rollups, daily history disabled error={}", e.getMessage());
+            rollups = null;
+        }
+    }
+
+    /**
+     * Close a server day into its rollup file; the counts are taken here, on
+     * the server thread, and the file is written on the scheduler.
+     */
+    private static void closeRollupDay(long day) {
+        DailyRollupStore r = rollups;
+        if (r == null)
+            return;
+        DailyRollupStore.Day closed = r.closeDay(day);
+        rollupWrite = scheduler.submit(() -> {
+            try {
+                r.write(closed);
+            } catch (IOException e) {
+                DioclesLog.error("Failed writing rollup day={} error={}", day, e.getMessage());
             }
+        });
+    }
+
+    private static java.nio.file.Path causeStatsPath(MinecraftServer server) {
+        return server.getSavePath(net.minecraft.util.WorldSavePath.ROOT).resolve("diocles").resolve("causes.json");
+    }
+
+    private static void loadCauseStats(MinecraftServer server) {
+        try {
+            causeStats = DeathCauseStats.load(causeStatsPath(server));
+        } catch (Exception e) {
+            DioclesLog.error("Failed reading death causes, counting from zero error={}", e.getMessage());
+            causeStats = new DeathCauseStats();
+        }
+    }
+
+    private static void saveCauseStats(MinecraftServer server) {
+        try {
+            causeStats.save(causeStatsPath(server));
+        } catch (IOException e) {
+            DioclesLog.warn("Failed saving death causes error={}", e.getMessage());
+        }
+    }
+
+    /**
+     * @return Damage type, attacker entity type and weapon item of a death
+     */
+    static DeathCauseStats.Cause describeCause(DamageSource source) {
+        if (source == null)
+            return new DeathCauseStats.Cause("unknown", DeathCauseStats.NONE, DeathCauseStats.NONE);
+        String type = source.getTypeRegistryEntry().getKey().map(k -> k.getValue().toString()).orElse("unknown");
+        Entity attacker = source.getAttacker();
+        String attackerType = attacker != null ? EntityType.getId(attacker.getType()).toString()
+                : DeathCauseStats.NONE;
+        ItemStack weapon = source.getWeaponStack();
+        if (weapon == null && attacker instanceof LivingEntity living)
+            weapon = living.getMainHandStack();
+        String weaponId = weapon != null && !weapon.isEmpty() ? Registries.ITEM.getId(weapon.getItem()).toString()
+                : DeathCauseStats.NONE;
+        return new DeathCauseStats.Cause(type, attackerType, weaponId);
+    }
+
+    private static void openJournal(MinecraftServer server) {
+        journal.close();
+        try {
+            java.nio.file.Path dir = server.getSavePath(net.minecraft.util.WorldSavePath.ROOT)
+                    .resolve("diocles").resolve("journal");
+            long start = System.nanoTime();
+            journal = DeathJournal.open(dir);
+            DioclesLog.info("Death journal loaded players={} ms={}", journal.size(),
+                    (System.nanoTime() - start) / 1_000_000L);
         } catch (Exception e) {
-            System.err.println("[Diocles] Failed reading config: " + e.getMessage());
+            DioclesLog.error("Failed opening death journal, keeping history in memory only error={}",
+                    e.getMessage());
+            journal = DeathJournal.inMemory();
         }
     }
 
     /**
-     * Called on player death callback.
+     * Called on player death callback. Safe to call from more than one hook:
+     * repeat reports of the same death are ignored.
+     *
+     * @param source What killed the player, or null if unknown
      */
-    public static void handleDeath(MinecraftServer server, ServerPlayerEntity player) {
+    public static void handleDeath(MinecraftServer server, ServerPlayerEntity player, DamageSource source) {
         if (server == null || player == null)
             return;
 
-        System.out.println("[Diocles] handleDeath called for player: " + player.getName().getString());
-
         Scoreboard scoreboard = server.getScoreboard();
-        ScoreboardObjective obj = scoreboard.getObjectives().stream()
-                .filter(o -> o.getName().equals(OBJECTIVE_NAME))
-                .findFirst().orElse(null);
-        if (obj == null) {
-            scoreboard.addObjective(
-                    OBJECTIVE_NAME,
-                    ScoreboardCriterion.DEATH_COUNT,
-                    Text.literal("Deaths"),
-                    ScoreboardCriterion.RenderType.INTEGER,
-                    false,
-                    null);
-            obj = scoreboard.getObjectives().stream()
-                    .filter(o -> o.getName().equals(OBJECTIVE_NAME))
-                    .findFirst().orElse(null);
-        }
+        ScoreboardObjective obj = ObjectiveRegistry.getOrCreate(scoreboard);
 
         // read authoritative death count from scoreboard (may have been incremented by
         // MC)
@@ -125,127 +658,372 @@ public class DeathboardManager {
             deaths = scoreboard.getOrCreateScore(player, obj).getScore();
         } catch (Exception ignored) {
         }
-
-        long day = server.getOverworld().getTimeOfDay() / 24000L;
-        String time = Instant.now().toString();
         BlockPos pos = player.getBlockPos();
+        recordDeath(pipeline(), new Death(player.getUuid(), player.getName().getString(), server.getTicks(), deaths,
+                server.getOverworld().getTimeOfDay() / 24000L, pos.getX(), pos.getY(), pos.getZ(),
+                worldName(player.getWorld().getRegistryKey()), describeCause(source)));
+    }
 
-        Map<String, Object> info = new LinkedHashMap<>();
-        info.put("last_death_time", time);
-        info.put("last_death_day", day);
-        info.put("death_count", deaths);
-        info.put("location", Map.of("x", pos.getX(), "y", pos.getY(), "z", pos.getZ()));
-        info.put("world", player.getWorld().getRegistryKey().getValue().toString());
+    /**
+     * The components a death or a sync passes through. The mod hands over its
+     * current ones; the load harness and benchmarks build their own.
+     *
+     * @param events     SSE stream, or null when the board server is off
+     * @param batcher    Death batcher, or null to post each death
+     * @param dispatcher Outbound posts, or null when no API is configured
+     */
+    record Pipeline(DeathDedup dedup, LeaderboardIndex leaderboard, DeathJournal journal, SyncTracker syncTracker,
+            DailyRollupStore rollups, DeathCauseStats causeStats, DeathEventStream events, DeathBatcher batcher,
+            PostDispatcher dispatcher) {
+    }
 
-        // update in-memory map
-        lastDeathDetails.put(player.getName().getString(), info);
+    /**
+     * A death with everything read from the server already.
+     *
+     * @param tick   Server tick of the death; reports of one death share it
+     * @param deaths Scoreboard death count
+     * @param day    Server day
+     */
+    record Death(UUID uuid, String name, long tick, int deaths, long day, int x, int y, int z, String world,
+            DeathCauseStats.Cause cause) {
+    }
 
-        // build single-player payload
-        Map<String, Object> payload = new LinkedHashMap<>();
-        payload.put(player.getName().getString(), info);
+    /**
+     * An online player and their scoreboard count.
+     */
+    record OnlinePlayer(UUID uuid, String name, int score) {
+    }
 
-        // post asynchronously to /api/deathboard
-        if (postUrl != null && !postUrl.isBlank()) {
-            String endpoint = "/api/deathboard";
-            executor.submit(() -> sendPost(payload, endpoint));
+    /**
+     * A serialized post not yet handed to the spool.
+     *
+     * @param headers Request headers, including Content-Encoding when gzipped
+     */
+    record EncodedPost(Map<String, String> headers, byte[] body) {
+    }
+
+    private static Pipeline pipeline() {
+        BoardHttpServer http = httpServer;
+        return new Pipeline(deathDedup, leaderboard, journal, syncTracker, rollups, causeStats,
+                http != null ? http.events() : null, batcher, config.get().hasApi() ? dispatcher : null);
+    }
+
+    /**
+     * Server-independent part of {@link #handleDeath}, package-private so the
+     * load harness and benchmarks drive the same code: drop a repeated report,
+     * then update the leaderboard, journal, sync stamps, rollups and cause
+     * stats, publish the SSE event and post or batch the death.
+     *
+     * @return false if the death was a duplicate report
+     */
+    static boolean recordDeath(Pipeline p, Death d) {
+        // every report of one death happens in the same tick, so they share an ID
+        long eventId = p.dedup().eventId(d.uuid(), d.tick());
+        if (!p.dedup().firstSeen(eventId)) {
+            DioclesLog.debug("Ignoring duplicate death report player={} event_id={}", d.name(),
+                    DeathDedup.format(eventId));
+            return false;
         }
+        DEATHS.increment();
+
+        // normally already applied by ScoreboardMixin; repeating it is a no-op
+        p.leaderboard().update(d.name(), d.deaths());
+
+        // record durably before posting; stored column-wise, keyed by UUID
+        DeathJournal j = p.journal();
+        int index = j.append(d.uuid(), d.name(), System.currentTimeMillis(), d.day(), d.deaths(), d.x(), d.y(),
+                d.z(), d.world());
+        p.syncTracker().markChanged(d.uuid());
+        if (p.rollups() != null)
+            p.rollups().recordDeath(d.uuid(), d.deaths());
+        p.causeStats().record(d.uuid(), d.cause(), d.day());
+        DioclesLog.info("Death player={} deaths={} day={} pos={},{},{} cause={} event_id={}", d.name(), d.deaths(),
+                d.day(), d.x(), d.y(), d.z(), d.cause().label(), DeathDedup.format(eventId));
+
+        if (p.dispatcher() == null && p.events() == null)
+            return true;
+
+        Map<String, Object> info = j.stats().get(index).toPayload();
+        info.put("cause", d.cause().toPayload());
+        info.put("event_id", DeathDedup.format(eventId));
+        if (p.events() != null) {
+            // serialized once here, then shared by every /events subscriber
+            Map<String, Object> event = new LinkedHashMap<>();
+            event.put("name", d.name());
+            event.putAll(info);
+            p.events().publish("death", event);
+        }
+        if (p.dispatcher() == null)
+            return true;
+
+        // merge into the current batch, or post a single-player payload right away
+        if (p.batcher() != null) {
+            p.batcher().add(d.name(), info);
+        } else {
+            Map<String, Object> payload = new LinkedHashMap<>();
+            payload.put(d.name(), info);
+            dispatch(p.dispatcher(), "/api/deathboard", payload, Map.of());
+        }
+        return true;
+    }
+
+    private static String worldName(RegistryKey<World> key) {
+        return WORLD_NAMES.computeIfAbsent(key, k -> k.getValue().toString());
     }
 
     /**
-     * Called each server tick to detect day change and sync full board once per day
-     * change.
+     * Called each server tick. Only counts down; the world time is read once
+     * per server day (or after a time jump), and a day change syncs the board.
      */
-    public static void checkDayAndSync(MinecraftServer server) {
-        if (server == null)
-            return;
-        long currentDay;
-        try {
-            currentDay = server.getOverworld().getTimeOfDay() / 24000L;
-        } catch (Exception e) {
+    public static void tick() {
+        ServerDayClock clock = dayClock;
+        if (clock != null)
+            clock.tick();
+    }
+
+    /**
+     * Called when the overworld time jumps (/time set, sleeping through the
+     * night), so the day clock reads the time again.
+     */
+    public static void onTimeJump() {
+        ServerDayClock clock = dayClock;
+        if (clock != null)
+            clock.rearm();
+    }
+
+    /**
+     * Register a listener for server-day changes. Must be called after init.
+     */
+    public static void addDayListener(ServerDayClock.Listener listener) {
+        ServerDayClock clock = dayClock;
+        if (clock != null)
+            clock.addListener(listener);
+    }
+
+    /**
+     * Post a sync to /api/sync. A full sync carries every online player; a
+     * delta carries only players changed since the last acknowledged sync. The
+     * mode and sequence are sent as headers; the API acknowledges a sync simply
+     * by accepting it.
+     */
+    private static void postSync(MinecraftServer server) {
+        Scoreboard scoreboard = server.getScoreboard();
+        ScoreboardObjective obj = ObjectiveRegistry.get(scoreboard);
+        if (obj == null)
             return;
+
+        List<ServerPlayerEntity> players = server.getPlayerManager().getPlayerList();
+        List<OnlinePlayer> online = new ArrayList<>(players.size());
+        for (ServerPlayerEntity player : players)
+            online.add(new OnlinePlayer(player.getUuid(), player.getName().getString(),
+                    readScore(scoreboard, obj, player)));
+        postSync(pipeline(), online, () -> server.getOverworld().getTimeOfDay() / 24000L);
+    }
+
+    /**
+     * Server-independent part of {@link #postSync(MinecraftServer)},
+     * package-private so the load harness drives the same code.
+     *
+     * @param online     Online players with their current scoreboard counts
+     * @param currentDay Server day, read only for players with no journaled death
+     */
+    static void postSync(Pipeline p, List<OnlinePlayer> online, LongSupplier currentDay) {
+        SyncTracker tracker = p.syncTracker();
+
+        // pick up scoreboard edits before planning, so they fall inside this sync's sequence
+        Map<UUID, OnlinePlayer> byUuid = new HashMap<>();
+        for (OnlinePlayer player : online) {
+            tracker.observeCount(player.uuid(), player.score());
+            byUuid.put(player.uuid(), player);
         }
-        if (lastServerDay == Long.MIN_VALUE) {
-            lastServerDay = currentDay;
-            return;
+        SyncTracker.Sync sync = tracker.begin();
+
+        Map<String, Object> payload = new LinkedHashMap<>();
+        if (sync.full()) {
+            for (OnlinePlayer player : online) {
+                payload.put(player.name(), playerInfo(player.score(), p.journal().get(player.uuid()), currentDay));
+                tracker.sent(sync, player.uuid(), player.score());
+            }
+        } else {
+            for (UUID uuid : tracker.changedPlayers()) {
+                OnlinePlayer player = byUuid.get(uuid);
+                if (player != null) {
+                    payload.put(player.name(), playerInfo(player.score(), p.journal().get(uuid), currentDay));
+                    tracker.sent(sync, uuid, player.score());
+                } else {
+                    DeathRecord record = p.journal().get(uuid);
+                    if (record != null) {
+                        payload.put(record.name(), record.toPayload());
+                        tracker.sent(sync, uuid, record.deathCount());
+                    } else {
+                        // went offline before dying: no name or count to send
+                        tracker.discard(uuid);
+                    }
+                }
+            }
         }
-        if (currentDay != lastServerDay) {
-            lastServerDay = currentDay;
-            // build full payload and post to /api/sync
-            Map<String, Object> full = buildFullPayload(server);
-            if (postUrl != null && !postUrl.isBlank()) {
-                executor.submit(() -> sendPost(full, "/api/sync"));
+
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put(SYNC_MODE_HEADER, sync.full() ? "full" : "delta");
+        headers.put(SYNC_SEQ_HEADER, Long.toString(sync.seq()));
+        dispatch(p.dispatcher(), "/api/sync", payload, headers);
+    }
+
+    /**
+     * Called when the API has accepted a post.
+     */
+    private static void onDelivered(String endpoint, Map<String, String> headers) {
+        acknowledgeSync(syncTracker, endpoint, headers);
+    }
+
+    /**
+     * Acknowledge the sync an accepted post carried, if it was one.
+     */
+    static void acknowledgeSync(SyncTracker tracker, String endpoint, Map<String, String> headers) {
+        String seq = headers.get(SYNC_SEQ_HEADER);
+        if ("/api/sync".equals(endpoint) && seq != null) {
+            try {
+                tracker.acknowledge(Long.parseLong(seq));
+            } catch (NumberFormatException ignored) {
             }
         }
     }
 
     /**
-     * Build full scoreboard payload: merge scoreboard counts with lastDeathDetails
-     * where available.
+     * Build full scoreboard payload: merge scoreboard counts with the death
+     * journal where available.
      */
     public static Map<String, Object> buildFullPayload(MinecraftServer server) {
         Map<String, Object> out = new LinkedHashMap<>();
         Scoreboard scoreboard = server.getScoreboard();
-        ScoreboardObjective obj = scoreboard.getObjectives().stream()
-                .filter(o -> o.getName().equals(OBJECTIVE_NAME))
-                .findFirst().orElse(null);
+        ScoreboardObjective obj = ObjectiveRegistry.get(scoreboard);
         if (obj == null)
             return out;
 
         for (ServerPlayerEntity player : server.getPlayerManager().getPlayerList()) {
-            String name = player.getName().getString();
-            Map<String, Object> info = new LinkedHashMap<>();
-            int score = 0;
+            out.put(player.getName().getString(), playerInfo(server, player, readScore(scoreboard, obj, player)));
+        }
+        return out;
+    }
+
+    private static int readScore(Scoreboard scoreboard, ScoreboardObjective obj, ServerPlayerEntity player) {
+        try {
+            return scoreboard.getOrCreateScore(player, obj).getScore();
+        } catch (Exception ignored) {
+            return 0;
+        }
+    }
+
+    /**
+     * Per-player payload object: scoreboard count plus journaled details when
+     * available.
+     */
+    private static Map<String, Object> playerInfo(MinecraftServer server, ServerPlayerEntity player, int score) {
+        return playerInfo(score, journal.get(player.getUuid()), () -> server.getOverworld().getTimeOfDay() / 24000L);
+    }
+
+    /**
+     * Server-independent part of {@link #playerInfo(MinecraftServer, ServerPlayerEntity, int)},
+     * package-private so the benchmarks can drive it with fake players.
+     *
+     * @param score      Scoreboard death count
+     * @param details    Journaled details, or null
+     * @param currentDay Server day, read only when there are no details
+     */
+    static Map<String, Object> playerInfo(int score, DeathRecord details, LongSupplier currentDay) {
+        Map<String, Object> info = new LinkedHashMap<>();
+        info.put("death_count", score);
+        // prefer journaled details if available
+        if (details != null) {
+            Map<String, Object> recorded = details.toPayload();
+            info.put("last_death_time", recorded.get("last_death_time"));
+            info.put("last_death_day", recorded.get("last_death_day"));
+            info.put("location", recorded.get("location"));
+            info.put("world", recorded.get("world"));
+        } else {
+            // fallback: include last_death_day as current server day
             try {
-                score = scoreboard.getOrCreateScore(player, obj).getScore();
+                info.put("last_death_day", currentDay.getAsLong());
             } catch (Exception ignored) {
             }
-            info.put("death_count", score);
-            // prefer lastDeathDetails if available
-            Map<String, Object> details = lastDeathDetails.get(name);
-            if (details != null) {
-                if (details.containsKey("last_death_time"))
-                    info.put("last_death_time", details.get("last_death_time"));
-                if (details.containsKey("last_death_day"))
-                    info.put("last_death_day", details.get("last_death_day"));
-                if (details.containsKey("location"))
-                    info.put("location", details.get("location"));
-                if (details.containsKey("world"))
-                    info.put("world", details.get("world"));
-            } else {
-                // fallback: include last_death_day as current server day
-                try {
-                    info.put("last_death_day", server.getOverworld().getTimeOfDay() / 24000L);
-                } catch (Exception ignored) {
-                }
-            }
-            out.put(name, info);
         }
-        return out;
+        return info;
     }
 
-    private static void sendPost(Map<String, Object> payload, String endpoint) {
-        String json = GSON.toJson(payload);
-        HttpURLConnection conn = null;
-        try {
-            URI uri = URI.create(postUrl + endpoint);
-            URL url = uri.toURL();
-            conn = (HttpURLConnection) url.openConnection();
-            conn.setConnectTimeout(5000);
-            conn.setReadTimeout(10000);
-            conn.setRequestMethod("POST");
-            conn.setRequestProperty("Content-Type", "application/json");
-            if (authKey != null && !authKey.isBlank())
-                conn.setRequestProperty("authkey", authKey);
-            conn.setDoOutput(true);
-            byte[] out = json.getBytes(StandardCharsets.UTF_8);
-            conn.getOutputStream().write(out);
-            int code = conn.getResponseCode();
-            System.out.println("[Diocles] POST " + postUrl + endpoint + " -> HTTP " + code);
-        } catch (IOException e) {
-            System.err.println("[Diocles] Failed to POST to " + endpoint + ": " + e.getMessage());
-        } finally {
-            if (conn != null)
-                conn.disconnect();
+    /**
+     * Serialize a payload and hand it to the spool, or attempt a single direct
+     * post if the spool is unavailable.
+     */
+    private static void post(String endpoint, Map<String, Object> payload, Map<String, String> headers) {
+        EncodedPost unsent = spoolPost(spool, endpoint, payload, headers, config.get().gzipPayloads());
+        if (unsent == null)
+            return;
+        sendPost(endpoint, unsent.headers(), unsent.body(), UUID.randomUUID().toString()).thenAccept(code -> {
+            if (code >= 200 && code < 300)
+                onDelivered(endpoint, unsent.headers());
+        }).exceptionally(e -> {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            DioclesLog.warn("POST failed endpoint={} error={}", endpoint, cause.getMessage());
+            return null;
+        });
+    }
+
+    /**
+     * Serialize a payload and append it to a spool.
+     *
+     * @param spool Spool to append to, or null
+     * @param gzip  Compress larger bodies
+     * @return The encoded post if the spool is null or could not take it,
+     *         otherwise null
+     */
+    static EncodedPost spoolPost(OutboundSpool spool, String endpoint, Map<String, Object> payload,
+            Map<String, String> headers, boolean gzip) {
+        PayloadEncoder.Body encoded = PayloadEncoder.encode(payload, gzip);
+        byte[] body = encoded.bytes();
+        if ("/api/sync".equals(endpoint))
+            SYNC_BYTES.observe(body.length);
+        Map<String, String> sent = new LinkedHashMap<>(headers);
+        if (encoded.contentEncoding() != null) {
+            // stored with the spooled post so retries keep the encoding
+            sent.put("Content-Encoding", encoded.contentEncoding());
+        }
+        if (spool != null) {
+            try {
+                spool.enqueue(endpoint, sent, body);
+                return null;
+            } catch (IOException e) {
+                DioclesLog.error("Failed to spool post endpoint={} error={}", endpoint, e.getMessage());
+            }
         }
+        return new EncodedPost(sent, body);
+    }
+
+    /**
+     * Start one POST attempt on the shared transport.
+     *
+     * @return Future completing with the HTTP status code
+     */
+    private static CompletableFuture<Integer> sendPost(String endpoint, Map<String, String> extraHeaders, byte[] body,
+            String idempotencyKey) {
+        // one snapshot per attempt, so the URL and key always match
+        DioclesConfig cfg = config.get();
+        if (!cfg.hasApi())
+            return CompletableFuture.failedFuture(new IllegalStateException("No API URL configured"));
+        Map<String, String> headers = new LinkedHashMap<>(extraHeaders);
+        headers.put("Content-Type", "application/json");
+        if (cfg.authKey() != null && !cfg.authKey().isBlank())
+            headers.put("authkey", cfg.authKey());
+        headers.put("Idempotency-Key", idempotencyKey);
+        String url = cfg.postUrl() + endpoint;
+        POSTS_SENT.increment();
+        long start = System.nanoTime();
+        return HttpTransport.post(url, body, headers, POST_TIMEOUT).whenComplete((code, error) -> {
+            POST_LATENCY.observeNanos(System.nanoTime() - start);
+            if (error != null || code < 200 || code >= 300)
+                POSTS_FAILED.increment();
+        }).thenApply(code -> {
+            DioclesLog.debug("POST url={} status={}", url, code);
+            return code;
+        });
     }
 }
@@ -10,10 +10,15 @@ import net.minecraft.text.Text;
 // Import subcommands
 import com.shadowbq.diocles.subcommands.admin.AnnounceCommand;
 import com.shadowbq.diocles.subcommands.admin.DeathboardFullCommand;
+import com.shadowbq.diocles.subcommands.admin.MetricsCommand;
+import com.shadowbq.diocles.subcommands.admin.SpoolRedriveCommand;
 import com.shadowbq.diocles.subcommands.admin.VersionCommand;
 import com.shadowbq.diocles.subcommands.debug.DebugFullstatsCommand;
+import com.shadowbq.diocles.subcommands.debug.DebugHooksCommand;
 import com.shadowbq.diocles.subcommands.debug.DebugPingCommand;
+import com.shadowbq.diocles.subcommands.debug.DebugQueueCommand;
 import com.shadowbq.diocles.subcommands.debug.DebugScoreboardCommand;
+import com.shadowbq.diocles.subcommands.player.CausesCommand;
 import com.shadowbq.diocles.subcommands.player.DeathboardCommand;
 import com.shadowbq.diocles.subcommands.player.ServerdayCommand;
 
@@ -65,6 +70,11 @@ public class DioclesCommand {
                 ServerdayCommand::execute,
                 DioclesPermissions::hasPublicPermission));
 
+        // causes (player) - top causes of death this week, and your own
+        subcommands.put("causes", new SubcommandEntry("causes",
+                CausesCommand::execute,
+                DioclesPermissions::hasPublicPermission));
+
         // debug ping (admin) - Test API connectivity with health endpoint fallback
         subcommands.put("debug-ping", new SubcommandEntry("debug-ping",
                 DebugPingCommand::execute,
@@ -80,6 +90,26 @@ public class DioclesCommand {
                 DebugFullstatsCommand::execute,
                 DioclesPermissions::hasAdminPermission));
 
+        // debug queue (admin) - Show dispatch queue depth, overload counters and spool backlog
+        subcommands.put("debug-queue", new SubcommandEntry("debug-queue",
+                DebugQueueCommand::execute,
+                DioclesPermissions::hasAdminPermission));
+
+        // spool redrive (admin) - Requeue posts parked in spool.dead
+        subcommands.put("spool-redrive", new SubcommandEntry("spool-redrive",
+                SpoolRedriveCommand::execute,
+                DioclesPermissions::hasAdminPermission));
+
+        // debug hooks (admin) - Show per-tick cost and the slowest Diocles hooks
+        subcommands.put("debug-hooks", new SubcommandEntry("debug-hooks",
+                DebugHooksCommand::execute,
+                DioclesPermissions::hasAdminPermission));
+
+        // metrics (admin) - Show internal counters, gauges and latency histograms
+        subcommands.put("metrics", new SubcommandEntry("metrics",
+                MetricsCommand::execute,
+                DioclesPermissions::hasAdminPermission));
+
         // register root and attach subcommands
         LiteralArgumentBuilder<ServerCommandSource> root = literal("diocles")
                 .executes(ctx -> {
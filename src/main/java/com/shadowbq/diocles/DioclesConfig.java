@@ -0,0 +1,148 @@
+package com.shadowbq.diocles;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * One immutable snapshot of the Diocles configuration.
+ *
+ * Built from the environment ({@code DIOCLES_XHOST}, {@code DIOCLES_AUTHKEY})
+ * and {@code config/diocles.json}; the environment wins for the API URL and
+ * key, the file supplies everything else. Components read the current
+ * snapshot once per operation, so a reload never leaves one of them with half
+ * an old and half a new configuration.
+ *
+ * @param postUrl              API base URL, or null for local mode
+ * @param authKey              Value of the authkey header, or null
+ * @param batchWindowMs        Merge deaths within this window (0 = off)
+ * @param batchMaxSize         Send a batch once it holds this many players
+ * @param dispatchCapacity     Posts that may wait for a dispatch worker
+ * @param overloadPolicy       What to do when the dispatch queue is full
+ * @param deltaSync            Whether /api/sync posts only changed players
+ * @param fullSyncEvery        In delta mode, send a full sync every this many syncs
+ * @param gzipPayloads         Gzip large post bodies
+ * @param healthIntervalMs     Time between background health probes
+ * @param metricsTextfile      Prometheus textfile path, or null
+ * @param metricsIntervalMs    Time between metrics file writes
+ * @param hookBudgetUs         Server-thread time allowed per tick
+ * @param slowHookMs           Single hook call reported as slow above this
+ * @param httpPort             Port of the embedded HTTP server (0 = off)
+ * @param httpBind             Address the embedded HTTP server listens on
+ */
+public record DioclesConfig(String postUrl, String authKey, long batchWindowMs, int batchMaxSize,
+        int dispatchCapacity, PostDispatcher.OverloadPolicy overloadPolicy, boolean deltaSync, int fullSyncEvery,
+        boolean gzipPayloads, long healthIntervalMs, String metricsTextfile, long metricsIntervalMs,
+        long hookBudgetUs, long slowHookMs, int httpPort, String httpBind) {
+
+    public static final String ENV_URL = "DIOCLES_XHOST";
+    public static final String ENV_AUTHKEY = "DIOCLES_AUTHKEY";
+
+    /** Configuration with no API and every tuning key at its default. */
+    public static final DioclesConfig DEFAULTS = new DioclesConfig(null, null, 0, 100, 1024,
+            PostDispatcher.OverloadPolicy.COALESCE, false, 7, false, 30_000L, null, 15_000L, 500L, 50L, 0, "127.0.0.1");
+
+    private static final Gson GSON = new Gson();
+
+    /**
+     * @return Whether an API URL is configured
+     */
+    public boolean hasApi() {
+        return postUrl != null && !postUrl.isBlank();
+    }
+
+    /**
+     * Read the config file and combine it with the environment.
+     *
+     * @param file Path of diocles.json; a missing file means defaults
+     * @param env  Environment variables
+     * @return New snapshot
+     * @throws IOException if the file exists but cannot be read or parsed
+     */
+    public static DioclesConfig load(Path file, Map<String, String> env) throws IOException {
+        Map<String, Object> cfg = Map.of();
+        if (file != null) {
+            try (Reader r = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                @SuppressWarnings("unchecked")
+                Map<String, Object> parsed = GSON.fromJson(r, Map.class);
+                if (parsed != null)
+                    cfg = parsed;
+            } catch (NoSuchFileException e) {
+                // no file: environment and defaults only
+            } catch (JsonParseException e) {
+                throw new IOException("Invalid JSON in " + file + ": " + e.getMessage(), e);
+            }
+        }
+        return parse(cfg, env);
+    }
+
+    /**
+     * Combine parsed diocles.json keys with the environment. When
+     * DIOCLES_XHOST is set, the endpoint and auth key come from the
+     * environment alone; the file only adds tuning keys.
+     */
+    public static DioclesConfig parse(Map<String, Object> cfg, Map<String, String> env) {
+        DioclesConfig d = DEFAULTS;
+        String postUrl = env.get(ENV_URL);
+        String authKey = env.get(ENV_AUTHKEY);
+        if (postUrl == null) {
+            if (cfg.get("deathboard_uri") != null)
+                postUrl = cfg.get("deathboard_uri").toString();
+            if (authKey == null && cfg.get("authkey") != null)
+                authKey = cfg.get("authkey").toString();
+        }
+        Object policy = cfg.get("dispatch_overload_policy");
+        Object textfile = cfg.get("metrics_textfile");
+        Object bind = cfg.get("http_bind");
+        return new DioclesConfig(postUrl, authKey,
+                Math.max(0, configLong(cfg, "batch_window_ms", d.batchWindowMs())),
+                (int) Math.max(1, configLong(cfg, "batch_max_size", d.batchMaxSize())),
+                (int) Math.max(1, configLong(cfg, "dispatch_queue_capacity", d.dispatchCapacity())),
+                PostDispatcher.OverloadPolicy.parse(policy != null ? policy.toString() : null, d.overloadPolicy()),
+                "delta".equalsIgnoreCase(String.valueOf(cfg.get("sync_mode")).trim()),
+                (int) Math.max(1, configLong(cfg, "full_sync_every", d.fullSyncEvery())),
+                Boolean.parseBoolean(String.valueOf(cfg.get("gzip_payloads")).trim()),
+                Math.max(0, configLong(cfg, "health_check_interval_ms", d.healthIntervalMs())),
+                textfile != null && !textfile.toString().isBlank() ? textfile.toString() : null,
+                Math.max(1000, configLong(cfg, "metrics_interval_ms", d.metricsIntervalMs())),
+                Math.max(1, configLong(cfg, "hook_budget_us", d.hookBudgetUs())),
+                Math.max(1, configLong(cfg, "slow_hook_ms", d.slowHookMs())),
+                (int) Math.min(65535, Math.max(0, configLong(cfg, "http_port", d.httpPort()))),
+                bind != null && !bind.toString().isBlank() ? bind.toString().trim() : d.httpBind());
+    }
+
+    private static long configLong(Map<String, Object> cfg, String key, long fallback) {
+        Object v = cfg.get(key);
+        if (v instanceof Number n)
+            return n.longValue();
+        if (v != null) {
+            try {
+                return Long.parseLong(v.toString().trim());
+            } catch (NumberFormatException e) {
+                DioclesLog.warn("Ignoring invalid config value key={} value={}", key, v);
+            }
+        }
+        return fallback;
+    }
+
+    /**
+     * Mask the auth key so the record can be logged.
+     */
+    @Override
+    public String toString() {
+        return "DioclesConfig[postUrl=" + postUrl + ", authKey=" + (authKey != null ? "***" : null)
+                + ", batchWindowMs=" + batchWindowMs + ", batchMaxSize=" + batchMaxSize + ", dispatchCapacity="
+                + dispatchCapacity + ", overloadPolicy=" + overloadPolicy + ", deltaSync=" + deltaSync
+                + ", fullSyncEvery=" + fullSyncEvery + ", gzipPayloads=" + gzipPayloads + ", healthIntervalMs="
+                + healthIntervalMs + ", metricsTextfile=" + metricsTextfile + ", metricsIntervalMs="
+                + metricsIntervalMs + ", hookBudgetUs=" + hookBudgetUs + ", slowHookMs=" + slowHookMs + ", httpPort="
+                + httpPort + ", httpBind=" + httpBind + "]";
+    }
+}
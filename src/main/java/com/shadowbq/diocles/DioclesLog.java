@@ -0,0 +1,250 @@
+package com.shadowbq.diocles;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.event.Level;
+import org.slf4j.helpers.FormattingTuple;
+import org.slf4j.helpers.MessageFormatter;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Diocles logging, through the SLF4J logger Minecraft ships.
+ *
+ * Calls never touch the console on the calling thread: a message is checked
+ * against its level and its rate limit, formatted (so later changes to its
+ * arguments cannot show up in it), then handed to a bounded queue that a
+ * daemon thread writes out. Each message template has its own token bucket,
+ * so a death storm logs a burst and then about one line per second per
+ * template; the next line that gets through reports how many similar lines
+ * were suppressed. Errors and {@link #command} output are never rate limited.
+ * If the queue is full the message is dropped and counted rather than
+ * blocking.
+ *
+ * Templates use SLF4J {@code {}} placeholders with {@code key={}} fields, so
+ * lines stay greppable, e.g. {@code "Death player={} deaths={}"}. A trailing
+ * Throwable argument is logged with its stack trace.
+ */
+public final class DioclesLog {
+    static final int QUEUE_CAPACITY = 4096;
+    static final int BURST = 10;
+    static final double PER_SECOND = 1.0;
+
+    /**
+     * Where messages end up; the default writes to the "Diocles" SLF4J logger.
+     */
+    interface Sink {
+        boolean enabled(Level level);
+
+        void write(Level level, String message, Throwable error);
+    }
+
+    private record Entry(Level level, String message, Throwable error, long suppressed) {
+    }
+
+    /**
+     * Per-template token buckets.
+     */
+    static final class RateLimiter {
+        private final int burst;
+        private final double perNano;
+        private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+        private static final class Bucket {
+            double tokens;
+            long refilledAt;
+            long suppressed;
+        }
+
+        RateLimiter(int burst, double perSecond) {
+            this.burst = burst;
+            this.perNano = perSecond / 1e9;
+        }
+
+        /**
+         * @return -1 if the message is suppressed, otherwise the number of
+         *         messages with this key suppressed since the last one let through
+         */
+        long tryAcquire(String key, long nowNanos) {
+            Bucket b = buckets.computeIfAbsent(key, k -> {
+                Bucket fresh = new Bucket();
+                fresh.tokens = burst;
+                fresh.refilledAt = nowNanos;
+                return fresh;
+            });
+            synchronized (b) {
+                b.tokens = Math.min(burst, b.tokens + (nowNanos - b.refilledAt) * perNano);
+                b.refilledAt = nowNanos;
+                if (b.tokens < 1) {
+                    b.suppressed++;
+                    return -1;
+                }
+                b.tokens -= 1;
+                long s = b.suppressed;
+                b.suppressed = 0;
+                return s;
+            }
+        }
+    }
+
+    private static final DioclesLog INSTANCE = new DioclesLog(slf4jSink(LoggerFactory.getLogger("Diocles")),
+            QUEUE_CAPACITY, BURST, PER_SECOND);
+
+    private final Sink sink;
+    private final RateLimiter limiter;
+    private final BlockingQueue<Entry> queue;
+    private final LongAdder suppressed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final Object idle = new Object();
+    private int writing; // guarded by idle
+
+    DioclesLog(Sink sink, int capacity, int burst, double perSecond) {
+        this.sink = sink;
+        this.limiter = new RateLimiter(burst, perSecond);
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        Thread writer = new Thread(this::writeLoop, "Diocles-Log");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public static void debug(String template, Object... args) {
+        INSTANCE.log(Level.DEBUG, template, args);
+    }
+
+    public static void info(String template, Object... args) {
+        INSTANCE.log(Level.INFO, template, args);
+    }
+
+    public static void warn(String template, Object... args) {
+        INSTANCE.log(Level.WARN, template, args);
+    }
+
+    public static void error(String template, Object... args) {
+        INSTANCE.log(Level.ERROR, template, args);
+    }
+
+    /**
+     * Log output an operator asked for, such as a command's report, at info
+     * level and without rate limiting.
+     */
+    public static void command(String template, Object... args) {
+        INSTANCE.log(Level.INFO, template, args, false);
+    }
+
+    /**
+     * Wait until queued messages have been written, e.g. on server stop.
+     *
+     * @return true if the queue drained in time
+     */
+    public static boolean flush(long timeoutMs) {
+        return INSTANCE.awaitIdle(timeoutMs);
+    }
+
+    /** @return Messages suppressed by rate limiting since start */
+    public static long suppressedCount() {
+        return INSTANCE.suppressed.sum();
+    }
+
+    /** @return Messages dropped because the queue was full */
+    public static long droppedCount() {
+        return INSTANCE.dropped.sum();
+    }
+
+    void log(Level level, String template, Object[] args) {
+        log(level, template, args, level != Level.ERROR);
+    }
+
+    void log(Level level, String template, Object[] args, boolean limited) {
+        if (!sink.enabled(level))
+            return;
+        long s = 0;
+        if (limited) {
+            s = limiter.tryAcquire(template, System.nanoTime());
+            if (s < 0) {
+                suppressed.increment();
+                return;
+            }
+        }
+        FormattingTuple formatted = MessageFormatter.arrayFormat(template, args);
+        if (!queue.offer(new Entry(level, formatted.getMessage(), formatted.getThrowable(), s)))
+            dropped.increment();
+    }
+
+    boolean awaitIdle(long timeoutMs) {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        synchronized (idle) {
+            while (!queue.isEmpty() || writing > 0) {
+                long left = deadline - System.currentTimeMillis();
+                if (left <= 0)
+                    return false;
+                try {
+                    idle.wait(left);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    long suppressed() {
+        return suppressed.sum();
+    }
+
+    long dropped() {
+        return dropped.sum();
+    }
+
+    private void writeLoop() {
+        while (true) {
+            Entry e;
+            try {
+                e = queue.poll(1, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                return;
+            }
+            if (e == null)
+                continue;
+            synchronized (idle) {
+                writing++;
+            }
+            try {
+                write(e);
+            } catch (RuntimeException ex) {
+                // a broken appender must not kill the writer
+            } finally {
+                synchronized (idle) {
+                    writing--;
+                    idle.notifyAll();
+                }
+            }
+        }
+    }
+
+    private void write(Entry e) {
+        String message = e.suppressed() == 0 ? e.message()
+                : e.message() + " (suppressed=" + e.suppressed() + " similar)";
+        sink.write(e.level(), message, e.error());
+    }
+
+    private static Sink slf4jSink(Logger logger) {
+        return new Sink() {
+            @Override
+            public boolean enabled(Level level) {
+                return logger.isEnabledForLevel(level);
+            }
+
+            @Override
+            public void write(Level level, String message, Throwable error) {
+                // already formatted: logged as is, without placeholders
+                logger.atLevel(level).setCause(error).log(message);
+            }
+        };
+    }
+}
@@ -8,6 +8,9 @@ import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
 import net.minecraft.server.network.ServerPlayerEntity;
 
 public class DioclesMod implements ModInitializer {
+    private static final HookProfiler.Hook TICK_HOOK = DeathboardManager.getProfiler().hook("tick");
+    private static final HookProfiler.Hook DEATH_HOOK = DeathboardManager.getProfiler().hook("death");
+
     @Override
     public void onInitialize() {
         // Register commands
@@ -17,14 +20,30 @@ public class DioclesMod implements ModInitializer {
         // Initialize DeathboardManager when server starts
         ServerLifecycleEvents.SERVER_STARTED.register(server -> DeathboardManager.init(server));
 
-        // Register tick event to check for server day change
-        ServerTickEvents.END_SERVER_TICK.register(server -> DeathboardManager.checkDayAndSync(server));
+        // Flush the death journal when the server stops
+        ServerLifecycleEvents.SERVER_STOPPING.register(server -> DeathboardManager.shutdown(server));
+
+        // Count down to the next server day change
+        ServerTickEvents.END_SERVER_TICK.register(server -> {
+            long start = TICK_HOOK.begin();
+            try {
+                DeathboardManager.tick();
+            } finally {
+                TICK_HOOK.end(start);
+            }
+            // the tick hook runs last in the tick, so this closes the per-tick budget
+            DeathboardManager.getProfiler().endTick();
+        });
 
         // Register player death event using Fabric events instead of Mixin
         ServerLivingEntityEvents.AFTER_DEATH.register((entity, damageSource) -> {
             if (entity instanceof ServerPlayerEntity player) {
-                System.out.println("[Diocles] Player death detected via event: " + player.getName().getString());
-                DeathboardManager.handleDeath(player.getServer(), player);
+                long start = DEATH_HOOK.begin();
+                try {
+                    DeathboardManager.handleDeath(player.getServer(), player, damageSource);
+                } finally {
+                    DEATH_HOOK.end(start);
+                }
             }
         });
     }
@@ -0,0 +1,375 @@
+package com.shadowbq.diocles;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Nanosecond timing of the Diocles callbacks that run on the server thread.
+ *
+ * Each hook wraps its body in {@link Hook#begin()} / {@link Hook#end(long)}.
+ * A hook keeps call counts, totals, its worst call and a window of recent
+ * durations for percentiles. The time spent by all hooks between two
+ * {@link #endTick()} calls is that tick's Diocles cost, kept over a rolling
+ * window of {@link #WINDOW_TICKS} ticks and compared against a per-tick
+ * budget.
+ *
+ * A watchdog thread checks the hook in progress. When one runs past the slow
+ * threshold, it captures the stack of the thread running it (while the hook
+ * is still stuck, so the sample shows where) and reports it once per call.
+ *
+ * Timing a call allocates nothing: each thread reuses one call slot per
+ * nesting depth.
+ */
+public final class HookProfiler {
+    /** Ticks in the rolling budget window (one minute at 20 TPS). */
+    public static final int WINDOW_TICKS = 1200;
+    /** Calls per hook kept for percentiles. */
+    public static final int WINDOW_CALLS = 1024;
+    /** Stack frames kept in a slow-hook sample. */
+    public static final int STACK_DEPTH = 16;
+
+    /**
+     * A slow-hook stack sample.
+     *
+     * @param hook        Hook name
+     * @param elapsedNanos How long the call had been running when sampled
+     * @param atMillis    Wall-clock time of the sample
+     * @param thread      Name of the thread running the hook
+     * @param stack       Top frames of that thread's stack
+     */
+    public record SlowSample(String hook, long elapsedNanos, long atMillis, String thread,
+            List<StackTraceElement> stack) {
+    }
+
+    /**
+     * Point-in-time statistics for one hook.
+     *
+     * @param name       Hook name
+     * @param calls      Calls since start
+     * @param totalNanos Time spent in all calls
+     * @param maxNanos   Slowest call since start
+     * @param p50Nanos   Median of recent calls
+     * @param p99Nanos   99th percentile of recent calls
+     * @param slowCalls  Calls longer than the slow threshold
+     * @param lastSlow   Most recent stack sample, or null
+     */
+    public record HookStats(String name, long calls, long totalNanos, long maxNanos, long p50Nanos, long p99Nanos,
+            long slowCalls, SlowSample lastSlow) {
+    }
+
+    /**
+     * Diocles cost per tick over the rolling window.
+     *
+     * @param ticks        Ticks in the window
+     * @param avgNanos     Average Diocles time per tick
+     * @param maxNanos     Worst tick in the window
+     * @param budgetNanos  Per-tick budget
+     * @param overBudget   Ticks in the window that went over budget
+     * @param overBudgetTotal Ticks over budget since start
+     */
+    public record TickStats(int ticks, long avgNanos, long maxNanos, long budgetNanos, int overBudget,
+            long overBudgetTotal) {
+    }
+
+    /** A timed callback. */
+    public final class Hook {
+        private final String name;
+        private final long[] window = new long[WINDOW_CALLS];
+        private int windowNext;
+        private int windowCount;
+        // written by the hook thread under this, read by commands and metrics
+        private long calls;
+        private long totalNanos;
+        private long maxNanos;
+        private long slowCalls;
+        private volatile SlowSample lastSlow;
+
+        private Hook(String name) {
+            this.name = name;
+        }
+
+        /** @return Hook name */
+        public String name() {
+            return name;
+        }
+
+        /**
+         * Start timing a call on the current thread.
+         *
+         * @return Token to pass to {@link #end(long)}
+         */
+        public long begin() {
+            long start = System.nanoTime();
+            Call outer = active;
+            Call call;
+            if (outer != null && outer.thread == Thread.currentThread()) {
+                if (outer.inner == null)
+                    outer.inner = new Call(outer.thread);
+                call = outer.inner;
+            } else {
+                call = slots.get();
+            }
+            // hook before start: the watchdog reads start first
+            call.hook = this;
+            call.start = start;
+            call.outer = outer;
+            active = call;
+            return start;
+        }
+
+        /**
+         * Finish timing a call started with {@link #begin()}.
+         */
+        public void end(long start) {
+            long nanos = System.nanoTime() - start;
+            Call call = active;
+            if (call != null && call.hook == this)
+                active = call.outer;
+            synchronized (this) {
+                calls++;
+                totalNanos += nanos;
+                if (nanos > maxNanos)
+                    maxNanos = nanos;
+                if (nanos > slowNanos)
+                    slowCalls++;
+                window[windowNext] = nanos;
+                windowNext = (windowNext + 1) % window.length;
+                windowCount = Math.min(windowCount + 1, window.length);
+            }
+            tickNanos += nanos;
+        }
+
+        /** @return Time spent in all calls since start */
+        public synchronized long totalNanos() {
+            return totalNanos;
+        }
+
+        /** @return Calls longer than the slow threshold since start */
+        public synchronized long slowCalls() {
+            return slowCalls;
+        }
+
+        /** @return Current statistics */
+        public HookStats stats() {
+            long[] sorted;
+            long c, total, max, slow;
+            synchronized (this) {
+                sorted = Arrays.copyOf(window, windowCount);
+                c = calls;
+                total = totalNanos;
+                max = maxNanos;
+                slow = slowCalls;
+            }
+            Arrays.sort(sorted);
+            return new HookStats(name, c, total, max, percentile(sorted, 0.50), percentile(sorted, 0.99), slow,
+                    lastSlow);
+        }
+    }
+
+    // a thread's slot for in-progress calls at one nesting depth, reused by each
+    // call there; outer is the call it interrupted, inner the slot for the next depth
+    private static final class Call {
+        final Thread thread;
+        Call inner;
+        Call outer;
+        volatile Hook hook;
+        volatile long start;
+        // start of the call already sampled; a reused slot gets a new start
+        volatile long sampledStart;
+
+        Call(Thread thread) {
+            this.thread = thread;
+        }
+    }
+
+    private final Map<String, Hook> hooks = new ConcurrentHashMap<>();
+    private final ThreadLocal<Call> slots = ThreadLocal.withInitial(() -> new Call(Thread.currentThread()));
+    private volatile Call active;
+    private volatile long slowNanos;
+    private volatile long budgetNanos;
+
+    // written by the ticking thread only
+    private long tickNanos;
+    private final long[] ticks = new long[WINDOW_TICKS];
+    private int tickNext;
+    private int tickCount;
+    private long overBudgetTotal;
+
+    private Thread watchdog;
+
+    /**
+     * @param budgetNanos Diocles time allowed per tick
+     * @param slowNanos   A single call longer than this is reported as slow
+     */
+    public HookProfiler(long budgetNanos, long slowNanos) {
+        configure(budgetNanos, slowNanos);
+    }
+
+    /**
+     * Change the per-tick budget and slow-call threshold.
+     */
+    public void configure(long budgetNanos, long slowNanos) {
+        this.budgetNanos = budgetNanos;
+        this.slowNanos = slowNanos;
+    }
+
+    /**
+     * @return The hook with this name, created on first use
+     */
+    public Hook hook(String name) {
+        return hooks.computeIfAbsent(name, Hook::new);
+    }
+
+    /**
+     * @return Every hook created so far
+     */
+    public Collection<Hook> hooks() {
+        return List.copyOf(hooks.values());
+    }
+
+    /**
+     * Close the current tick: record the time all hooks spent since the
+     * previous call against the per-tick budget. Call from the ticking thread
+     * after the last hook of the tick has ended.
+     */
+    public void endTick() {
+        long nanos = tickNanos;
+        tickNanos = 0;
+        synchronized (ticks) {
+            ticks[tickNext] = nanos;
+            tickNext = (tickNext + 1) % ticks.length;
+            tickCount = Math.min(tickCount + 1, ticks.length);
+            if (nanos > budgetNanos)
+                overBudgetTotal++;
+        }
+    }
+
+    /**
+     * @return Diocles cost per tick over the rolling window
+     */
+    public TickStats tickStats() {
+        long budget = budgetNanos;
+        synchronized (ticks) {
+            long sum = 0;
+            long max = 0;
+            int over = 0;
+            for (int i = 0; i < tickCount; i++) {
+                long t = ticks[i];
+                sum += t;
+                max = Math.max(max, t);
+                if (t > budget)
+                    over++;
+            }
+            return new TickStats(tickCount, tickCount == 0 ? 0 : sum / tickCount, max, budget, over,
+                    overBudgetTotal);
+        }
+    }
+
+    /**
+     * @return Ticks over budget since start
+     */
+    public long overBudgetTicks() {
+        synchronized (ticks) {
+            return overBudgetTotal;
+        }
+    }
+
+    /**
+     * @return Hook statistics, worst first (by slowest recent p99, then by
+     *         slowest call)
+     */
+    public List<HookStats> worstHooks() {
+        List<HookStats> stats = new ArrayList<>();
+        for (Hook h : hooks.values())
+            stats.add(h.stats());
+        stats.sort((a, b) -> a.p99Nanos() != b.p99Nanos() ? Long.compare(b.p99Nanos(), a.p99Nanos())
+                : Long.compare(b.maxNanos(), a.maxNanos()));
+        return stats;
+    }
+
+    /**
+     * Check the call in progress once; if it has run past the slow threshold
+     * and was not sampled yet, capture its thread's stack.
+     *
+     * @return The new sample, or null
+     */
+    public SlowSample checkSlow() {
+        Call call = active;
+        if (call == null)
+            return null;
+        long start = call.start;
+        Hook hook = call.hook;
+        if (call.sampledStart == start)
+            return null;
+        long elapsed = System.nanoTime() - start;
+        if (elapsed <= slowNanos)
+            return null;
+        call.sampledStart = start;
+        StackTraceElement[] frames = call.thread.getStackTrace();
+        // the hook may have finished, and its slot been reused, while the stack was taken
+        if (active != call || call.start != start)
+            return null;
+        SlowSample sample = new SlowSample(hook.name, elapsed, System.currentTimeMillis(), call.thread.getName(),
+                List.of(Arrays.copyOf(frames, Math.min(frames.length, STACK_DEPTH))));
+        hook.lastSlow = sample;
+        return sample;
+    }
+
+    /**
+     * Start a daemon thread that runs {@link #checkSlow()} every pollMs and
+     * hands new samples to the reporter.
+     */
+    public synchronized void startWatchdog(long pollMs, Consumer<SlowSample> reporter) {
+        if (watchdog != null)
+            return;
+        Thread t = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    Thread.sleep(pollMs);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                SlowSample sample = checkSlow();
+                if (sample != null)
+                    reporter.accept(sample);
+            }
+        }, "Diocles-HookWatchdog");
+        t.setDaemon(true);
+        t.start();
+        watchdog = t;
+    }
+
+    /**
+     * Stop the watchdog thread.
+     */
+    public synchronized void stopWatchdog() {
+        if (watchdog != null) {
+            watchdog.interrupt();
+            watchdog = null;
+        }
+    }
+
+    /**
+     * @return The sample as a multi-line log message
+     */
+    public static String format(SlowSample sample) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Slow hook '").append(sample.hook()).append("' running for ")
+                .append(sample.elapsedNanos() / 1_000_000L).append(" ms on ").append(sample.thread());
+        for (StackTraceElement frame : sample.stack())
+            sb.append("\n    at ").append(frame);
+        return sb.toString();
+    }
+
+    private static long percentile(long[] sorted, double q) {
+        if (sorted.length == 0)
+            return 0;
+        int idx = (int) Math.ceil(q * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, idx))];
+    }
+}
@@ -0,0 +1,95 @@
+package com.shadowbq.diocles;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared HTTP transport for all Diocles API traffic.
+ *
+ * A single {@link HttpClient} keeps connections alive and reuses them across
+ * posts and pings. HTTPS endpoints negotiate HTTP/2 (multiplexing requests over
+ * one connection) when the server supports it; plain HTTP endpoints use
+ * HTTP/1.1 keep-alive, avoiding h2c upgrade requests that many API servers do
+ * not handle. All sends are asynchronous, so no caller thread waits on a
+ * socket read.
+ */
+public class HttpTransport {
+    public static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(5);
+
+    private static final AtomicInteger THREAD_ID = new AtomicInteger();
+    private static final ExecutorService IO_EXECUTOR = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "Diocles-Http-" + THREAD_ID.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static final HttpClient CLIENT = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(CONNECT_TIMEOUT)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .executor(IO_EXECUTOR)
+            .build();
+
+    /**
+     * Send a POST request.
+     *
+     * @param url     Absolute URL
+     * @param body    Request body
+     * @param headers Extra request headers
+     * @param timeout Time allowed for the response to arrive
+     * @return Future completing with the HTTP status code, or exceptionally on
+     *         network errors
+     */
+    public static CompletableFuture<Integer> post(String url, byte[] body, Map<String, String> headers,
+            Duration timeout) {
+        HttpRequest.Builder req;
+        try {
+            req = request(url, headers, timeout).POST(HttpRequest.BodyPublishers.ofByteArray(body));
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return send(req.build());
+    }
+
+    /**
+     * Send a GET request, discarding the response body.
+     *
+     * @param url     Absolute URL
+     * @param headers Extra request headers
+     * @param timeout Time allowed for the response to arrive
+     * @return Future completing with the HTTP status code, or exceptionally on
+     *         network errors
+     */
+    public static CompletableFuture<Integer> get(String url, Map<String, String> headers, Duration timeout) {
+        HttpRequest.Builder req;
+        try {
+            req = request(url, headers, timeout).GET();
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return send(req.build());
+    }
+
+    private static HttpRequest.Builder request(String url, Map<String, String> headers, Duration timeout) {
+        URI uri = URI.create(url);
+        HttpRequest.Builder req = HttpRequest.newBuilder(uri).timeout(timeout);
+        if (!"https".equalsIgnoreCase(uri.getScheme()))
+            req.version(HttpClient.Version.HTTP_1_1);
+        for (Map.Entry<String, String> h : headers.entrySet())
+            req.header(h.getKey(), h.getValue());
+        return req;
+    }
+
+    private static CompletableFuture<Integer> send(HttpRequest request) {
+        return CLIENT.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .thenApply(HttpResponse::statusCode);
+    }
+}
@@ -0,0 +1,227 @@
+package com.shadowbq.diocles;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Ranked index of death counts for every score holder, online or not.
+ *
+ * Entries are kept in a size-augmented treap ordered by count (highest first)
+ * and then by name, alongside a name lookup. Updating a player is O(log n),
+ * the first N entries are read in O(log n + N) and any player's rank in
+ * O(log n), so /diocles deathboard no longer sorts the roster on each call.
+ * A version number increases on every change so callers can cache rendered
+ * output.
+ */
+public class LeaderboardIndex {
+    /**
+     * One ranked score holder.
+     *
+     * @param name  Score holder name
+     * @param score Death count
+     */
+    public record Entry(String name, int score) {
+    }
+
+    private static final class Node {
+        final String name;
+        final int score;
+        final int priority;
+        Node left;
+        Node right;
+        int size = 1;
+
+        Node(String name, int score, int priority) {
+            this.name = name;
+            this.score = score;
+            this.priority = priority;
+        }
+    }
+
+    private final Map<String, Node> byName = new HashMap<>();
+    private final SplittableRandom random = new SplittableRandom();
+    private Node root;
+    private long version;
+
+    /**
+     * Insert or move a score holder.
+     *
+     * @param name  Score holder name
+     * @param score Current death count
+     */
+    public synchronized void update(String name, int score) {
+        Node old = byName.get(name);
+        if (old != null) {
+            if (old.score == score)
+                return;
+            root = delete(root, old);
+        }
+        Node node = new Node(name, score, random.nextInt());
+        root = insert(root, node);
+        byName.put(name, node);
+        version++;
+    }
+
+    /**
+     * @param name Score holder name to drop
+     */
+    public synchronized void remove(String name) {
+        Node old = byName.remove(name);
+        if (old != null) {
+            root = delete(root, old);
+            version++;
+        }
+    }
+
+    /**
+     * Drop every entry.
+     */
+    public synchronized void clear() {
+        if (root == null)
+            return;
+        root = null;
+        byName.clear();
+        version++;
+    }
+
+    /**
+     * @param n Number of entries wanted
+     * @return Up to {@code n} entries, highest count first
+     */
+    public synchronized List<Entry> top(int n) {
+        List<Entry> out = new ArrayList<>(Math.max(0, Math.min(n, size(root))));
+        ArrayDeque<Node> stack = new ArrayDeque<>();
+        Node t = root;
+        while (out.size() < n && (t != null || !stack.isEmpty())) {
+            while (t != null) {
+                stack.push(t);
+                t = t.left;
+            }
+            t = stack.pop();
+            out.add(new Entry(t.name, t.score));
+            t = t.right;
+        }
+        return out;
+    }
+
+    /**
+     * @param name Score holder name
+     * @return 1-based rank, or -1 if the name is not indexed
+     */
+    public synchronized int rank(String name) {
+        Node target = byName.get(name);
+        if (target == null)
+            return -1;
+        int rank = 0;
+        Node t = root;
+        while (t != null) {
+            int c = compare(target, t);
+            if (c < 0) {
+                t = t.left;
+            } else if (c > 0) {
+                rank += size(t.left) + 1;
+                t = t.right;
+            } else {
+                return rank + size(t.left) + 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param name Score holder name
+     * @return Indexed death count, or null if the name is not indexed
+     */
+    public synchronized Integer score(String name) {
+        Node node = byName.get(name);
+        return node != null ? node.score : null;
+    }
+
+    /** @return Number of indexed score holders */
+    public synchronized int size() {
+        return size(root);
+    }
+
+    /** @return Counter that changes whenever the ranking changes */
+    public synchronized long version() {
+        return version;
+    }
+
+    // highest score first, then name
+    private static int compare(Node a, Node b) {
+        int c = Integer.compare(b.score, a.score);
+        return c != 0 ? c : a.name.compareTo(b.name);
+    }
+
+    private static int size(Node t) {
+        return t == null ? 0 : t.size;
+    }
+
+    private static Node fix(Node t) {
+        t.size = 1 + size(t.left) + size(t.right);
+        return t;
+    }
+
+    private static Node insert(Node t, Node node) {
+        if (t == null)
+            return node;
+        if (node.priority > t.priority) {
+            // node becomes the subtree root: split t around it
+            Node[] parts = split(t, node);
+            node.left = parts[0];
+            node.right = parts[1];
+            return fix(node);
+        }
+        if (compare(node, t) < 0)
+            t.left = insert(t.left, node);
+        else
+            t.right = insert(t.right, node);
+        return fix(t);
+    }
+
+    // [entries ordered before key, entries ordered after key]
+    private static Node[] split(Node t, Node key) {
+        if (t == null)
+            return new Node[2];
+        if (compare(t, key) < 0) {
+            Node[] parts = split(t.right, key);
+            t.right = parts[0];
+            parts[0] = fix(t);
+            return parts;
+        }
+        Node[] parts = split(t.left, key);
+        t.left = parts[1];
+        parts[1] = fix(t);
+        return parts;
+    }
+
+    private static Node merge(Node a, Node b) {
+        if (a == null)
+            return b;
+        if (b == null)
+            return a;
+        if (a.priority > b.priority) {
+            a.right = merge(a.right, b);
+            return fix(a);
+        }
+        b.left = merge(a, b.left);
+        return fix(b);
+    }
+
+    private static Node delete(Node t, Node target) {
+        if (t == null)
+            return null;
+        int c = compare(target, t);
+        if (c == 0)
+            return merge(t.left, t.right);
+        if (c < 0)
+            t.left = delete(t.left, target);
+        else
+            t.right = delete(t.right, target);
+        return fix(t);
+    }
+}
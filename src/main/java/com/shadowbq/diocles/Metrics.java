@@ -0,0 +1,304 @@
+package com.shadowbq.diocles;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Process-wide registry of Diocles metrics.
+ *
+ * Counters and histogram buckets are {@link LongAdder}s, so recording from
+ * the server thread, dispatch workers and HTTP callbacks never takes a lock.
+ * Gauges are read from a supplier only when the metrics are rendered. The
+ * registry renders to the Prometheus text exposition format, which is what the
+ * node exporter's textfile collector reads.
+ */
+public class Metrics {
+    /** Latency buckets in seconds, 1ms to 10s. */
+    public static final double[] LATENCY_BUCKETS = { 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1,
+            2.5, 5, 10 };
+    /** Size buckets in bytes, 256B to 4MiB. */
+    public static final double[] SIZE_BUCKETS = { 256, 1024, 4096, 16384, 65536, 262144, 1048576, 4194304 };
+
+    private static final Map<String, Metric> REGISTRY = new ConcurrentSkipListMap<>();
+
+    /** A named metric that can render itself. */
+    public abstract static class Metric {
+        final String name;
+        final String help;
+
+        Metric(String name, String help) {
+            this.name = name;
+            this.help = help;
+        }
+
+        /** @return Metric name */
+        public String name() {
+            return name;
+        }
+
+        /** @return Prometheus metric type */
+        abstract String type();
+
+        /** @return One-line human-readable value */
+        public abstract String summary();
+
+        abstract void render(StringBuilder out);
+    }
+
+    /** Monotonically increasing count. */
+    public static final class Counter extends Metric {
+        private final LongAdder value = new LongAdder();
+
+        Counter(String name, String help) {
+            super(name, help);
+        }
+
+        public void increment() {
+            value.increment();
+        }
+
+        public void add(long n) {
+            value.add(n);
+        }
+
+        public long get() {
+            return value.sum();
+        }
+
+        @Override
+        String type() {
+            return "counter";
+        }
+
+        @Override
+        public String summary() {
+            return Long.toString(get());
+        }
+
+        @Override
+        void render(StringBuilder out) {
+            out.append(name).append(' ').append(get()).append('\n');
+        }
+    }
+
+    /** Value sampled from a supplier at render time. */
+    public static final class Gauge extends Metric {
+        private final DoubleSupplier supplier;
+        private final String type;
+
+        Gauge(String name, String help, String type, DoubleSupplier supplier) {
+            super(name, help);
+            this.type = type;
+            this.supplier = supplier;
+        }
+
+        public double get() {
+            try {
+                return supplier.getAsDouble();
+            } catch (RuntimeException e) {
+                return Double.NaN;
+            }
+        }
+
+        @Override
+        String type() {
+            return type;
+        }
+
+        @Override
+        public String summary() {
+            return formatNumber(get());
+        }
+
+        @Override
+        void render(StringBuilder out) {
+            out.append(name).append(' ').append(formatNumber(get())).append('\n');
+        }
+    }
+
+    /** Distribution of observed values over fixed buckets. */
+    public static final class Histogram extends Metric {
+        private final double[] bounds;
+        private final LongAdder[] buckets; // per bucket, not cumulative; last is +Inf
+        private final LongAdder count = new LongAdder();
+        private final DoubleAdder sum = new DoubleAdder();
+
+        Histogram(String name, String help, double[] bounds) {
+            super(name, help);
+            this.bounds = bounds.clone();
+            this.buckets = new LongAdder[bounds.length + 1];
+            for (int i = 0; i < buckets.length; i++)
+                buckets[i] = new LongAdder();
+        }
+
+        public void observe(double value) {
+            int i = 0;
+            while (i < bounds.length && value > bounds[i])
+                i++;
+            buckets[i].increment();
+            count.increment();
+            sum.add(value);
+        }
+
+        /** Observe a duration given in nanoseconds, recorded in seconds. */
+        public void observeNanos(long nanos) {
+            observe(nanos / 1e9);
+        }
+
+        public long count() {
+            return count.sum();
+        }
+
+        public double sum() {
+            return sum.sum();
+        }
+
+        /**
+         * @param q Quantile between 0 and 1
+         * @return Upper bound of the bucket holding the quantile (an estimate)
+         */
+        public double quantile(double q) {
+            long total = count();
+            if (total == 0)
+                return 0;
+            long rank = (long) Math.ceil(q * total);
+            long seen = 0;
+            for (int i = 0; i < bounds.length; i++) {
+                seen += buckets[i].sum();
+                if (seen >= rank)
+                    return bounds[i];
+            }
+            return Double.POSITIVE_INFINITY;
+        }
+
+        @Override
+        String type() {
+            return "histogram";
+        }
+
+        @Override
+        public String summary() {
+            long n = count();
+            if (n == 0)
+                return "no samples";
+            return "n=" + n + " avg=" + formatNumber(sum() / n) + " p50<=" + formatNumber(quantile(0.5))
+                    + " p99<=" + formatNumber(quantile(0.99));
+        }
+
+        @Override
+        void render(StringBuilder out) {
+            long cumulative = 0;
+            for (int i = 0; i < bounds.length; i++) {
+                cumulative += buckets[i].sum();
+                out.append(name).append("_bucket{le=\"").append(formatNumber(bounds[i])).append("\"} ")
+                        .append(cumulative).append('\n');
+            }
+            cumulative += buckets[bounds.length].sum();
+            out.append(name).append("_bucket{le=\"+Inf\"} ").append(cumulative).append('\n');
+            out.append(name).append("_sum ").append(formatNumber(sum())).append('\n');
+            out.append(name).append("_count ").append(cumulative).append('\n');
+        }
+    }
+
+    /**
+     * Register (or look up) a counter.
+     */
+    public static Counter counter(String name, String help) {
+        return register(new Counter(name, help));
+    }
+
+    /**
+     * Register a gauge read from a supplier when rendered. Re-registering a
+     * name replaces the supplier.
+     */
+    public static Gauge gauge(String name, String help, DoubleSupplier supplier) {
+        Gauge g = new Gauge(name, help, "gauge", supplier);
+        REGISTRY.put(name, g);
+        return g;
+    }
+
+    /**
+     * Register a counter whose value is kept elsewhere (e.g. a component's own
+     * LongAdder). Re-registering a name replaces the supplier.
+     */
+    public static Gauge counterFunction(String name, String help, DoubleSupplier supplier) {
+        Gauge g = new Gauge(name, help, "counter", supplier);
+        REGISTRY.put(name, g);
+        return g;
+    }
+
+    /**
+     * Register (or look up) a histogram.
+     */
+    public static Histogram histogram(String name, String help, double[] bounds) {
+        return register(new Histogram(name, help, bounds));
+    }
+
+    /**
+     * @return Every registered metric, sorted by name
+     */
+    public static Collection<Metric> all() {
+        return List.copyOf(REGISTRY.values());
+    }
+
+    /**
+     * @return All metrics in Prometheus text exposition format
+     */
+    public static String renderPrometheus() {
+        StringBuilder out = new StringBuilder(4096);
+        for (Metric m : new ArrayList<>(REGISTRY.values())) {
+            out.append("# HELP ").append(m.name).append(' ').append(m.help).append('\n');
+            out.append("# TYPE ").append(m.name).append(' ').append(m.type()).append('\n');
+            m.render(out);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Write the Prometheus text to a file, replacing it atomically so a
+     * scraper never reads a partial file.
+     *
+     * @param file Target file, e.g. in the node exporter textfile directory
+     * @throws IOException if the file cannot be written
+     */
+    public static void writeTextfile(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null)
+            Files.createDirectories(parent);
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.writeString(tmp, renderPrometheus(), StandardCharsets.UTF_8);
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Metric> T register(T metric) {
+        Metric existing = REGISTRY.putIfAbsent(metric.name, metric);
+        if (existing == null)
+            return metric;
+        if (existing.getClass() != metric.getClass())
+            throw new IllegalArgumentException("Metric " + metric.name + " already registered as " + existing.type());
+        return (T) existing;
+    }
+
+    private static String formatNumber(double v) {
+        if (Double.isNaN(v))
+            return "NaN";
+        if (Double.isInfinite(v))
+            return v > 0 ? "+Inf" : "-Inf";
+        if (v == Math.rint(v) && Math.abs(v) < 1e15)
+            return Long.toString((long) v);
+        return String.format(Locale.ROOT, "%.6g", v).replaceAll("\\.?0+(e|$)", "$1");
+    }
+}
@@ -0,0 +1,74 @@
+package com.shadowbq.diocles;
+
+import net.minecraft.scoreboard.Scoreboard;
+import net.minecraft.scoreboard.ScoreboardCriterion;
+import net.minecraft.scoreboard.ScoreboardObjective;
+import net.minecraft.text.Text;
+
+/**
+ * Cached handle to the {@value DeathboardManager#OBJECTIVE_NAME} objective.
+ *
+ * The handle is resolved once and reused by the manager and every command.
+ * {@link com.shadowbq.diocles.mixin.ScoreboardMixin} keeps it current when the
+ * objective is removed or recreated (e.g. by {@code /scoreboard objectives}),
+ * and a handle belonging to another scoreboard (a previous server) is never
+ * returned.
+ */
+public class ObjectiveRegistry {
+    private static volatile ScoreboardObjective deaths;
+
+    /**
+     * @param scoreboard Server scoreboard
+     * @return The deaths objective, or null if it does not exist
+     */
+    public static ScoreboardObjective get(Scoreboard scoreboard) {
+        ScoreboardObjective obj = deaths;
+        if (obj != null && obj.getScoreboard() == scoreboard)
+            return obj;
+        obj = scoreboard.getNullableObjective(DeathboardManager.OBJECTIVE_NAME);
+        deaths = obj;
+        return obj;
+    }
+
+    /**
+     * @param scoreboard Server scoreboard
+     * @return The deaths objective, created if missing
+     */
+    public static ScoreboardObjective getOrCreate(Scoreboard scoreboard) {
+        ScoreboardObjective obj = get(scoreboard);
+        if (obj == null) {
+            obj = scoreboard.addObjective(
+                    DeathboardManager.OBJECTIVE_NAME,
+                    ScoreboardCriterion.DEATH_COUNT,
+                    Text.literal("Deaths"),
+                    ScoreboardCriterion.RenderType.INTEGER,
+                    false,
+                    null);
+            deaths = obj;
+        }
+        return obj;
+    }
+
+    /**
+     * Called after an objective is added to a scoreboard.
+     */
+    public static void onAdded(ScoreboardObjective objective) {
+        if (objective != null && DeathboardManager.OBJECTIVE_NAME.equals(objective.getName()))
+            deaths = objective;
+    }
+
+    /**
+     * Called when an objective is removed from a scoreboard.
+     */
+    public static void onRemoved(ScoreboardObjective objective) {
+        if (objective == deaths)
+            deaths = null;
+    }
+
+    /**
+     * Forget the cached handle.
+     */
+    public static void invalidate() {
+        deaths = null;
+    }
+}
@@ -0,0 +1,556 @@
+package com.shadowbq.diocles;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead spool for outbound API posts.
+ *
+ * Every post is appended to {@code spool.log} before any delivery attempt.
+ * Entries are sent in order, up to {@link #MAX_IN_FLIGHT} at a time, driven by
+ * the completion of each asynchronous send rather than a dedicated thread. The
+ * acknowledged offset in {@code spool.ack} only moves past an entry once it and
+ * every entry before it are finished: accepted by the API, or rejected and
+ * parked. Unreachable-API errors, 5xx, 408, 425, 429 and any other non-2xx
+ * status are retried with capped exponential backoff for as long as it takes;
+ * only a 4xx the API will give again for the same request is final, and the
+ * entry is then copied to {@code spool.dead} and skipped, so one post the API
+ * rejects cannot hold up the rest. {@link #redriveParked()} puts parked
+ * entries back on the log once the API has been fixed.
+ * Pending entries therefore survive API outages and server restarts. Once the
+ * spool is drained the log is truncated.
+ *
+ * Each entry carries an idempotency key that is sent with every attempt, so
+ * the API can discard deliveries it has already counted.
+ */
+public class OutboundSpool {
+    /**
+     * Performs one asynchronous delivery attempt.
+     */
+    @FunctionalInterface
+    public interface Sender {
+        /**
+         * @param endpoint       API path, e.g. /api/deathboard
+         * @param headers        Extra request headers stored with the entry
+         * @param body           Request body
+         * @param idempotencyKey Key identifying this entry across retries
+         * @return Future completing with the HTTP status code, or exceptionally
+         *         if the API could not be reached
+         */
+        CompletableFuture<Integer> send(String endpoint, Map<String, String> headers, byte[] body,
+                String idempotencyKey);
+    }
+
+    /**
+     * Notified after the API accepts an entry (2xx).
+     */
+    @FunctionalInterface
+    public interface DeliveryListener {
+        /**
+         * @param endpoint API path the entry was posted to
+         * @param headers  Extra request headers stored with the entry
+         */
+        void delivered(String endpoint, Map<String, String> headers);
+    }
+
+    static final int MAX_BODY_SIZE = 64 << 20;
+    static final int MAX_IN_FLIGHT = 4;
+
+    private static final String LOG_FILE = "spool.log";
+    private static final String ACK_FILE = "spool.ack";
+    private static final String DEAD_FILE = "spool.dead";
+    private static final int FRAME_HEADER_SIZE = 8;
+
+    private final FileChannel log;
+    private final FileChannel ack;
+    private final FileChannel dead;
+    private final Sender sender;
+    private final ScheduledExecutorService scheduler;
+    private final long initialBackoffMs;
+    private final long maxBackoffMs;
+    private final CRC32 crc = new CRC32();
+    private final Object lock = new Object();
+
+    // guarded by lock
+    private long head; // oldest unfinished entry
+    private long next; // next entry to start sending
+    private long tail;
+    private int pending;
+    private int inFlight; // entries being sent or waiting for a retry
+    private int awaitingResponse; // sends outstanding
+    private final TreeMap<Long, Long> finished = new TreeMap<>(); // finished past head: offset -> next
+    private long parked;
+    private long backoff;
+
+    private volatile boolean running;
+    private volatile DeliveryListener listener = (endpoint, headers) -> {
+    };
+
+    private OutboundSpool(FileChannel log, FileChannel ack, FileChannel dead, Sender sender,
+            ScheduledExecutorService scheduler, long initialBackoffMs, long maxBackoffMs) {
+        this.log = log;
+        this.ack = ack;
+        this.dead = dead;
+        this.sender = sender;
+        this.scheduler = scheduler;
+        this.backoff = initialBackoffMs;
+        this.initialBackoffMs = initialBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+    }
+
+    /**
+     * Open (or create) a spool and recover any entries that were not
+     * acknowledged before the last shutdown. Delivery starts with
+     * {@link #start()}.
+     *
+     * @param dir              Directory holding the spool files
+     * @param sender           Delivery function
+     * @param scheduler        Runs delivery steps and delayed retries
+     * @param initialBackoffMs First retry delay
+     * @param maxBackoffMs     Upper bound for the retry delay
+     * @return Open spool
+     * @throws IOException if the spool files cannot be opened
+     */
+    public static OutboundSpool open(Path dir, Sender sender, ScheduledExecutorService scheduler,
+            long initialBackoffMs, long maxBackoffMs) throws IOException {
+        Files.createDirectories(dir);
+        FileChannel log = FileChannel.open(dir.resolve(LOG_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FileChannel ack = FileChannel.open(dir.resolve(ACK_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FileChannel dead = FileChannel.open(dir.resolve(DEAD_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        OutboundSpool spool = new OutboundSpool(log, ack, dead, sender, scheduler, initialBackoffMs, maxBackoffMs);
+        spool.recover();
+        return spool;
+    }
+
+    /**
+     * Start delivering pending entries.
+     */
+    public void start() {
+        running = true;
+        scheduler.execute(this::pump);
+    }
+
+    /**
+     * Set the listener notified of successful deliveries.
+     *
+     * @param listener Delivery listener
+     */
+    public void setDeliveryListener(DeliveryListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Append a post without extra headers.
+     *
+     * @see #enqueue(String, Map, byte[])
+     */
+    public String enqueue(String endpoint, byte[] body) throws IOException {
+        return enqueue(endpoint, Map.of(), body);
+    }
+
+    /**
+     * Append a post to the spool. The entry is written to the spool file (the
+     * OS page cache) when this returns, so it survives a crash of the server
+     * process; it is only forced to the disk itself on {@link #close()}.
+     *
+     * @param endpoint API path, e.g. /api/deathboard
+     * @param headers  Extra request headers sent with every attempt
+     * @param body     Request body
+     * @return Idempotency key assigned to the entry
+     * @throws IOException if the entry could not be written
+     */
+    public String enqueue(String endpoint, Map<String, String> headers, byte[] body) throws IOException {
+        if (body.length > MAX_BODY_SIZE)
+            throw new IOException("Spool entry too large: " + body.length + " bytes");
+        String key = UUID.randomUUID().toString();
+        byte[] ep = endpoint.getBytes(StandardCharsets.UTF_8);
+        byte[] k = key.getBytes(StandardCharsets.UTF_8);
+        byte[][] hdr = new byte[headers.size() * 2][];
+        int hdrSize = 0;
+        int i = 0;
+        for (Map.Entry<String, String> h : headers.entrySet()) {
+            hdr[i] = h.getKey().getBytes(StandardCharsets.UTF_8);
+            hdr[i + 1] = h.getValue().getBytes(StandardCharsets.UTF_8);
+            hdrSize += 4 + hdr[i].length + hdr[i + 1].length;
+            i += 2;
+        }
+        ByteBuffer payload = ByteBuffer.allocate(2 + ep.length + 2 + k.length + 2 + hdrSize + 4 + body.length);
+        payload.putShort((short) ep.length).put(ep);
+        payload.putShort((short) k.length).put(k);
+        payload.putShort((short) headers.size());
+        for (byte[] part : hdr)
+            payload.putShort((short) part.length).put(part);
+        payload.putInt(body.length).put(body);
+        payload.flip();
+
+        ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER_SIZE + payload.remaining());
+        synchronized (lock) {
+            crc.reset();
+            crc.update(payload.duplicate());
+            frame.putInt(payload.remaining()).putInt((int) crc.getValue()).put(payload).flip();
+            long pos = tail;
+            while (frame.hasRemaining())
+                pos += log.write(frame, pos);
+            tail = pos;
+            pending++;
+        }
+        pump();
+        return key;
+    }
+
+    /**
+     * @return Number of entries waiting for delivery
+     */
+    public int pendingCount() {
+        synchronized (lock) {
+            return pending;
+        }
+    }
+
+    /**
+     * @return Bytes of spooled entries waiting for delivery
+     */
+    public long pendingBytes() {
+        synchronized (lock) {
+            return tail - head;
+        }
+    }
+
+    /**
+     * @return Entries copied to {@code spool.dead} since the spool was opened
+     */
+    public long parkedCount() {
+        synchronized (lock) {
+            return parked;
+        }
+    }
+
+    /**
+     * Move every entry in {@code spool.dead} back to the end of the log, with
+     * its original idempotency key, and empty the dead-letter file. Use once
+     * whatever made the API reject them has been fixed.
+     *
+     * @return Number of entries requeued
+     * @throws IOException if the files could not be read or written
+     */
+    public int redriveParked() throws IOException {
+        int count = 0;
+        synchronized (lock) {
+            long size = dead.size();
+            long pos = 0;
+            ByteBuffer header = ByteBuffer.allocate(4);
+            // copy whole frames only; a torn last frame is left out
+            while (pos + FRAME_HEADER_SIZE <= size) {
+                header.clear();
+                while (header.hasRemaining())
+                    dead.read(header, pos + header.position());
+                int length = header.flip().getInt();
+                if (length <= 0 || pos + FRAME_HEADER_SIZE + length > size)
+                    break;
+                pos += FRAME_HEADER_SIZE + length;
+                count++;
+            }
+            long copied = 0;
+            while (copied < pos)
+                copied += dead.transferTo(copied, pos - copied, log.position(tail + copied));
+            tail += pos;
+            pending += count;
+            dead.truncate(0);
+        }
+        if (count > 0)
+            DioclesLog.info("Requeued parked posts count={}", count);
+        pump();
+        return count;
+    }
+
+    /**
+     * Stop delivery and close the spool files. Undelivered entries remain on
+     * disk for the next start.
+     */
+    public void close() {
+        running = false;
+        synchronized (lock) {
+            // let an outstanding send record its result
+            long deadline = System.currentTimeMillis() + 5000;
+            while (awaitingResponse > 0 && System.currentTimeMillis() < deadline) {
+                try {
+                    lock.wait(deadline - System.currentTimeMillis());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            try {
+                log.force(false);
+                ack.force(false);
+                dead.force(false);
+                log.close();
+                ack.close();
+                dead.close();
+            } catch (IOException e) {
+                DioclesLog.error("Failed to close outbound spool error={}", e.getMessage());
+            }
+        }
+    }
+
+    private void recover() throws IOException {
+        long acked = 0;
+        if (ack.size() >= 8) {
+            ByteBuffer buf = ByteBuffer.allocate(8);
+            ack.read(buf, 0);
+            acked = buf.flip().getLong();
+        }
+        long size = log.size();
+        if (acked < 0 || acked > size)
+            acked = 0;
+        // walk forward to find the last complete frame; anything after it is a torn write
+        long pos = acked;
+        int count = 0;
+        ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER_SIZE);
+        while (pos + FRAME_HEADER_SIZE <= size) {
+            header.clear();
+            log.read(header, pos);
+            int length = header.flip().getInt();
+            if (length <= 0 || pos + FRAME_HEADER_SIZE + length > size)
+                break;
+            pos += FRAME_HEADER_SIZE + length;
+            count++;
+        }
+        if (pos < size)
+            log.truncate(pos);
+        head = acked;
+        next = acked;
+        tail = pos;
+        pending = count;
+        if (count > 0)
+            DioclesLog.info("Recovered undelivered posts from spool count={}", count);
+    }
+
+    /**
+     * Start sending entries until {@link #MAX_IN_FLIGHT} are in flight or every
+     * entry has been started.
+     */
+    private void pump() {
+        while (true) {
+            long pos;
+            synchronized (lock) {
+                if (!running || inFlight >= MAX_IN_FLIGHT || next == tail)
+                    return;
+                pos = next;
+                try {
+                    next = frameEnd(pos);
+                } catch (IOException e) {
+                    DioclesLog.error("Outbound spool read failed error={}", e.getMessage());
+                    return; // tried again on the next enqueue or finished send
+                }
+                inFlight++;
+            }
+            attempt(pos);
+        }
+    }
+
+    /**
+     * Send the entry at this offset once.
+     */
+    private void attempt(long pos) {
+        Entry entry;
+        try {
+            entry = readEntry(pos);
+        } catch (IOException e) {
+            DioclesLog.error("Outbound spool read failed error={}", e.getMessage());
+            retryLater(pos);
+            return;
+        }
+        if (entry.body == null) {
+            DioclesLog.warn("Skipping corrupt spool entry offset={}", pos);
+            finish(entry, false);
+            return;
+        }
+        synchronized (lock) {
+            awaitingResponse++;
+        }
+        CompletableFuture<Integer> sent;
+        try {
+            sent = sender.send(entry.endpoint, entry.headers, entry.body, entry.key);
+        } catch (RuntimeException e) {
+            sent = CompletableFuture.failedFuture(e);
+        }
+        sent.whenComplete((code, error) -> onResult(entry, code, error));
+    }
+
+    private void onResult(Entry entry, Integer code, Throwable error) {
+        synchronized (lock) {
+            awaitingResponse--;
+            lock.notifyAll();
+        }
+        if (error != null) {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause()
+                    : error;
+            DioclesLog.warn("POST failed endpoint={} error={}", entry.endpoint, cause.getMessage());
+            retryLater(entry.offset);
+        } else if (isSuccess(code)) {
+            finish(entry, true);
+            try {
+                listener.delivered(entry.endpoint, entry.headers);
+            } catch (RuntimeException e) {
+                DioclesLog.error("Delivery listener failed error={}", e.getMessage());
+            }
+        } else if (isRejected(code)) {
+            park(entry, code);
+            finish(entry, false);
+        } else {
+            // 5xx, timeouts, rate limiting, redirects: the same post may succeed later
+            DioclesLog.warn("POST not accepted, will retry endpoint={} status={}", entry.endpoint, code);
+            retryLater(entry.offset);
+        }
+    }
+
+    private void finish(Entry entry, boolean delivered) {
+        try {
+            acknowledge(entry);
+        } catch (IOException e) {
+            DioclesLog.error("Failed to acknowledge spool entry error={}", e.getMessage());
+        }
+        synchronized (lock) {
+            if (delivered)
+                backoff = initialBackoffMs;
+            inFlight--;
+        }
+        // hop threads so synchronously completed sends cannot recurse
+        if (running)
+            scheduler.execute(this::pump);
+    }
+
+    private void retryLater(long pos) {
+        long delay;
+        synchronized (lock) {
+            delay = backoff + ThreadLocalRandom.current().nextLong(backoff / 4 + 1);
+            backoff = Math.min(backoff * 2, maxBackoffMs);
+        }
+        if (!running)
+            return;
+        // the entry keeps its in-flight slot while it waits
+        scheduler.schedule(() -> {
+            if (running)
+                attempt(pos);
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Copy an entry the API rejected to the dead-letter file, framed as in the
+     * log, so it can be inspected and later requeued with
+     * {@link #redriveParked()}.
+     */
+    private void park(Entry entry, int code) {
+        DioclesLog.error("Parking rejected post endpoint={} status={} key={}", entry.endpoint, code, entry.key);
+        synchronized (lock) {
+            try {
+                long pos = entry.offset;
+                dead.position(dead.size());
+                while (pos < entry.next)
+                    pos += log.transferTo(pos, entry.next - pos, dead);
+                parked++;
+            } catch (IOException e) {
+                DioclesLog.error("Failed to park spool entry error={}", e.getMessage());
+            }
+        }
+    }
+
+    private long frameEnd(long pos) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(4);
+        while (header.hasRemaining())
+            log.read(header, pos + header.position());
+        return pos + FRAME_HEADER_SIZE + header.flip().getInt();
+    }
+
+    private Entry readEntry(long pos) throws IOException {
+        // frames before tail are complete, so reading them does not need the lock
+        ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER_SIZE);
+        while (header.hasRemaining())
+            log.read(header, pos + header.position());
+        header.flip();
+        int length = header.getInt();
+        int expectedCrc = header.getInt();
+        ByteBuffer payload = ByteBuffer.allocate(length);
+        while (payload.hasRemaining())
+            log.read(payload, pos + FRAME_HEADER_SIZE + payload.position());
+        payload.flip();
+        CRC32 check = new CRC32();
+        check.update(payload.duplicate());
+        long next = pos + FRAME_HEADER_SIZE + length;
+        if ((int) check.getValue() != expectedCrc)
+            return new Entry(pos, next, null, null, null, null);
+        String endpoint = getString(payload);
+        String key = getString(payload);
+        int headerCount = payload.getShort() & 0xFFFF;
+        Map<String, String> headers = new LinkedHashMap<>();
+        for (int i = 0; i < headerCount; i++)
+            headers.put(getString(payload), getString(payload));
+        byte[] body = new byte[payload.getInt()];
+        payload.get(body);
+        return new Entry(pos, next, endpoint, key, headers, body);
+    }
+
+    private void acknowledge(Entry entry) throws IOException {
+        synchronized (lock) {
+            if (!log.isOpen())
+                return;
+            // sends finish out of order; the acknowledged offset only moves over a finished run
+            finished.put(entry.offset, entry.next);
+            Long end;
+            long start = head;
+            while ((end = finished.remove(head)) != null) {
+                head = end;
+                pending--;
+            }
+            if (head == start)
+                return;
+            if (head == tail) {
+                // drained: reclaim the log
+                log.truncate(0);
+                head = 0;
+                next = 0;
+                tail = 0;
+                pending = 0;
+            }
+            ack.write(ByteBuffer.allocate(8).putLong(0, head), 0);
+        }
+    }
+
+    private static boolean isSuccess(int code) {
+        return code >= 200 && code < 300;
+    }
+
+    private static boolean isRejected(int code) {
+        // 4xx other than timeouts and rate limiting will not succeed on retry
+        return code >= 400 && code < 500 && code != 408 && code != 425 && code != 429;
+    }
+
+    private static String getString(ByteBuffer buf) {
+        byte[] bytes = new byte[buf.getShort() & 0xFFFF];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private record Entry(long offset, long next, String endpoint, String key, Map<String, String> headers,
+            byte[] body) {
+    }
+}
@@ -0,0 +1,134 @@
+package com.shadowbq.diocles;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams name-keyed payloads to compact JSON request bodies.
+ *
+ * Values are written through a {@link JsonWriter} straight into a per-thread
+ * buffer that is reused between posts, so a payload is never materialised as
+ * an intermediate {@code String}. Bodies can optionally be gzip-compressed;
+ * small bodies are left as they are since compression would not pay for
+ * itself.
+ */
+public class PayloadEncoder {
+    /** Bodies smaller than this are never compressed. */
+    public static final int GZIP_MIN_SIZE = 512;
+
+    /** A request body and the Content-Encoding it was written with (null for identity). */
+    public record Body(byte[] bytes, String contentEncoding) {
+    }
+
+    private static final int MAX_RETAINED_BUFFER = 1 << 20;
+
+    private static final ThreadLocal<Buffers> BUFFERS = ThreadLocal.withInitial(Buffers::new);
+
+    /**
+     * Encode a payload as compact JSON.
+     *
+     * @param payload Name-keyed payload of maps, collections, strings, numbers
+     *                and booleans
+     * @param gzip    Whether to gzip bodies of at least {@link #GZIP_MIN_SIZE}
+     *                bytes
+     * @return Encoded body
+     */
+    public static Body encode(Map<String, ?> payload, boolean gzip) {
+        Buffers b = BUFFERS.get();
+        try {
+            b.json.reset();
+            try (JsonWriter w = new JsonWriter(new OutputStreamWriter(b.json, StandardCharsets.UTF_8))) {
+                w.setSerializeNulls(false);
+                writeValue(w, payload);
+            }
+            if (!gzip || b.json.size() < GZIP_MIN_SIZE)
+                return new Body(b.json.toByteArray(), null);
+
+            b.gzip.reset();
+            try (GZIPOutputStream z = new FastGzip(b.gzip)) {
+                b.json.writeTo(z);
+            }
+            return new Body(b.gzip.toByteArray(), "gzip");
+        } catch (IOException e) {
+            // in-memory streams do not throw
+            throw new IllegalStateException(e);
+        } finally {
+            b.trim();
+        }
+    }
+
+    /**
+     * @param payload Name-keyed payload
+     * @return Compact JSON bytes, uncompressed
+     */
+    public static byte[] encode(Map<String, ?> payload) {
+        return encode(payload, false).bytes();
+    }
+
+    private static void writeValue(JsonWriter w, Object value) throws IOException {
+        if (value == null) {
+            w.nullValue();
+        } else if (value instanceof Map<?, ?> map) {
+            w.beginObject();
+            for (Map.Entry<?, ?> e : map.entrySet()) {
+                w.name(String.valueOf(e.getKey()));
+                writeValue(w, e.getValue());
+            }
+            w.endObject();
+        } else if (value instanceof Iterable<?> items) {
+            w.beginArray();
+            for (Object item : items)
+                writeValue(w, item);
+            w.endArray();
+        } else if (value instanceof Boolean bool) {
+            w.value(bool.booleanValue());
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short
+                || value instanceof Byte) {
+            w.value(((Number) value).longValue());
+        } else if (value instanceof Number number) {
+            w.value(number);
+        } else {
+            w.value(value.toString());
+        }
+    }
+
+    /** Reusable output buffers for one thread. */
+    private static final class Buffers {
+        Exposed json = new Exposed();
+        Exposed gzip = new Exposed();
+
+        void trim() {
+            // don't pin a one-off huge roster in memory for the life of the thread
+            if (json.capacity() > MAX_RETAINED_BUFFER)
+                json = new Exposed();
+            if (gzip.capacity() > MAX_RETAINED_BUFFER)
+                gzip = new Exposed();
+        }
+    }
+
+    private static final class Exposed extends ByteArrayOutputStream {
+        Exposed() {
+            super(4096);
+        }
+
+        int capacity() {
+            return buf.length;
+        }
+    }
+
+    /** Gzip at a faster level than the default; payloads are small and latency matters more. */
+    private static final class FastGzip extends GZIPOutputStream {
+        FastGzip(OutputStream out) throws IOException {
+            super(out, 8192);
+            def.setLevel(Deflater.BEST_SPEED);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.shadowbq.diocles;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Latest death details for every player, stored column-wise.
+ *
+ * Each player gets a dense int index on first sight (keyed by UUID, so a
+ * rename keeps its row) and every field lives in a primitive array indexed by
+ * it. World names are interned into a small id table. Recording a death for a
+ * known player in a known world writes a few array slots and allocates
+ * nothing; the {@link DeathRecord} view is only built when a caller asks for
+ * it. A version number increases on every record so callers can cache
+ * rendered output.
+ */
+public class PlayerStatsStore {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Map<UUID, Integer> indexByUuid = new HashMap<>();
+    private final Map<String, Integer> worldIds = new HashMap<>();
+    private String[] worlds = new String[4];
+    private int worldCount;
+
+    private int size;
+    private long version;
+    private long[] uuidHigh = new long[INITIAL_CAPACITY];
+    private long[] uuidLow = new long[INITIAL_CAPACITY];
+    private String[] names = new String[INITIAL_CAPACITY];
+    private int[] deathCounts = new int[INITIAL_CAPACITY];
+    private long[] lastDeathMillis = new long[INITIAL_CAPACITY];
+    private long[] days = new long[INITIAL_CAPACITY];
+    private int[] xs = new int[INITIAL_CAPACITY];
+    private int[] ys = new int[INITIAL_CAPACITY];
+    private int[] zs = new int[INITIAL_CAPACITY];
+    private int[] worldIdx = new int[INITIAL_CAPACITY];
+
+    /**
+     * Store a player's latest death, replacing any earlier one.
+     *
+     * @return The player's index
+     */
+    public synchronized int record(UUID uuid, String name, long epochMillis, long day, int deathCount, int x, int y,
+            int z, String world) {
+        Integer existing = indexByUuid.get(uuid);
+        int i;
+        if (existing != null) {
+            i = existing;
+        } else {
+            i = size++;
+            if (i == uuidHigh.length)
+                grow();
+            uuidHigh[i] = uuid.getMostSignificantBits();
+            uuidLow[i] = uuid.getLeastSignificantBits();
+            indexByUuid.put(uuid, i);
+        }
+        names[i] = name;
+        deathCounts[i] = deathCount;
+        lastDeathMillis[i] = epochMillis;
+        days[i] = day;
+        xs[i] = x;
+        ys[i] = y;
+        zs[i] = z;
+        worldIdx[i] = internWorld(world);
+        version++;
+        return i;
+    }
+
+    /**
+     * @param record Death to store
+     * @return The player's index
+     */
+    public int record(DeathRecord record) {
+        return record(record.uuid(), record.name(), record.epochMillis(), record.day(), record.deathCount(),
+                record.x(), record.y(), record.z(), record.world());
+    }
+
+    /**
+     * @param uuid Player UUID
+     * @return The player's index, or -1 if the player has no recorded death
+     */
+    public synchronized int indexOf(UUID uuid) {
+        Integer i = indexByUuid.get(uuid);
+        return i != null ? i : -1;
+    }
+
+    /**
+     * @param uuid Player UUID
+     * @return Latest death, or null if the player has never died
+     */
+    public synchronized DeathRecord get(UUID uuid) {
+        Integer i = indexByUuid.get(uuid);
+        return i != null ? get(i) : null;
+    }
+
+    /**
+     * @param index Player index, below {@link #size()}
+     * @return Latest death of the player at that index
+     */
+    public synchronized DeathRecord get(int index) {
+        return new DeathRecord(new UUID(uuidHigh[index], uuidLow[index]), names[index], lastDeathMillis[index],
+                days[index], deathCounts[index], xs[index], ys[index], zs[index], worlds[worldIdx[index]]);
+    }
+
+    /** @return Death count at the given index */
+    public synchronized int deathCount(int index) {
+        return deathCounts[index];
+    }
+
+    /** @return Last known name at the given index */
+    public synchronized String name(int index) {
+        return names[index];
+    }
+
+    /** @return Number of players with a recorded death */
+    public synchronized int size() {
+        return size;
+    }
+
+    /** @return Counter that changes whenever a death is recorded */
+    public synchronized long version() {
+        return version;
+    }
+
+    /** @return Number of distinct worlds seen */
+    public synchronized int worldCount() {
+        return worldCount;
+    }
+
+    private int internWorld(String world) {
+        String key = world != null ? world : "";
+        Integer id = worldIds.get(key);
+        if (id != null)
+            return id;
+        if (worldCount == worlds.length)
+            worlds = Arrays.copyOf(worlds, worldCount * 2);
+        worlds[worldCount] = key;
+        worldIds.put(key, worldCount);
+        return worldCount++;
+    }
+
+    private void grow() {
+        int n = uuidHigh.length * 2;
+        uuidHigh = Arrays.copyOf(uuidHigh, n);
+        uuidLow = Arrays.copyOf(uuidLow, n);
+        names = Arrays.copyOf(names, n);
+        deathCounts = Arrays.copyOf(deathCounts, n);
+        lastDeathMillis = Arrays.copyOf(lastDeathMillis, n);
+        days = Arrays.copyOf(days, n);
+        xs = Arrays.copyOf(xs, n);
+        ys = Arrays.copyOf(ys, n);
+        zs = Arrays.copyOf(zs, n);
+        worldIdx = Arrays.copyOf(worldIdx, n);
+    }
+}
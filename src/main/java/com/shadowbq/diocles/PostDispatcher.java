@@ -0,0 +1,367 @@
+package com.shadowbq.diocles;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded queue and daemon worker pool for outbound posts.
+ *
+ * Payloads are handed to the worker threads through a queue of fixed
+ * capacity. When the queue is full the configured {@link OverloadPolicy}
+ * decides what happens, so a slow consumer can never grow memory without
+ * bound. Counters for every outcome are kept so backpressure is visible.
+ *
+ * Spilled posts never run on the submitting thread (usually the server
+ * thread). They go to an overflow list handled by a single spill thread,
+ * which starts only once every earlier queued post has been handled; while
+ * the overflow is not empty, new posts join it too. Posts therefore reach the
+ * handler in the order they were submitted. The overflow holds at most
+ * {@code capacity} posts as well; past that its oldest post is dropped and
+ * counted, as with {@link OverloadPolicy#DROP_OLDEST}.
+ */
+public class PostDispatcher {
+    /**
+     * What to do with a post that arrives while the queue is full.
+     */
+    public enum OverloadPolicy {
+        /** Discard the oldest queued post to make room. */
+        DROP_OLDEST,
+        /**
+         * Merge into the newest queued post for the same endpoint and headers.
+         * Payloads are name-keyed, so the newer entry for a player wins. A post
+         * with nothing to merge into is spilled.
+         */
+        COALESCE,
+        /**
+         * Hand the post to the spill thread (whose handler writes to the disk
+         * spool), through an overflow list bounded like the queue.
+         */
+        SPILL;
+
+        /**
+         * Parse a config value such as "drop-oldest".
+         *
+         * @param value    Config value, may be null
+         * @param fallback Policy used when the value is missing or unknown
+         * @return Parsed policy
+         */
+        public static OverloadPolicy parse(String value, OverloadPolicy fallback) {
+            if (value == null || value.isBlank())
+                return fallback;
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+            } catch (IllegalArgumentException e) {
+                DioclesLog.warn("Unknown overload policy value={}, using {}", value, fallback);
+                return fallback;
+            }
+        }
+    }
+
+    /**
+     * Performs a post on a worker (or spilling) thread.
+     */
+    @FunctionalInterface
+    public interface Handler {
+        /**
+         * @param endpoint API path
+         * @param payload  Name-keyed payload
+         * @param headers  Extra request headers
+         */
+        void post(String endpoint, Map<String, Object> payload, Map<String, String> headers);
+    }
+
+    private static final class Item {
+        final String endpoint;
+        final Map<String, Object> payload;
+        final Map<String, String> headers;
+
+        Item(String endpoint, Map<String, Object> payload, Map<String, String> headers) {
+            this.endpoint = endpoint;
+            this.payload = payload;
+            this.headers = headers;
+        }
+    }
+
+    private final int capacity;
+    private final OverloadPolicy policy;
+    private final Handler handler;
+    private final Thread[] workers;
+
+    // guarded by this
+    private final ArrayDeque<Item> queue = new ArrayDeque<>();
+    private final Map<String, Item> newestByEndpoint = new HashMap<>();
+    private final ArrayDeque<Item> overflow = new ArrayDeque<>();
+    private boolean accepting = true;
+    private int active;
+    private boolean spilling;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder spilled = new LongAdder();
+
+    /**
+     * @param capacity Maximum queued posts
+     * @param threads  Number of daemon worker threads
+     * @param policy   Overload behaviour when the queue is full
+     * @param handler  Performs a post
+     */
+    public PostDispatcher(int capacity, int threads, OverloadPolicy policy, Handler handler) {
+        this.capacity = Math.max(1, capacity);
+        this.policy = policy;
+        this.handler = handler;
+        this.workers = new Thread[Math.max(1, threads)];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Thread(this::workLoop, "Diocles-Dispatch-" + (i + 1));
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+        // DROP_OLDEST never spills
+        if (policy != OverloadPolicy.DROP_OLDEST) {
+            Thread spiller = new Thread(this::spillLoop, "Diocles-Spill");
+            spiller.setDaemon(true);
+            spiller.start();
+        }
+    }
+
+    /**
+     * Queue a post without extra headers.
+     *
+     * @param endpoint API path
+     * @param payload  Name-keyed payload; ownership passes to the dispatcher
+     * @return false if the dispatcher has been shut down and the post was not
+     *         accepted
+     */
+    public boolean submit(String endpoint, Map<String, Object> payload) {
+        return submit(endpoint, payload, Map.of());
+    }
+
+    /**
+     * Queue a post. It is only coalesced into a queued post with the same
+     * headers, so e.g. a full and a delta sync are never merged.
+     *
+     * @param endpoint API path
+     * @param payload  Name-keyed payload; ownership passes to the dispatcher
+     * @param headers  Extra request headers
+     * @return false if the dispatcher has been shut down and the post was not
+     *         accepted
+     */
+    public boolean submit(String endpoint, Map<String, Object> payload, Map<String, String> headers) {
+        synchronized (this) {
+            if (!accepting)
+                return false;
+            submitted.increment();
+            if (!overflow.isEmpty() || spilling) {
+                // earlier posts are still spilling: queueing this one would overtake them
+                Item last = overflow.peekLast();
+                if (policy == OverloadPolicy.COALESCE && last != null && last.endpoint.equals(endpoint)
+                        && last.headers.equals(headers)) {
+                    last.payload.putAll(payload);
+                    coalesced.increment();
+                } else {
+                    spill(endpoint, payload, headers);
+                }
+                return true;
+            }
+            if (queue.size() < capacity) {
+                enqueue(endpoint, payload, headers);
+                return true;
+            }
+            switch (policy) {
+                case DROP_OLDEST -> {
+                    Item oldest = queue.pollFirst();
+                    if (oldest != null && newestByEndpoint.get(oldest.endpoint) == oldest)
+                        newestByEndpoint.remove(oldest.endpoint);
+                    dropped.increment();
+                    enqueue(endpoint, payload, headers);
+                    return true;
+                }
+                case COALESCE -> {
+                    Item newest = newestByEndpoint.get(endpoint);
+                    if (newest != null && newest.headers.equals(headers)) {
+                        newest.payload.putAll(payload);
+                        coalesced.increment();
+                        return true;
+                    }
+                    // nothing queued with these headers to merge into: spill below
+                }
+                case SPILL -> {
+                    // handled below
+                }
+            }
+            spill(endpoint, payload, headers);
+            return true;
+        }
+    }
+
+    /**
+     * Stop accepting posts and let the workers drain the queue until the
+     * deadline passes.
+     *
+     * @param timeoutMs Longest time to wait for the queue to drain
+     * @return Number of posts still queued (abandoned) at the deadline
+     */
+    public int shutdown(long timeoutMs) {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        synchronized (this) {
+            accepting = false;
+            notifyAll();
+            while ((!queue.isEmpty() || active > 0 || !overflow.isEmpty() || spilling)
+                    && System.currentTimeMillis() < deadline) {
+                try {
+                    wait(Math.max(1, deadline - System.currentTimeMillis()));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            int left = queue.size() + overflow.size();
+            queue.clear();
+            newestByEndpoint.clear();
+            overflow.clear();
+            dropped.add(left);
+            // idle workers exit once woken; never interrupt a busy one, as that would
+            // close the spool's file channel underneath it
+            notifyAll();
+            return left;
+        }
+    }
+
+    /** @return Posts currently waiting in the queue or the overflow */
+    public synchronized int queueDepth() {
+        return queue.size() + overflow.size();
+    }
+
+    /** @return Configured queue capacity */
+    public int capacity() {
+        return capacity;
+    }
+
+    /** @return Configured overload policy */
+    public OverloadPolicy policy() {
+        return policy;
+    }
+
+    /** @return Posts accepted by {@link #submit} */
+    public long submittedCount() {
+        return submitted.sum();
+    }
+
+    /** @return Posts handled by a worker or spilled */
+    public long completedCount() {
+        return completed.sum();
+    }
+
+    /** @return Posts discarded because the queue or overflow was full, or abandoned at shutdown */
+    public long droppedCount() {
+        return dropped.sum();
+    }
+
+    /** @return Posts merged into an already queued post */
+    public long coalescedCount() {
+        return coalesced.sum();
+    }
+
+    /** @return Posts handed to the spill thread because the queue was full */
+    public long spilledCount() {
+        return spilled.sum();
+    }
+
+    private void enqueue(String endpoint, Map<String, Object> payload, Map<String, String> headers) {
+        Item item = new Item(endpoint, payload instanceof LinkedHashMap ? payload : new LinkedHashMap<>(payload),
+                new LinkedHashMap<>(headers));
+        queue.addLast(item);
+        newestByEndpoint.put(endpoint, item);
+        notifyAll(); // the spill thread waits on this monitor too
+    }
+
+    // caller holds the lock
+    private void spill(String endpoint, Map<String, Object> payload, Map<String, String> headers) {
+        if (overflow.size() >= capacity) {
+            // the spill thread cannot keep up either: newer posts carry newer counts
+            overflow.pollFirst();
+            dropped.increment();
+        }
+        overflow.addLast(new Item(endpoint, payload instanceof LinkedHashMap ? payload : new LinkedHashMap<>(payload),
+                new LinkedHashMap<>(headers)));
+        spilled.increment();
+        notifyAll();
+    }
+
+    private void spillLoop() {
+        while (true) {
+            Item item;
+            synchronized (this) {
+                // queued posts are older than any spilled one, so they go first
+                while (overflow.isEmpty() || !queue.isEmpty() || active > 0) {
+                    if (!accepting && overflow.isEmpty()) {
+                        notifyAll();
+                        return;
+                    }
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        if (!accepting && overflow.isEmpty())
+                            return;
+                    }
+                }
+                item = overflow.pollFirst();
+                spilling = true;
+            }
+            try {
+                runHandler(item.endpoint, item.payload, item.headers);
+            } finally {
+                synchronized (this) {
+                    spilling = false;
+                    notifyAll();
+                }
+            }
+        }
+    }
+
+    private void workLoop() {
+        while (true) {
+            Item item;
+            synchronized (this) {
+                while (queue.isEmpty()) {
+                    if (!accepting) {
+                        notifyAll();
+                        return;
+                    }
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        if (!accepting && queue.isEmpty())
+                            return;
+                    }
+                }
+                item = queue.pollFirst();
+                if (newestByEndpoint.get(item.endpoint) == item)
+                    newestByEndpoint.remove(item.endpoint);
+                active++;
+            }
+            try {
+                runHandler(item.endpoint, item.payload, item.headers);
+            } finally {
+                synchronized (this) {
+                    active--;
+                    notifyAll();
+                }
+            }
+        }
+    }
+
+    private void runHandler(String endpoint, Map<String, Object> payload, Map<String, String> headers) {
+        try {
+            handler.post(endpoint, payload, headers);
+        } catch (RuntimeException e) {
+            DioclesLog.error("Dispatch failed endpoint={} error={}", endpoint, e.getMessage());
+        }
+        completed.increment();
+    }
+}
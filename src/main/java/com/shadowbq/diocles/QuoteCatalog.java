@@ -0,0 +1,141 @@
+package com.shadowbq.diocles;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+
+/**
+ * Immutable set of pre-formatted announcement quotes with no-repeat selection.
+ *
+ * Quotes come from the bundled {@code announce_quotes.json} plus any
+ * {@code *.json} packs (same format) in a pack directory. They are parsed and
+ * formatted once; picking a quote is an array read. Selection walks a
+ * shuffled permutation of all quotes (a shuffle bag), so every quote is shown
+ * once before any repeats, and a new round never starts with the quote that
+ * ended the previous one.
+ */
+public class QuoteCatalog {
+    public static final String NO_QUOTES = "No quotes available!";
+    private static final String BUILTIN_RESOURCE = "/announce_quotes.json";
+
+    private final String[] quotes;
+    // guarded by this
+    private final int[] bag;
+    private int cursor;
+    private int last = -1;
+
+    private QuoteCatalog(String[] quotes) {
+        this.quotes = quotes;
+        this.bag = new int[quotes.length];
+        for (int i = 0; i < bag.length; i++)
+            bag[i] = i;
+        this.cursor = bag.length; // shuffle on first pick
+    }
+
+    /**
+     * Load the bundled quotes and every pack in a directory.
+     *
+     * @param packDir Directory of extra {@code *.json} quote packs, may be null
+     *                or missing
+     * @return Loaded catalog; unreadable packs are reported and skipped
+     */
+    public static QuoteCatalog load(Path packDir) {
+        List<String> out = new ArrayList<>();
+        try (InputStream is = QuoteCatalog.class.getResourceAsStream(BUILTIN_RESOURCE)) {
+            if (is != null)
+                parse(new InputStreamReader(is, StandardCharsets.UTF_8), out);
+        } catch (Exception e) {
+            DioclesLog.error("Failed loading bundled quotes error={}", e.getMessage());
+        }
+        if (packDir != null && Files.isDirectory(packDir)) {
+            List<Path> packs = new ArrayList<>();
+            try (Stream<Path> files = Files.list(packDir)) {
+                files.filter(p -> p.getFileName().toString().endsWith(".json")).sorted().forEach(packs::add);
+            } catch (IOException e) {
+                DioclesLog.warn("Failed listing quote packs dir={} error={}", packDir, e.getMessage());
+            }
+            for (Path pack : packs) {
+                try (Reader r = Files.newBufferedReader(pack, StandardCharsets.UTF_8)) {
+                    parse(r, out);
+                } catch (Exception e) {
+                    DioclesLog.warn("Skipping quote pack file={} error={}", pack.getFileName(), e.getMessage());
+                }
+            }
+        }
+        return new QuoteCatalog(out.toArray(new String[0]));
+    }
+
+    /**
+     * @param formatted Already formatted quotes
+     * @return Catalog over exactly these quotes
+     */
+    public static QuoteCatalog of(List<String> formatted) {
+        return new QuoteCatalog(formatted.toArray(new String[0]));
+    }
+
+    /**
+     * @return Number of quotes in the catalog
+     */
+    public int size() {
+        return quotes.length;
+    }
+
+    /**
+     * @return Next quote from the shuffle bag, or {@link #NO_QUOTES} if empty
+     */
+    public synchronized String next() {
+        if (quotes.length == 0)
+            return NO_QUOTES;
+        if (cursor == bag.length)
+            reshuffle();
+        last = bag[cursor++];
+        return quotes[last];
+    }
+
+    private void reshuffle() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = bag.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int t = bag[i];
+            bag[i] = bag[j];
+            bag[j] = t;
+        }
+        // no back-to-back repeat across rounds
+        if (bag.length > 1 && bag[0] == last) {
+            int j = 1 + random.nextInt(bag.length - 1);
+            bag[0] = bag[j];
+            bag[j] = last;
+        }
+        cursor = 0;
+    }
+
+    private static void parse(Reader reader, List<String> out) {
+        for (JsonElement el : JsonParser.parseReader(reader).getAsJsonArray()) {
+            if (!el.isJsonObject())
+                continue;
+            JsonObject q = el.getAsJsonObject();
+            if (!q.has("quote") || !q.has("source"))
+                continue;
+            out.add(format(q.get("quote").getAsString(), q.get("source").getAsString()));
+        }
+    }
+
+    /**
+     * @return Quote in announcement format: gold quote, gray source
+     */
+    public static String format(String quote, String source) {
+        return "§6\"" + quote + "§6\" §7- " + source;
+    }
+}
@@ -0,0 +1,100 @@
+package com.shadowbq.diocles;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.LongSupplier;
+
+/**
+ * Detects server-day changes without reading the world time every tick.
+ *
+ * After each read the clock computes how many ticks remain until the next day
+ * boundary and only counts down until then. Anything that moves time by more
+ * than one tick (/time set or add, sleeping through the night) must call
+ * {@link #rearm()} so the time is read again on the next tick. A frozen
+ * daylight cycle simply finds the day unchanged when the countdown expires.
+ *
+ * {@link #tick()} is meant to be called from the server thread only.
+ */
+public class ServerDayClock {
+    public static final long TICKS_PER_DAY = 24000L;
+
+    /**
+     * Notified on the server thread when the day changes.
+     */
+    @FunctionalInterface
+    public interface Listener {
+        /**
+         * @param previousDay Day before the change
+         * @param day         New day
+         */
+        void onDayChanged(long previousDay, long day);
+    }
+
+    private final LongSupplier timeOfDay;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private volatile boolean rearm = true;
+    private long day = Long.MIN_VALUE; // MIN_VALUE: not read yet
+    private long countdown;
+
+    /**
+     * @param timeOfDay Reads the overworld time of day in ticks
+     */
+    public ServerDayClock(LongSupplier timeOfDay) {
+        this.timeOfDay = timeOfDay;
+    }
+
+    /**
+     * @param listener Called on each day change
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Advance the clock by one server tick.
+     */
+    public void tick() {
+        if (!rearm && --countdown > 0)
+            return;
+        check();
+    }
+
+    /**
+     * Read the time again on the next tick, because it jumped.
+     */
+    public void rearm() {
+        rearm = true;
+    }
+
+    /**
+     * @return Day seen at the last read, or {@link Long#MIN_VALUE} before the
+     *         first tick
+     */
+    public long currentDay() {
+        return day;
+    }
+
+    private void check() {
+        rearm = false;
+        long time;
+        try {
+            time = timeOfDay.getAsLong();
+        } catch (RuntimeException e) {
+            countdown = 1; // world not ready yet, try again next tick
+            return;
+        }
+        long now = Math.floorDiv(time, TICKS_PER_DAY);
+        countdown = TICKS_PER_DAY - Math.floorMod(time, TICKS_PER_DAY);
+        long previous = day;
+        day = now;
+        if (previous == Long.MIN_VALUE || previous == now)
+            return;
+        for (Listener l : listeners) {
+            try {
+                l.onDayChanged(previous, now);
+            } catch (RuntimeException e) {
+                DioclesLog.error("Day change listener failed error={}", e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.shadowbq.diocles;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-player change tracking for delta /api/sync posts.
+ *
+ * Every change to a player (a death, or a scoreboard count that differs from
+ * what was last sent) stamps the player with the next value of a monotonically
+ * increasing sequence. A player's stamp is only cleared when the API
+ * acknowledges a sync that actually carried the player, or discarded when
+ * there is nothing to carry for them, and a delta sync
+ * carries every player still stamped. Deltas are therefore cumulative: a sync
+ * that is dropped or merged before delivery loses nothing, and a full sync
+ * (which only carries online players) never clears an offline player's
+ * change.
+ */
+public class SyncTracker {
+    /**
+     * One planned sync.
+     *
+     * @param seq  Sequence covered by this sync; acknowledge it once delivered
+     * @param full Whether the sync carries every player instead of a delta
+     */
+    public record Sync(long seq, boolean full) {
+    }
+
+    // syncs sent but not yet acknowledged; older ones are forgotten (their players stay stamped)
+    private static final int MAX_UNACKNOWLEDGED = 64;
+
+    private final int fullEvery;
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong acknowledged = new AtomicLong(-1); // -1: nothing acknowledged since start
+    private final Map<UUID, Long> changedAt = new ConcurrentHashMap<>();
+    private final Map<UUID, Integer> lastSentCount = new ConcurrentHashMap<>();
+    private final TreeMap<Long, Set<UUID>> carried = new TreeMap<>(); // guarded by this: seq -> players sent
+    private int syncsSinceFull;
+
+    /**
+     * @param fullEvery Send a full sync every this many syncs (1 = always full)
+     */
+    public SyncTracker(int fullEvery) {
+        this.fullEvery = Math.max(1, fullEvery);
+    }
+
+    /**
+     * Record that a player's details changed.
+     *
+     * @param uuid Player UUID
+     */
+    public void markChanged(UUID uuid) {
+        changedAt.put(uuid, sequence.incrementAndGet());
+    }
+
+    /**
+     * Compare a player's current count with the count last sent and mark the
+     * player changed if they differ (e.g. after a /scoreboard edit).
+     *
+     * @param uuid  Player UUID
+     * @param count Current death count
+     */
+    public void observeCount(UUID uuid, int count) {
+        Integer sent = lastSentCount.get(uuid);
+        if (sent == null || sent != count)
+            markChanged(uuid);
+    }
+
+    /**
+     * Plan the next sync. The first sync after start, and every
+     * {@code fullEvery}-th sync, is full.
+     *
+     * @return Sequence and mode for the sync
+     */
+    public synchronized Sync begin() {
+        boolean full = acknowledged.get() < 0 || ++syncsSinceFull >= fullEvery;
+        if (full)
+            syncsSinceFull = 0;
+        return new Sync(sequence.get(), full);
+    }
+
+    /**
+     * @return Players with a change no acknowledged sync has carried yet
+     */
+    public List<UUID> changedPlayers() {
+        return new ArrayList<>(changedAt.keySet());
+    }
+
+    /**
+     * Drop a player's change stamp without sending it, for a change there is
+     * nothing to send for (an offline player with no journaled death). If the
+     * player comes back with a count that differs from the last one sent,
+     * {@link #observeCount} stamps them again.
+     *
+     * @param uuid Player UUID
+     */
+    public void discard(UUID uuid) {
+        changedAt.remove(uuid);
+    }
+
+    /**
+     * Record that a player, with this count, is included in a sync payload.
+     *
+     * @param sync  Sync the player is sent in
+     * @param uuid  Player UUID
+     * @param count Death count sent
+     */
+    public synchronized void sent(Sync sync, UUID uuid, int count) {
+        lastSentCount.put(uuid, count);
+        carried.computeIfAbsent(sync.seq(), k -> new HashSet<>()).add(uuid);
+        while (carried.size() > MAX_UNACKNOWLEDGED)
+            carried.pollFirstEntry();
+    }
+
+    /**
+     * Record that the API accepted the sync with the given sequence. The
+     * change stamps of the players it carried are dropped, unless they changed
+     * again after the sync was planned.
+     *
+     * @param seq Acknowledged sequence
+     */
+    public synchronized void acknowledge(long seq) {
+        acknowledged.accumulateAndGet(seq, Math::max);
+        Set<UUID> players = carried.remove(seq);
+        // older syncs are covered or superseded; their players stay stamped until carried again
+        carried.headMap(seq).clear();
+        if (players == null)
+            return;
+        for (UUID uuid : players)
+            changedAt.computeIfPresent(uuid, (k, stamp) -> stamp <= seq ? null : stamp);
+    }
+
+    /**
+     * @return Last acknowledged sequence, or -1 if none since start
+     */
+    public long acknowledgedSeq() {
+        return acknowledged.get();
+    }
+}
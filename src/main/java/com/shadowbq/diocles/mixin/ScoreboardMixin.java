@@ -0,0 +1,62 @@
+package com.shadowbq.diocles.mixin;
+
+import com.shadowbq.diocles.DeathboardManager;
+import com.shadowbq.diocles.ObjectiveRegistry;
+import net.minecraft.scoreboard.ScoreHolder;
+import net.minecraft.scoreboard.Scoreboard;
+import net.minecraft.scoreboard.ScoreboardObjective;
+import net.minecraft.scoreboard.ScoreboardScore;
+import net.minecraft.scoreboard.ServerScoreboard;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
+
+/**
+ * Keeps {@link ObjectiveRegistry}'s cached handle in step with objective
+ * removal and re-creation, and feeds death-count changes on the server
+ * scoreboard to the leaderboard index.
+ */
+@Mixin(Scoreboard.class)
+public class ScoreboardMixin {
+
+    @Inject(method = "addObjective", at = @At("RETURN"))
+    private void onObjectiveAdded(CallbackInfoReturnable<ScoreboardObjective> cir) {
+        ObjectiveRegistry.onAdded(cir.getReturnValue());
+    }
+
+    @Inject(method = "removeObjective", at = @At("HEAD"))
+    private void onObjectiveRemoved(ScoreboardObjective objective, CallbackInfo ci) {
+        ObjectiveRegistry.onRemoved(objective);
+        if (isServer() && isDeaths(objective))
+            DeathboardManager.onDeathsObjectiveRemoved();
+    }
+
+    @Inject(method = "updateScore", at = @At("TAIL"))
+    private void onScoreUpdated(ScoreHolder scoreHolder, ScoreboardObjective objective, ScoreboardScore score,
+            CallbackInfo ci) {
+        if (isServer() && isDeaths(objective))
+            DeathboardManager.onDeathScoreChanged(scoreHolder.getNameForScoreboard(), score.getScore());
+    }
+
+    @Inject(method = "onScoreRemoved", at = @At("TAIL"))
+    private void onScoreRemoved(ScoreHolder scoreHolder, ScoreboardObjective objective, CallbackInfo ci) {
+        if (isServer() && isDeaths(objective))
+            DeathboardManager.onDeathScoreRemoved(scoreHolder.getNameForScoreboard());
+    }
+
+    @Inject(method = "onScoreHolderRemoved", at = @At("TAIL"))
+    private void onScoreHolderRemoved(ScoreHolder scoreHolder, CallbackInfo ci) {
+        if (isServer())
+            DeathboardManager.onDeathScoreRemoved(scoreHolder.getNameForScoreboard());
+    }
+
+    private boolean isServer() {
+        return (Object) this instanceof ServerScoreboard;
+    }
+
+    private static boolean isDeaths(ScoreboardObjective objective) {
+        return objective != null && DeathboardManager.OBJECTIVE_NAME.equals(objective.getName());
+    }
+}
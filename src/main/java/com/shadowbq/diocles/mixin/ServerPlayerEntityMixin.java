@@ -11,10 +11,11 @@ import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 @Mixin(ServerPlayerEntity.class)
 public class ServerPlayerEntityMixin {
 
-    @Inject(method = "onDeath(Lnet/minecraft/entity/damage/DamageSource;)V", at = @At("HEAD"))
+    // TAIL, like Fabric's AFTER_DEATH, so either report sees the incremented death count;
+    // handleDeath collapses the two reports into one
+    @Inject(method = "onDeath(Lnet/minecraft/entity/damage/DamageSource;)V", at = @At("TAIL"))
     private void onPlayerDeath(DamageSource damageSource, CallbackInfo ci) {
         ServerPlayerEntity player = (ServerPlayerEntity) (Object) this;
-        System.out.println("[Diocles] Player death detected: " + player.getName().getString());
-        DeathboardManager.handleDeath(player.getServer(), player);
+        DeathboardManager.handleDeath(player.getServer(), player, damageSource);
     }
 }
@@ -0,0 +1,24 @@
+package com.shadowbq.diocles.mixin;
+
+import com.shadowbq.diocles.DeathboardManager;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.world.World;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+/**
+ * Re-arms the server-day clock when overworld time jumps instead of advancing
+ * by the usual single tick.
+ */
+@Mixin(ServerWorld.class)
+public class ServerWorldMixin {
+
+    @Inject(method = "setTimeOfDay", at = @At("HEAD"))
+    private void onSetTimeOfDay(long timeOfDay, CallbackInfo ci) {
+        ServerWorld world = (ServerWorld) (Object) this;
+        if (timeOfDay != world.getTimeOfDay() + 1L && world.getRegistryKey() == World.OVERWORLD)
+            DeathboardManager.onTimeJump();
+    }
+}
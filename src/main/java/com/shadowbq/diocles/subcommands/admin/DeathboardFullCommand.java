@@ -5,6 +5,7 @@ import com.mojang.brigadier.context.CommandContext;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.command.ServerCommandSource;
 import com.shadowbq.diocles.DeathboardManager;
+import com.shadowbq.diocles.DioclesLog;
 
 /**
  * Admin command that prints full deathboard JSON to console
@@ -15,8 +16,8 @@ public class DeathboardFullCommand {
         ServerCommandSource src = ctx.getSource();
         MinecraftServer server = src.getServer();
         var payload = DeathboardManager.buildFullPayload(server);
-        System.out.println("=== Diocles Deathboard (Full) ===");
-        System.out.println(new GsonBuilder().setPrettyPrinting().create().toJson(payload));
+        DioclesLog.command("=== Diocles Deathboard (Full) ===\n{}",
+                new GsonBuilder().setPrettyPrinting().create().toJson(payload));
         return 1;
     }
 }
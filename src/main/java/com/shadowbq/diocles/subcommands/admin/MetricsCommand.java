@@ -0,0 +1,22 @@
+package com.shadowbq.diocles.subcommands.admin;
+
+import com.mojang.brigadier.context.CommandContext;
+import net.minecraft.server.command.ServerCommandSource;
+import net.minecraft.text.Text;
+import com.shadowbq.diocles.Metrics;
+
+/**
+ * Admin command that lists every Diocles metric with its current value
+ */
+public class MetricsCommand {
+
+    public static int execute(CommandContext<ServerCommandSource> ctx) {
+        ServerCommandSource src = ctx.getSource();
+        StringBuilder lines = new StringBuilder("§6[Diocles] Metrics:");
+        for (Metrics.Metric m : Metrics.all())
+            lines.append("\n§e").append(m.name()).append(": §f").append(m.summary());
+        String text = lines.toString();
+        src.sendFeedback(() -> Text.literal(text), false);
+        return 1;
+    }
+}
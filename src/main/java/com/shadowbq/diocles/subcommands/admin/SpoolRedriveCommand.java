@@ -0,0 +1,33 @@
+package com.shadowbq.diocles.subcommands.admin;
+
+import com.mojang.brigadier.context.CommandContext;
+import net.minecraft.server.command.ServerCommandSource;
+import net.minecraft.text.Text;
+import com.shadowbq.diocles.DeathboardManager;
+import com.shadowbq.diocles.OutboundSpool;
+
+import java.io.IOException;
+
+/**
+ * Admin command that puts posts parked in spool.dead back on the spool
+ */
+public class SpoolRedriveCommand {
+
+    public static int execute(CommandContext<ServerCommandSource> ctx) {
+        ServerCommandSource src = ctx.getSource();
+        OutboundSpool spool = DeathboardManager.getSpool();
+        if (spool == null) {
+            src.sendFeedback(() -> Text.literal("§7[Diocles] Spool not running (no API configured)."), false);
+            return 1;
+        }
+        try {
+            int count = spool.redriveParked();
+            src.sendFeedback(() -> Text.literal("§6[Diocles] Requeued §f" + count + "§6 parked post(s)."), true);
+            return 1;
+        } catch (IOException e) {
+            src.sendFeedback(() -> Text.literal("§c[Diocles] Failed to requeue parked posts: " + e.getMessage()),
+                    false);
+            return 0;
+        }
+    }
+}
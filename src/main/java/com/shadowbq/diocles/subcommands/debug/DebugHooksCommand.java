@@ -0,0 +1,47 @@
+package com.shadowbq.diocles.subcommands.debug;
+
+import com.mojang.brigadier.context.CommandContext;
+import net.minecraft.server.command.ServerCommandSource;
+import net.minecraft.text.Text;
+import com.shadowbq.diocles.DeathboardManager;
+import com.shadowbq.diocles.HookProfiler;
+
+/**
+ * Debug command that shows how much server-thread time Diocles costs per
+ * tick and which hooks are the worst offenders
+ */
+public class DebugHooksCommand {
+    // one tick at 20 TPS
+    private static final long TICK_NANOS = 50_000_000L;
+
+    public static int execute(CommandContext<ServerCommandSource> ctx) {
+        ServerCommandSource src = ctx.getSource();
+        HookProfiler profiler = DeathboardManager.getProfiler();
+
+        HookProfiler.TickStats t = profiler.tickStats();
+        src.sendFeedback(() -> Text.literal("§6[Diocles] Hook cost over the last " + t.ticks() + " ticks:"), false);
+        src.sendFeedback(() -> Text.literal(String.format(
+                "§eper tick: §favg %s, worst %s §7(%.3f%% of a 50ms tick) | budget %s, §%s%d§7 over (%d total)",
+                micros(t.avgNanos()), micros(t.maxNanos()), 100.0 * t.avgNanos() / TICK_NANOS,
+                micros(t.budgetNanos()), t.overBudget() > 0 ? "c" : "a", t.overBudget(), t.overBudgetTotal())),
+                false);
+
+        for (HookProfiler.HookStats h : profiler.worstHooks()) {
+            src.sendFeedback(() -> Text.literal(String.format(
+                    "§e%s: §f%d calls §7| p50 %s, p99 %s, max %s | total %s | %s%d slow",
+                    h.name(), h.calls(), micros(h.p50Nanos()), micros(h.p99Nanos()), micros(h.maxNanos()),
+                    micros(h.totalNanos()), h.slowCalls() > 0 ? "§c" : "§7", h.slowCalls())), false);
+            HookProfiler.SlowSample s = h.lastSlow();
+            if (s != null && !s.stack().isEmpty()) {
+                long agoSec = Math.max(0, (System.currentTimeMillis() - s.atMillis()) / 1000L);
+                src.sendFeedback(() -> Text.literal("§7  last slow call " + agoSec + "s ago ("
+                        + s.elapsedNanos() / 1_000_000L + " ms) at " + s.stack().get(0)), false);
+            }
+        }
+        return 1;
+    }
+
+    private static String micros(long nanos) {
+        return nanos >= 10_000_000L ? (nanos / 1_000_000L) + "ms" : (nanos / 1000L) + "µs";
+    }
+}
@@ -1,82 +1,59 @@
 package com.shadowbq.diocles.subcommands.debug;
 
 import com.mojang.brigadier.context.CommandContext;
+import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.command.ServerCommandSource;
 import net.minecraft.text.Text;
-
-import java.net.HttpURLConnection;
-import java.net.URI;
-import java.net.URL;
+import com.shadowbq.diocles.ApiHealthMonitor;
+import com.shadowbq.diocles.DeathboardManager;
 
 /**
- * Debug command that tests API connectivity with health endpoint fallback
+ * Debug command that reports API connectivity with health endpoint fallback
+ * (/health, /ping, then base URL). Answers instantly from the background
+ * health monitor; if it has no recent result, starts a probe round and
+ * reports back when it finishes, so the server thread never waits on the
+ * network.
  */
 public class DebugPingCommand {
 
     public static int execute(CommandContext<ServerCommandSource> ctx) {
         ServerCommandSource src = ctx.getSource();
-        try {
-            // Get config values - using environment variables like current code
-            String postUrl = System.getenv("DIOCLES_XHOST");
-            String authKey = System.getenv("DIOCLES_AUTHKEY");
-
-            if (postUrl == null || postUrl.isBlank()) {
-                src.sendFeedback(() -> Text.literal("§c[Diocles] No API URL configured"), false);
-                return 1;
-            }
-
-            // Try health endpoints in order: /health, /ping, then base URL
-            String[] endpoints = { "/health", "/ping", "" };
-            boolean success = false;
-            String successEndpoint = "";
-            int finalCode = 0;
-            String lastError = "";
-
-            for (String endpoint : endpoints) {
-                try {
-                    URI baseUri = URI.create(postUrl);
-                    URI fullUri = baseUri.resolve(endpoint);
-                    URL url = fullUri.toURL();
-
-                    HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-                    conn.setRequestMethod("GET");
-                    if (authKey != null && !authKey.isBlank()) {
-                        conn.setRequestProperty("authkey", authKey);
-                    }
-                    conn.setConnectTimeout(3000);
-                    conn.setReadTimeout(5000);
-                    conn.connect();
-
-                    finalCode = conn.getResponseCode();
-                    conn.disconnect();
+        MinecraftServer server = src.getServer();
+        ApiHealthMonitor monitor = DeathboardManager.getHealthMonitor();
+        if (monitor == null) {
+            src.sendFeedback(() -> Text.literal("§c[Diocles] No API URL configured"), false);
+            return 1;
+        }
 
-                    if (finalCode == 200) {
-                        success = true;
-                        successEndpoint = endpoint.isEmpty() ? "base URL" : endpoint;
-                        break;
-                    }
-                } catch (Exception e) {
-                    lastError = e.getMessage();
-                    // Continue to next endpoint
-                }
-            }
+        ApiHealthMonitor.Snapshot snapshot = monitor.snapshot();
+        long age = System.currentTimeMillis() - snapshot.checkedAtMillis();
+        if (snapshot.checkedAtMillis() > 0 && monitor.intervalMs() > 0 && age <= 2 * monitor.intervalMs()) {
+            report(src, snapshot);
+            return 1;
+        }
 
-            // Make variables effectively final for lambda
-            final String finalSuccessEndpoint = successEndpoint;
-            final int responseCode = finalCode;
-            final String errorMessage = lastError;
+        src.sendFeedback(() -> Text.literal("§7[Diocles] Pinging API..."), false);
+        monitor.probeNow().thenAccept(result -> server.execute(() -> report(src, result)));
+        return 1;
+    }
 
-            if (success) {
-                src.sendFeedback(
-                        () -> Text.literal("§a[Diocles] Pong from API ✅ (" + finalSuccessEndpoint + ")"),
-                        false);
-            } else {
-                src.sendFeedback(() -> Text.literal("§c[Diocles] Ping failed ❌ (Status: " + responseCode
-                        + ", Error: " + errorMessage + ")"), false);
-            }
-        } catch (Exception e) {
-            src.sendFeedback(() -> Text.literal("§c[Diocles] Ping error: " + e.getMessage()), false);
+    private static void report(ServerCommandSource src, ApiHealthMonitor.Snapshot snapshot) {
+        long ageSec = Math.max(0, (System.currentTimeMillis() - snapshot.checkedAtMillis()) / 1000L);
+        ApiHealthMonitor.EndpointStatus best = snapshot.best();
+        if (best != null) {
+            src.sendFeedback(() -> Text.literal("§a[Diocles] Pong from API ✅ (" + best.endpoint() + ", checked "
+                    + ageSec + "s ago)"), false);
+        } else {
+            // report the last endpoint tried, as the fallback chain did
+            ApiHealthMonitor.EndpointStatus last = snapshot.endpoints().get(snapshot.endpoints().size() - 1);
+            src.sendFeedback(() -> Text.literal("§c[Diocles] Ping failed ❌ (Status: " + last.lastCode()
+                    + ", Error: " + last.lastError() + ", checked " + ageSec + "s ago)"), false);
+        }
+        for (ApiHealthMonitor.EndpointStatus e : snapshot.endpoints()) {
+            String line = String.format("§7  %s: %s §7avg %.0fms, p50 %dms, p90 %dms, p99 %dms, %d/%d failed",
+                    e.endpoint(), e.up() ? "§aup" : "§cdown (" + e.lastCode() + ")", e.ewmaMs(), e.p50Ms(),
+                    e.p90Ms(), e.p99Ms(), e.failures(), e.probes());
+            src.sendFeedback(() -> Text.literal(line), false);
         }
-        return 1;
     }
 }
@@ -0,0 +1,40 @@
+package com.shadowbq.diocles.subcommands.debug;
+
+import com.mojang.brigadier.context.CommandContext;
+import net.minecraft.server.command.ServerCommandSource;
+import net.minecraft.text.Text;
+import com.shadowbq.diocles.DeathboardManager;
+import com.shadowbq.diocles.OutboundSpool;
+import com.shadowbq.diocles.PostDispatcher;
+
+/**
+ * Debug command that shows dispatch queue depth, overload counters and spool
+ * backlog
+ */
+public class DebugQueueCommand {
+
+    public static int execute(CommandContext<ServerCommandSource> ctx) {
+        ServerCommandSource src = ctx.getSource();
+        PostDispatcher dispatcher = DeathboardManager.getDispatcher();
+        if (dispatcher == null) {
+            src.sendFeedback(() -> Text.literal("§7[Diocles] Dispatcher not running (no API configured)."), false);
+            return 1;
+        }
+
+        src.sendFeedback(() -> Text.literal("§6[Diocles] Dispatch Queue:"), false);
+        src.sendFeedback(() -> Text.literal("§equeued: §f" + dispatcher.queueDepth() + "§7/" + dispatcher.capacity()
+                + " §7| policy: §f" + dispatcher.policy().name().toLowerCase().replace('_', '-')), false);
+        src.sendFeedback(() -> Text.literal("§esubmitted: §f" + dispatcher.submittedCount()
+                + " §7| completed: §f" + dispatcher.completedCount()), false);
+        src.sendFeedback(() -> Text.literal("§edropped: §c" + dispatcher.droppedCount()
+                + " §7| coalesced: §f" + dispatcher.coalescedCount()
+                + " §7| spilled: §f" + dispatcher.spilledCount()), false);
+
+        OutboundSpool spool = DeathboardManager.getSpool();
+        if (spool != null) {
+            src.sendFeedback(() -> Text.literal("§espool backlog: §f" + spool.pendingCount() + " post(s), "
+                    + spool.pendingBytes() + " bytes §7| parked: §c" + spool.parkedCount()), false);
+        }
+        return 1;
+    }
+}
@@ -8,6 +8,7 @@ import net.minecraft.scoreboard.Scoreboard;
 import net.minecraft.scoreboard.ScoreboardObjective;
 import net.minecraft.text.Text;
 import com.shadowbq.diocles.DeathboardManager;
+import com.shadowbq.diocles.ObjectiveRegistry;
 
 /**
  * Debug command that shows current scoreboard state
@@ -18,9 +19,7 @@ public class DebugScoreboardCommand {
         ServerCommandSource src = ctx.getSource();
         MinecraftServer server = src.getServer();
         Scoreboard sb = server.getScoreboard();
-        ScoreboardObjective obj = sb.getObjectives().stream()
-                .filter(o -> o.getName().equals(DeathboardManager.OBJECTIVE_NAME))
-                .findFirst().orElse(null);
+        ScoreboardObjective obj = ObjectiveRegistry.get(sb);
 
         if (obj == null) {
             src.sendFeedback(
@@ -0,0 +1,49 @@
+package com.shadowbq.diocles.subcommands.player;
+
+import com.mojang.brigadier.context.CommandContext;
+import net.minecraft.server.command.ServerCommandSource;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.text.Text;
+import com.shadowbq.diocles.DeathCauseStats;
+import com.shadowbq.diocles.DeathboardManager;
+
+import java.util.List;
+
+/**
+ * Player command that shows the top 10 causes of death over the last seven
+ * server days, and the player's own top 3 causes
+ */
+public class CausesCommand {
+
+    public static int execute(CommandContext<ServerCommandSource> ctx) {
+        ServerCommandSource src = ctx.getSource();
+        DeathCauseStats stats = DeathboardManager.getCauseStats();
+
+        StringBuilder lines = new StringBuilder("§eTop Causes of Death (last " + DeathCauseStats.WEEK_DAYS
+                + " days):");
+        List<DeathCauseStats.Ranked> top = stats.topThisWeek(10, DeathboardManager.currentDay());
+        if (top.isEmpty())
+            lines.append("\n§7No deaths this week.");
+        appendRanked(lines, top);
+
+        ServerPlayerEntity player = src.getPlayer();
+        if (player != null) {
+            List<DeathCauseStats.Ranked> own = stats.topFor(player.getUuid(), 3);
+            if (!own.isEmpty()) {
+                lines.append("\n§6Your top causes:");
+                appendRanked(lines, own);
+            }
+        }
+        String text = lines.toString();
+        src.sendFeedback(() -> Text.literal(text), false);
+        return 1;
+    }
+
+    private static void appendRanked(StringBuilder lines, List<DeathCauseStats.Ranked> ranked) {
+        for (int i = 0; i < ranked.size(); i++) {
+            var r = ranked.get(i);
+            lines.append("\n§7").append(i + 1).append(". §f").append(r.cause().label())
+                    .append("§7 — §c").append(r.count()).append(" death(s)");
+        }
+    }
+}
@@ -6,16 +6,23 @@ import net.minecraft.server.command.ServerCommandSource;
 import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.scoreboard.Scoreboard;
 import net.minecraft.scoreboard.ScoreboardObjective;
+import net.minecraft.text.MutableText;
 import net.minecraft.text.Text;
 import com.shadowbq.diocles.DeathboardManager;
+import com.shadowbq.diocles.LeaderboardIndex;
+import com.shadowbq.diocles.ObjectiveRegistry;
 
-import java.util.*;
+import java.util.List;
 
 /**
- * Player command that shows top 10 death leaderboard and player's own death
- * count
+ * Player command that shows top 10 death leaderboard (online and offline
+ * players) and player's own death count and rank
  */
 public class DeathboardCommand {
+    private record RenderedTop(LeaderboardIndex board, long version, Text text) {
+    }
+
+    private static volatile RenderedTop topCache;
 
     public static int execute(CommandContext<ServerCommandSource> ctx) {
         ServerCommandSource src = ctx.getSource();
@@ -28,40 +35,41 @@ public class DeathboardCommand {
         }
         MinecraftServer server = src.getServer();
         Scoreboard sb = server.getScoreboard();
-        ScoreboardObjective obj = sb.getObjectives().stream()
-                .filter(o -> o.getName().equals(DeathboardManager.OBJECTIVE_NAME))
-                .findFirst().orElse(null);
+        ScoreboardObjective obj = ObjectiveRegistry.get(sb);
         if (obj == null) {
             player.sendMessage(Text.literal("§7[Diocles] Death objective not present."), false);
             return 1;
         }
 
-        List<Map.Entry<String, Integer>> scoreList = new ArrayList<>();
-        for (ServerPlayerEntity p : server.getPlayerManager().getPlayerList()) {
-            String name = p.getName().getString();
-            int score = 0;
-            try {
-                score = sb.getOrCreateScore(p, obj).getScore();
-            } catch (Exception ignored) {
-            }
-            scoreList.add(Map.entry(name, score));
-        }
-        scoreList.sort((a, b) -> Integer.compare(b.getValue(), a.getValue()));
+        LeaderboardIndex board = DeathboardManager.getLeaderboard();
+        String selfName = player.getName().getString();
+        Integer selfScore = board.score(selfName);
+        int selfRank = board.rank(selfName);
+        MutableText message = Text.literal("§6Your deaths: §c" + (selfScore != null ? selfScore : 0)
+                + (selfRank > 0 ? " §7(#" + selfRank + " of " + board.size() + ")" : "") + "\n");
+        player.sendMessage(message.append(renderTop(board)), false);
+        return 1;
+    }
 
-        int selfScore = 0;
-        try {
-            selfScore = sb.getOrCreateScore(player, obj).getScore();
-        } catch (Exception ignored) {
-        }
-        player.sendMessage(Text.literal("§6Your deaths: §c" + selfScore), false);
-        player.sendMessage(Text.literal("§eTop 10 Most Deaths:"), false);
-        for (int i = 0; i < Math.min(10, scoreList.size()); i++) {
-            var s = scoreList.get(i);
-            player.sendMessage(
-                    Text.literal(
-                            "§7" + (i + 1) + ". §f" + s.getKey() + "§7 — §c" + s.getValue() + " death(s)"),
-                    false);
+    /**
+     * @return The top 10 as one multi-line component, re-rendered only when
+     *         the board has changed since the last call
+     */
+    private static Text renderTop(LeaderboardIndex board) {
+        RenderedTop cached = topCache;
+        long version = board.version(); // read before top(), so a racing change only forces a re-render
+        if (cached != null && cached.board() == board && cached.version() == version)
+            return cached.text();
+
+        StringBuilder lines = new StringBuilder("§eTop 10 Most Deaths:");
+        List<LeaderboardIndex.Entry> top = board.top(10);
+        for (int i = 0; i < top.size(); i++) {
+            var s = top.get(i);
+            lines.append("\n§7").append(i + 1).append(". §f").append(s.name())
+                    .append("§7 — §c").append(s.score()).append(" death(s)");
         }
-        return 1;
+        Text text = Text.literal(lines.toString());
+        topCache = new RenderedTop(board, version, text);
+        return text;
     }
 }
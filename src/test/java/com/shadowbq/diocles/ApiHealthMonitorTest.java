@@ -0,0 +1,106 @@
+package com.shadowbq.diocles;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.ConnectException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for background API health probing
+ */
+public class ApiHealthMonitorTest {
+
+    private ScheduledExecutorService scheduler;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    void testProbesEndpointsConcurrently() throws Exception {
+        Map<String, CompletableFuture<Integer>> pending = new ConcurrentHashMap<>();
+        ApiHealthMonitor monitor = new ApiHealthMonitor("http://api.test:3000",
+                url -> pending.computeIfAbsent(url, u -> new CompletableFuture<>()), scheduler, 0);
+
+        CompletableFuture<ApiHealthMonitor.Snapshot> round = monitor.probeNow();
+        // every endpoint is in flight before any has answered
+        assertEquals(3, pending.size());
+        assertSame(round, monitor.probeNow(), "A running round should be shared");
+
+        pending.get("http://api.test:3000/health").complete(503);
+        pending.get("http://api.test:3000/ping").complete(200);
+        pending.get("http://api.test:3000").completeExceptionally(new ConnectException("refused"));
+
+        ApiHealthMonitor.Snapshot s = round.get(5, TimeUnit.SECONDS);
+        assertTrue(s.up());
+        assertEquals("/ping", s.best().endpoint());
+        assertEquals(503, s.endpoints().get(0).lastCode());
+        assertEquals("refused", s.endpoints().get(2).lastError());
+        assertSame(s, monitor.snapshot());
+    }
+
+    @Test
+    void testDownWhenNoEndpointAnswers() throws Exception {
+        ApiHealthMonitor monitor = new ApiHealthMonitor("http://api.test",
+                url -> CompletableFuture.failedFuture(new ConnectException("refused")), scheduler, 0);
+        ApiHealthMonitor.Snapshot s = monitor.probeNow().get(5, TimeUnit.SECONDS);
+        assertFalse(s.up());
+        assertNull(s.best());
+        assertTrue(s.checkedAtMillis() > 0);
+        for (ApiHealthMonitor.EndpointStatus e : s.endpoints())
+            assertEquals(1, e.failures());
+    }
+
+    @Test
+    void testLatencyStatistics() throws Exception {
+        ApiHealthMonitor monitor = new ApiHealthMonitor("http://api.test",
+                url -> CompletableFuture.supplyAsync(() -> {
+                    try {
+                        Thread.sleep(20);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return 200;
+                }), scheduler, 0);
+        for (int i = 0; i < 5; i++)
+            monitor.probeNow().get(5, TimeUnit.SECONDS);
+
+        ApiHealthMonitor.EndpointStatus health = monitor.snapshot().endpoints().get(0);
+        assertEquals(5, health.probes());
+        assertEquals(0, health.failures());
+        assertTrue(health.ewmaMs() >= 15, "EWMA should reflect latency: " + health.ewmaMs());
+        assertTrue(health.p50Ms() >= 15 && health.p50Ms() <= health.p90Ms() && health.p90Ms() <= health.p99Ms());
+    }
+
+    @Test
+    void testScheduledProbing() throws Exception {
+        List<String> seen = new CopyOnWriteArrayList<>();
+        ApiHealthMonitor monitor = new ApiHealthMonitor("http://api.test", url -> {
+            seen.add(url);
+            return CompletableFuture.completedFuture(200);
+        }, scheduler, 20);
+        monitor.start();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (seen.size() < 9 && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+        monitor.stop();
+        assertTrue(seen.size() >= 9, "Expected at least three rounds, saw " + seen.size() + " probes");
+        assertTrue(monitor.snapshot().up());
+    }
+}
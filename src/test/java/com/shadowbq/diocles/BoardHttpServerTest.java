@@ -0,0 +1,214 @@
+package com.shadowbq.diocles;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.google.gson.Gson;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Tests for the embedded read-only HTTP server
+ */
+public class BoardHttpServerTest {
+
+    private static final Gson GSON = new Gson();
+    private final HttpClient client = HttpClient.newHttpClient();
+    private LeaderboardIndex leaderboard;
+    private DeathJournal journal;
+    private DailyRollupStore rollups;
+    private BoardHttpServer server;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        leaderboard = new LeaderboardIndex();
+        journal = DeathJournal.inMemory();
+        rollups = DailyRollupStore.open(Files.createTempDirectory("diocles-rollups"));
+        server = new BoardHttpServer(new InetSocketAddress("127.0.0.1", 0), () -> leaderboard, () -> journal,
+                () -> rollups);
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop();
+    }
+
+    private HttpResponse<String> get(String path, String ifNoneMatch) throws Exception {
+        HttpRequest.Builder b = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.port() + path));
+        if (ifNoneMatch != null)
+            b.header("If-None-Match", ifNoneMatch);
+        return client.send(b.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testLeaderboardIsRankedAndLimited() throws Exception {
+        leaderboard.update("alice", 3);
+        leaderboard.update("bob", 7);
+        leaderboard.update("carol", 5);
+
+        HttpResponse<String> r = get("/deathboard?limit=2", null);
+        assertEquals(200, r.statusCode());
+        Map<String, Object> body = GSON.fromJson(r.body(), Map.class);
+        assertEquals(3.0, body.get("total"));
+        List<Map<String, Object>> players = (List<Map<String, Object>>) body.get("players");
+        assertEquals(2, players.size());
+        assertEquals("bob", players.get(0).get("name"));
+        assertEquals(1.0, players.get(0).get("rank"));
+        assertEquals("carol", players.get(1).get("name"));
+    }
+
+    @Test
+    void testUnchangedBoardIsNotModified() throws Exception {
+        leaderboard.update("alice", 1);
+        HttpResponse<String> first = get("/deathboard", null);
+        String etag = first.headers().firstValue("ETag").orElseThrow();
+
+        HttpResponse<String> again = get("/deathboard", etag);
+        assertEquals(304, again.statusCode());
+        assertEquals("", again.body());
+
+        // the top list does not read the journal
+        journal.append(new DeathRecord(UUID.randomUUID(), "alice", 1_700_000_000_000L, 1, 1, 0, 64, 0,
+                "minecraft:overworld"));
+        assertEquals(304, get("/deathboard", etag).statusCode());
+
+        leaderboard.update("alice", 2);
+        HttpResponse<String> changed = get("/deathboard", etag);
+        assertEquals(200, changed.statusCode());
+        assertNotEquals(etag, changed.headers().firstValue("ETag").orElseThrow());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testPlayerCombinesScoreAndJournal() throws Exception {
+        UUID alice = UUID.randomUUID();
+        leaderboard.update("alice", 4);
+        leaderboard.update("bob", 9);
+        journal.append(new DeathRecord(alice, "alice", 1_700_000_000_000L, 12, 4, 10, 64, -20,
+                "minecraft:overworld"));
+
+        HttpResponse<String> r = get("/players/alice", null);
+        assertEquals(200, r.statusCode());
+        Map<String, Object> body = GSON.fromJson(r.body(), Map.class);
+        assertEquals(2.0, body.get("rank"));
+        assertEquals(4.0, body.get("death_count"));
+        assertEquals("minecraft:overworld", body.get("world"));
+
+        // a new death for the same player changes the journal version, so the ETag too
+        String etag = r.headers().firstValue("ETag").orElseThrow();
+        journal.append(new DeathRecord(alice, "alice", 1_700_000_100_000L, 12, 4, 0, 70, 0, "minecraft:overworld"));
+        assertEquals(200, get("/players/alice", etag).statusCode());
+
+        assertEquals(404, get("/players/nobody", null).statusCode());
+        assertEquals(404, get("/nothing", null).statusCode());
+    }
+
+    @Test
+    void testOnlyReadsAreAllowed() throws Exception {
+        HttpRequest post = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.port() + "/board"))
+                .POST(HttpRequest.BodyPublishers.ofString("{}")).build();
+        HttpResponse<String> r = client.send(post, HttpResponse.BodyHandlers.ofString());
+        assertEquals(405, r.statusCode());
+        assertEquals("GET, HEAD", r.headers().firstValue("Allow").orElseThrow());
+    }
+
+    @Test
+    void testEventStreamResumesFromLastEventId() throws Exception {
+        server.events().publish("death", Map.of("name", "alice"));
+        server.events().publish("death", Map.of("name", "bob"));
+
+        long epoch = server.events().epoch();
+        HttpRequest req = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.port() + "/events"))
+                .header("Last-Event-ID", epoch + "-1").build();
+        HttpResponse<Stream<String>> r = client.send(req, HttpResponse.BodyHandlers.ofLines());
+        assertEquals(200, r.statusCode());
+        assertTrue(r.headers().firstValue("Content-Type").orElseThrow().startsWith("text/event-stream"));
+        try (Stream<String> body = r.body()) {
+            Iterator<String> lines = body.iterator();
+            assertEquals("retry: " + BoardHttpServer.RETRY_MS, lines.next());
+            assertEquals("", lines.next());
+            assertEquals("id: " + epoch + "-2", lines.next());
+            assertEquals("event: death", lines.next());
+            assertEquals("data: {\"name\":\"bob\"}", lines.next());
+            assertEquals("", lines.next());
+
+            server.events().publish("death", Map.of("name", "carol"));
+            assertEquals("id: " + epoch + "-3", lines.next());
+        }
+        assertEquals(404, get("/eventsfoo", null).statusCode());
+        assertEquals(404, get("/events/extra", null).statusCode());
+    }
+
+    @Test
+    void testEventStreamResetsIdsFromAnotherStart() throws Exception {
+        server.events().publish("death", Map.of("name", "alice"));
+
+        HttpRequest req = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.port() + "/events"))
+                .header("Last-Event-ID", (server.events().epoch() - 1) + "-1").build();
+        HttpResponse<Stream<String>> r = client.send(req, HttpResponse.BodyHandlers.ofLines());
+        try (Stream<String> body = r.body()) {
+            Iterator<String> lines = body.iterator();
+            assertEquals("retry: " + BoardHttpServer.RETRY_MS, lines.next());
+            assertEquals("", lines.next());
+            assertEquals("event: reset", lines.next());
+            assertEquals("data: {}", lines.next());
+            assertEquals("", lines.next());
+
+            // then only events from now on
+            server.events().publish("death", Map.of("name", "bob"));
+            assertEquals("id: " + server.events().epoch() + "-2", lines.next());
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testPlayerHistoryFromRollups() throws Exception {
+        UUID alice = UUID.randomUUID();
+        journal.append(new DeathRecord(alice, "alice", 1_700_000_000_000L, 4, 3, 0, 64, 0, "minecraft:overworld"));
+        rollups.recordDeath(alice, 1);
+        rollups.write(rollups.closeDay(3));
+        rollups.recordDeath(alice, 2);
+        rollups.recordDeath(alice, 3);
+        rollups.write(rollups.closeDay(4));
+
+        HttpResponse<String> r = get("/players/alice/history?days=3", null);
+        assertEquals(200, r.statusCode());
+        Map<String, Object> body = GSON.fromJson(r.body(), Map.class);
+        assertEquals(2.0, body.get("from_day"));
+        assertEquals(List.of(0.0, 1.0, 2.0), body.get("deaths"));
+        assertEquals(404, get("/players/nobody/history", null).statusCode());
+
+        // deaths during the open day leave closed-day history cached
+        String etag = r.headers().firstValue("ETag").orElseThrow();
+        leaderboard.update("alice", 4);
+        journal.append(new DeathRecord(alice, "alice", 1_700_000_100_000L, 5, 4, 0, 64, 0, "minecraft:overworld"));
+        rollups.recordDeath(alice, 4);
+        assertEquals(304, get("/players/alice/history?days=3", etag).statusCode());
+        rollups.write(rollups.closeDay(5));
+        assertEquals(200, get("/players/alice/history?days=3", etag).statusCode());
+    }
+
+    @Test
+    void testParseParam() {
+        assertEquals(BoardHttpServer.DEFAULT_LIMIT, BoardHttpServer.parseParam(null, "limit", 10, 100));
+        assertEquals(25, BoardHttpServer.parseParam("x=1&limit=25", "limit", 10, 100));
+        assertEquals(100, BoardHttpServer.parseParam("limit=100000", "limit", 10, 100));
+        assertEquals(1, BoardHttpServer.parseParam("limit=-3", "limit", 10, 100));
+        assertEquals(10, BoardHttpServer.parseParam("limit=ten", "limit", 10, 100));
+        assertEquals(365, BoardHttpServer.parseParam("days=365", "days", 30, 3660));
+    }
+}
@@ -0,0 +1,112 @@
+package com.shadowbq.diocles;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+
+/**
+ * Tests for per-day columnar death rollups
+ */
+public class DailyRollupStoreTest {
+
+    private static final UUID ALICE = UUID.fromString("069a79f4-44e9-4726-a5be-fca90e38aaf5");
+    private static final UUID BOB = UUID.fromString("853c80ef-3c37-49fd-aa49-938b674adae6");
+
+    @Test
+    void testClosedDaysAnswerHistory() throws Exception {
+        Path dir = Files.createTempDirectory("diocles-rollups");
+        DailyRollupStore store = DailyRollupStore.open(dir);
+        store.recordDeath(ALICE, 1);
+        store.recordDeath(BOB, 5);
+        store.recordDeath(ALICE, 2);
+        store.write(store.closeDay(10));
+        store.write(store.closeDay(11)); // a day without deaths
+        store.recordDeath(BOB, 6);
+        store.write(store.closeDay(12));
+
+        assertEquals(12L, store.lastClosedDay());
+        assertArrayEquals(new int[] { 0, 2, 0, 0 }, store.history(ALICE, 12, 4));
+        assertArrayEquals(new int[] { 1, 0, 1 }, store.history(BOB, 12, 3));
+        assertArrayEquals(new int[] { 0, 0 }, store.history(UUID.randomUUID(), 12, 2));
+        assertEquals(3L, store.totalOn(10));
+        assertEquals(0L, store.totalOn(11));
+        assertEquals(0L, store.totalOn(99));
+
+        // rows hold the cumulative count alongside the day's deaths
+        DailyRollupStore.Day day = DailyRollupStore.read(dir.resolve("day-10.rollup"));
+        assertEquals(2, day.rows());
+        assertEquals(DailyRollupStore.HEADER_SIZE + 2 * DailyRollupStore.ROW_SIZE,
+                Files.size(dir.resolve("day-10.rollup")));
+        for (int i = 0; i < day.rows(); i++) {
+            UUID uuid = new UUID(day.uuidHigh()[i], day.uuidLow()[i]);
+            assertEquals(uuid.equals(ALICE) ? 2 : 5, day.totals()[i]);
+        }
+
+        // reopening finds the newest closed day from the file names
+        assertEquals(12L, DailyRollupStore.open(dir).lastClosedDay());
+    }
+
+    @Test
+    void testOpenDaySurvivesRestart() throws Exception {
+        Path dir = Files.createTempDirectory("diocles-rollups");
+        DailyRollupStore store = DailyRollupStore.open(dir);
+        store.recordDeath(ALICE, 1);
+        store.saveOpen(3);
+
+        DailyRollupStore reopened = DailyRollupStore.open(dir);
+        assertEquals(1, reopened.openDayPlayers());
+        reopened.recordDeath(ALICE, 2);
+        reopened.write(reopened.closeDay(3));
+        assertArrayEquals(new int[] { 2 }, reopened.history(ALICE, 3, 1));
+        assertFalse(Files.exists(dir.resolve("open.rollup")));
+    }
+
+    @Test
+    void testLateCloseKeepsNewerOpenDay() throws Exception {
+        Path dir = Files.createTempDirectory("diocles-rollups");
+        DailyRollupStore store = DailyRollupStore.open(dir);
+        store.recordDeath(ALICE, 1);
+        DailyRollupStore.Day closed = store.closeDay(3);
+        store.recordDeath(BOB, 4);
+        store.saveOpen(4); // shutdown saves day 4 before day 3's write lands
+        store.write(closed);
+
+        assertTrue(Files.exists(dir.resolve("open.rollup")));
+        assertEquals(1, DailyRollupStore.open(dir).openDayPlayers());
+        assertArrayEquals(new int[] { 1 }, store.history(ALICE, 3, 1));
+    }
+
+    @Test
+    void testReplayedDayIsMerged() throws Exception {
+        Path dir = Files.createTempDirectory("diocles-rollups");
+        DailyRollupStore store = DailyRollupStore.open(dir);
+        store.recordDeath(ALICE, 1);
+        store.write(store.closeDay(5));
+        // time set back: day 5 is played again
+        store.recordDeath(ALICE, 2);
+        store.recordDeath(BOB, 1);
+        store.write(store.closeDay(5));
+
+        assertArrayEquals(new int[] { 2 }, store.history(ALICE, 5, 1));
+        assertArrayEquals(new int[] { 1 }, store.history(BOB, 5, 1));
+        assertEquals(3L, store.totalOn(5));
+    }
+
+    @Test
+    void testManyPlayersBinarySearch() throws Exception {
+        Path dir = Files.createTempDirectory("diocles-rollups");
+        DailyRollupStore store = DailyRollupStore.open(dir);
+        UUID[] players = new UUID[500];
+        for (int i = 0; i < players.length; i++) {
+            players[i] = UUID.randomUUID();
+            for (int d = 0; d <= i % 3; d++)
+                store.recordDeath(players[i], d + 1);
+        }
+        store.write(store.closeDay(1));
+        for (int i = 0; i < players.length; i++)
+            assertArrayEquals(new int[] { i % 3 + 1 }, store.history(players[i], 1, 1));
+    }
+}
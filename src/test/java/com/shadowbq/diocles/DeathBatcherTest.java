@@ -0,0 +1,85 @@
+package com.shadowbq.diocles;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Tests for coalescing deaths into batched payloads
+ */
+public class DeathBatcherTest {
+
+    private ScheduledExecutorService scheduler;
+    private final List<Map<String, Object>> flushed = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    private static Map<String, Object> info(int count) {
+        return Map.of("death_count", count);
+    }
+
+    @Test
+    void testWindowMergesDeaths() throws InterruptedException {
+        DeathBatcher batcher = new DeathBatcher(50, 100, flushed::add, scheduler);
+        batcher.add("alice", info(1));
+        batcher.add("bob", info(1));
+        batcher.add("alice", info(2));
+        assertEquals(0, flushed.size(), "Nothing should be sent before the window closes");
+
+        Thread.sleep(200);
+        assertEquals(1, flushed.size());
+        Map<String, Object> batch = flushed.get(0);
+        assertEquals(2, batch.size());
+        assertEquals(info(2), batch.get("alice"), "Latest death should win");
+        assertEquals(List.of("bob", "alice"), List.copyOf(batch.keySet()));
+    }
+
+    @Test
+    void testMaxSizeFlushesImmediately() throws InterruptedException {
+        DeathBatcher batcher = new DeathBatcher(10_000, 3, flushed::add, scheduler);
+        batcher.add("a", info(1));
+        batcher.add("b", info(1));
+        batcher.add("c", info(1));
+        assertEquals(1, flushed.size());
+        assertEquals(3, flushed.get(0).size());
+        assertEquals(0, batcher.pendingCount());
+    }
+
+    @Test
+    void testStaleTimerDoesNotFlushNextWindowEarly() throws InterruptedException {
+        DeathBatcher batcher = new DeathBatcher(100, 2, flushed::add, scheduler);
+        batcher.add("a", info(1));
+        batcher.add("b", info(1)); // size flush, first window's timer still armed
+        Thread.sleep(60);
+        batcher.add("c", info(1)); // opens a second window
+        Thread.sleep(60); // first timer fires here and must not flush "c"
+        assertEquals(1, flushed.size());
+        Thread.sleep(150);
+        assertEquals(2, flushed.size());
+        assertEquals(Map.of("c", info(1)), flushed.get(1));
+    }
+
+    @Test
+    void testDrain() {
+        DeathBatcher batcher = new DeathBatcher(10_000, 100, flushed::add, scheduler);
+        assertNull(batcher.drain());
+        batcher.add("alice", info(1));
+        assertEquals(Map.of("alice", info(1)), batcher.drain());
+        assertEquals(0, flushed.size());
+    }
+}
@@ -0,0 +1,120 @@
+package com.shadowbq.diocles;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Tests for dictionary-encoded death cause counters
+ */
+public class DeathCauseStatsTest {
+
+    private static final UUID ALICE = UUID.fromString("069a79f4-44e9-4726-a5be-fca90e38aaf5");
+    private static final UUID BOB = UUID.fromString("853c80ef-3c37-49fd-aa49-938b674adae6");
+
+    private static final DeathCauseStats.Cause FALL = new DeathCauseStats.Cause("minecraft:fall",
+            DeathCauseStats.NONE, DeathCauseStats.NONE);
+    private static final DeathCauseStats.Cause ZOMBIE = new DeathCauseStats.Cause("minecraft:mob_attack",
+            "minecraft:zombie", DeathCauseStats.NONE);
+    private static final DeathCauseStats.Cause SWORD = new DeathCauseStats.Cause("minecraft:player_attack",
+            "minecraft:player", "minecraft:iron_sword");
+
+    @Test
+    void testCausesAreDictionaryEncoded() {
+        DeathCauseStats stats = new DeathCauseStats();
+        assertEquals(0, stats.record(ALICE, FALL, 1));
+        assertEquals(1, stats.record(ALICE, ZOMBIE, 1));
+        assertEquals(0, stats.record(BOB, FALL, 1));
+        assertEquals(2, stats.causeCount());
+        // "none" is shared between fields
+        assertEquals(4, stats.dictionarySize());
+        assertEquals("player_attack by player with iron_sword", SWORD.label());
+        assertEquals("fall", FALL.label());
+    }
+
+    @Test
+    void testTopIsRankedGloballyAndPerPlayer() {
+        DeathCauseStats stats = new DeathCauseStats();
+        stats.record(ALICE, FALL, 1);
+        stats.record(ALICE, ZOMBIE, 1);
+        stats.record(BOB, ZOMBIE, 1);
+        stats.record(BOB, SWORD, 1);
+        stats.record(BOB, SWORD, 1);
+        stats.record(BOB, SWORD, 1);
+
+        List<DeathCauseStats.Ranked> top = stats.topAllTime(2);
+        assertEquals(2, top.size());
+        assertEquals(new DeathCauseStats.Ranked(SWORD, 3), top.get(0));
+        assertEquals(new DeathCauseStats.Ranked(ZOMBIE, 2), top.get(1));
+        assertEquals(List.of(new DeathCauseStats.Ranked(SWORD, 3), new DeathCauseStats.Ranked(ZOMBIE, 1)),
+                stats.topFor(BOB, 5));
+        assertTrue(stats.topFor(UUID.randomUUID(), 5).isEmpty());
+    }
+
+    @Test
+    void testWeekWindowDropsOldDays() {
+        DeathCauseStats stats = new DeathCauseStats();
+        for (int i = 0; i < 5; i++)
+            stats.record(ALICE, FALL, 1);
+        stats.record(ALICE, ZOMBIE, 4);
+        stats.record(BOB, ZOMBIE, 6);
+
+        assertEquals(new DeathCauseStats.Ranked(FALL, 5), stats.topThisWeek(1, 7).get(0));
+        // day 1 leaves the window on day 8
+        assertEquals(List.of(new DeathCauseStats.Ranked(ZOMBIE, 2)), stats.topThisWeek(3, 8));
+        // a new day reusing day 4's slot replaces it
+        stats.record(BOB, SWORD, 11);
+        assertEquals(List.of(new DeathCauseStats.Ranked(ZOMBIE, 1), new DeathCauseStats.Ranked(SWORD, 1)),
+                stats.topThisWeek(3, 11));
+        assertTrue(stats.topThisWeek(3, 30).isEmpty());
+        // all-time counts are kept
+        assertEquals(new DeathCauseStats.Ranked(FALL, 5), stats.topAllTime(1).get(0));
+    }
+
+    @Test
+    void testSaveAndLoad() throws Exception {
+        Path file = Files.createTempDirectory("diocles-causes").resolve("causes.json");
+        assertEquals(0, DeathCauseStats.load(file).causeCount());
+
+        DeathCauseStats stats = new DeathCauseStats();
+        stats.record(ALICE, FALL, 2);
+        stats.record(BOB, SWORD, 3);
+        stats.record(BOB, SWORD, 3);
+        stats.save(file);
+
+        DeathCauseStats loaded = DeathCauseStats.load(file);
+        assertEquals(stats.topAllTime(10), loaded.topAllTime(10));
+        assertEquals(stats.topThisWeek(10, 3), loaded.topThisWeek(10, 3));
+        assertEquals(List.of(new DeathCauseStats.Ranked(SWORD, 2)), loaded.topFor(BOB, 10));
+        assertEquals(List.of(new DeathCauseStats.Ranked(SWORD, 2)), loaded.topThisWeek(10, 9));
+    }
+
+    @Test
+    void testRankedCounterMovesByWholeDeltas() {
+        DeathCauseStats.RankedCounter counter = new DeathCauseStats.RankedCounter();
+        int[] expected = new int[40];
+        Random random = new Random(7);
+        for (int step = 0; step < 5000; step++) {
+            int id = random.nextInt(expected.length);
+            // single deaths (the swap path) mixed with bulk loads and expiries
+            int delta = random.nextBoolean() ? (random.nextBoolean() ? 1 : -1) : random.nextInt(61) - 30;
+            counter.add(id, delta);
+            expected[id] = Math.max(0, expected[id] + delta);
+
+            int[] top = counter.top(expected.length);
+            for (int i = 0; i < top.length; i++) {
+                assertEquals(expected[top[i]], counter.count(top[i]));
+                if (i > 0)
+                    assertTrue(counter.count(top[i - 1]) >= counter.count(top[i]), "Ranked highest first");
+            }
+            long nonZero = Arrays.stream(expected).filter(c -> c > 0).count();
+            assertEquals(nonZero, top.length);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.shadowbq.diocles;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for death event IDs and duplicate collapsing
+ */
+public class DeathDedupTest {
+
+    private static final UUID STEVE = UUID.fromString("069a79f4-44e9-4726-a5be-fca90e38aaf5");
+    private static final UUID ALEX = UUID.fromString("853c80ef-3c37-49fd-aa49-938b674adae6");
+
+    @Test
+    void testEventIdIsStablePerPlayerAndTick() {
+        DeathDedup dedup = new DeathDedup(64);
+        assertEquals(dedup.eventId(STEVE, 1200), dedup.eventId(STEVE, 1200));
+        assertNotEquals(dedup.eventId(STEVE, 1200), dedup.eventId(STEVE, 1201));
+        assertNotEquals(dedup.eventId(STEVE, 1200), dedup.eventId(ALEX, 1200));
+        assertNotEquals(0L, new DeathDedup(64, 0).eventId(new UUID(0, 0), 0));
+
+        Set<Long> ids = new HashSet<>();
+        for (long tick = 0; tick < 100_000; tick++)
+            assertTrue(ids.add(dedup.eventId(STEVE, tick)));
+    }
+
+    @Test
+    void testEventIdDiffersBetweenLaunches() {
+        // the tick count restarts at zero, so the same tick recurs in every session
+        DeathDedup first = new DeathDedup(64);
+        DeathDedup second = new DeathDedup(64);
+        assertNotEquals(first.eventId(STEVE, 1200), second.eventId(STEVE, 1200));
+        assertTrue(second.firstSeen(second.eventId(STEVE, 1200)));
+        assertTrue(second.firstSeen(first.eventId(STEVE, 1200)));
+    }
+
+    @Test
+    void testFormat() {
+        assertEquals("0000000000000001", DeathDedup.format(1L));
+        assertEquals("ffffffffffffffff", DeathDedup.format(-1L));
+        assertEquals(16, DeathDedup.format(new DeathDedup(64).eventId(STEVE, 42)).length());
+    }
+
+    @Test
+    void testSecondReportIsDuplicate() {
+        DeathDedup dedup = new DeathDedup(64);
+        long id = dedup.eventId(STEVE, 500);
+        assertTrue(dedup.firstSeen(id), "Event hook report");
+        assertFalse(dedup.firstSeen(id), "Mixin report of the same death");
+        assertTrue(dedup.firstSeen(dedup.eventId(STEVE, 501)), "Next death is new");
+        assertTrue(dedup.firstSeen(dedup.eventId(ALEX, 500)), "Another player in the same tick is new");
+        assertEquals(1, dedup.duplicateCount());
+    }
+
+    @Test
+    void testConcurrentReportsHaveOneWinner() throws Exception {
+        DeathDedup dedup = new DeathDedup(DeathDedup.DEFAULT_SLOTS);
+        int threads = 8;
+        int deaths = 300;
+        AtomicInteger first = new AtomicInteger();
+        CountDownLatch go = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int tick = 0; tick < deaths; tick++) {
+                    if (dedup.firstSeen(dedup.eventId(STEVE, tick)))
+                        first.incrementAndGet();
+                }
+            });
+            workers[t].start();
+        }
+        go.countDown();
+        for (Thread w : workers)
+            w.join();
+        // far fewer IDs than slots, so nothing is evicted: exactly one winner per death
+        assertEquals(deaths, first.get());
+        assertEquals((long) threads * deaths - first.get(), dedup.duplicateCount());
+    }
+}
@@ -0,0 +1,110 @@
+package com.shadowbq.diocles;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for the shared Server-Sent Events ring buffer
+ */
+public class DeathEventStreamTest {
+
+    private static String text(byte[] frame) {
+        return new String(frame, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void testFramesCarryIdEventAndData() throws Exception {
+        DeathEventStream stream = new DeathEventStream(8, 1000);
+        long id = stream.publish("death", Map.of("name", "alice"));
+        assertEquals(1L, id);
+
+        DeathEventStream.Batch batch = stream.await(0, 0);
+        assertEquals(1, batch.frames().size());
+        assertEquals("id: 1000-1\nevent: death\ndata: {\"name\":\"alice\"}\n\n", text(batch.frames().get(0)));
+        assertEquals(1L, batch.lastId());
+        assertFalse(batch.reset());
+    }
+
+    @Test
+    void testSubscribersShareOneEncoding() throws Exception {
+        DeathEventStream stream = new DeathEventStream(8);
+        stream.publish("death", Map.of("name", "alice"));
+        assertSame(stream.await(0, 0).frames().get(0), stream.await(0, 0).frames().get(0));
+    }
+
+    @Test
+    void testAwaitWakesOnPublish() throws Exception {
+        DeathEventStream stream = new DeathEventStream(8);
+        CompletableFuture<DeathEventStream.Batch> waiting = CompletableFuture.supplyAsync(() -> {
+            try {
+                return stream.await(0, 10_000);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        Thread.sleep(50);
+        stream.publish("death", Map.of("name", "bob"));
+        assertEquals(1, waiting.get(5, TimeUnit.SECONDS).frames().size());
+
+        // nothing new: times out empty
+        DeathEventStream.Batch idle = stream.await(1, 20);
+        assertTrue(idle.frames().isEmpty());
+        assertEquals(1L, idle.lastId());
+    }
+
+    @Test
+    void testResumeAndReset() throws Exception {
+        DeathEventStream stream = new DeathEventStream(4, 1000);
+        for (int i = 0; i < 10; i++)
+            stream.publish("death", Map.of("n", i));
+
+        // still in the ring: exactly the missed events
+        DeathEventStream.Batch resumed = stream.await(8, 0);
+        assertEquals(2, resumed.frames().size());
+        assertTrue(text(resumed.frames().get(0)).startsWith("id: 1000-9\n"));
+        assertFalse(resumed.reset());
+
+        // fell out of the ring: oldest kept events plus a reset
+        DeathEventStream.Batch behind = stream.await(2, 0);
+        assertEquals(4, behind.frames().size());
+        assertTrue(text(behind.frames().get(0)).startsWith("id: 1000-7\n"));
+        assertTrue(behind.reset());
+
+        // a sequence number never issued
+        DeathEventStream.Batch future = stream.await(500, 0);
+        assertTrue(future.reset());
+        assertEquals(10L, future.lastId());
+    }
+
+    @Test
+    void testCursorRejectsIdsFromAnotherEpoch() {
+        DeathEventStream stream = new DeathEventStream(4, 1000);
+        assertEquals(-1, stream.cursor(null));
+        assertEquals(7, stream.cursor("1000-7"));
+        // numbering restarts with each stream, so these must not be resumed
+        assertEquals(DeathEventStream.RESYNC, stream.cursor("999-7"));
+        assertEquals(DeathEventStream.RESYNC, stream.cursor("7"));
+        assertEquals(DeathEventStream.RESYNC, stream.cursor("1000-x"));
+    }
+
+    @Test
+    void testCloseWakesSubscribers() throws Exception {
+        DeathEventStream stream = new DeathEventStream(4);
+        CompletableFuture<DeathEventStream.Batch> waiting = CompletableFuture.supplyAsync(() -> {
+            try {
+                return stream.await(0, 10_000);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        Thread.sleep(50);
+        stream.close();
+        assertTrue(waiting.get(5, TimeUnit.SECONDS).frames().isEmpty());
+        assertTrue(stream.isClosed());
+    }
+}
@@ -0,0 +1,143 @@
+package com.shadowbq.diocles;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Tests for the append-only death journal
+ */
+public class DeathJournalTest {
+
+    @TempDir
+    Path dir;
+
+    private static DeathRecord death(UUID uuid, String name, int count) {
+        return new DeathRecord(uuid, name, 1_700_000_000_000L + count, 42L, count, 10, 64, -20,
+                "minecraft:overworld");
+    }
+
+    @Test
+    void testRecordsSurviveReopen() throws IOException {
+        UUID alice = UUID.randomUUID();
+        UUID bob = UUID.randomUUID();
+
+        DeathJournal journal = DeathJournal.open(dir);
+        journal.append(death(alice, "alice", 1));
+        journal.append(death(bob, "bob", 1));
+        journal.append(death(alice, "alice", 2));
+        journal.close();
+
+        DeathJournal reopened = DeathJournal.open(dir);
+        assertEquals(2, reopened.size());
+        assertEquals(death(alice, "alice", 2), reopened.get(alice));
+        assertEquals(death(bob, "bob", 1), reopened.get(bob));
+        reopened.close();
+    }
+
+    @Test
+    void testReplayWithoutCleanClose() throws IOException {
+        UUID alice = UUID.randomUUID();
+
+        DeathJournal journal = DeathJournal.open(dir);
+        journal.append(death(alice, "alice", 7));
+        // no close(): segment contents must still be replayed
+
+        DeathJournal reopened = DeathJournal.open(dir);
+        assertEquals(7, reopened.get(alice).deathCount());
+    }
+
+    @Test
+    void testCompactionDropsCoveredSegments() throws IOException {
+        DeathJournal journal = DeathJournal.open(dir);
+        UUID[] players = new UUID[50];
+        for (int i = 0; i < players.length; i++)
+            players[i] = UUID.randomUUID();
+
+        // enough appends to roll several segments and trigger compaction
+        int perSegment = DeathJournal.SEGMENT_SIZE / 90;
+        int total = perSegment * (DeathJournal.COMPACT_AFTER_SEGMENTS + 1);
+        for (int i = 0; i < total; i++)
+            journal.append(death(players[i % players.length], "p" + (i % players.length), i));
+
+        assertTrue(Files.exists(dir.resolve("snapshot.bin")), "Compaction should write a snapshot");
+        assertTrue(countSegments() <= DeathJournal.COMPACT_AFTER_SEGMENTS,
+                "Covered segments should be deleted after compaction");
+        journal.close();
+
+        DeathJournal reopened = DeathJournal.open(dir);
+        assertEquals(players.length, reopened.size());
+        for (int i = total - players.length; i < total; i++) {
+            assertEquals(i, reopened.get(players[i % players.length]).deathCount());
+        }
+    }
+
+    @Test
+    void testTornRecordIsIgnored() throws IOException {
+        UUID alice = UUID.randomUUID();
+        DeathJournal journal = DeathJournal.open(dir);
+        journal.append(death(alice, "alice", 3));
+
+        // corrupt the payload of the first frame: checksum must reject it
+        Path segment;
+        try (Stream<Path> files = Files.list(dir)) {
+            segment = files.filter(p -> p.getFileName().toString().startsWith("segment-")).findFirst()
+                    .orElseThrow();
+        }
+        try (FileChannel ch = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            ch.write(ByteBuffer.wrap(new byte[] { 0x7F }), 20);
+        }
+
+        DeathJournal reopened = DeathJournal.open(dir);
+        assertNull(reopened.get(alice));
+    }
+
+    @Test
+    void testNonAsciiNamesSurviveReplay() throws IOException {
+        UUID alice = UUID.randomUUID();
+        String name = "Zo\u00eb\u2620\ud83d\udc80";
+        DeathJournal journal = DeathJournal.open(dir);
+        journal.append(alice, name, 1L, 2L, 3, 0, 0, 0, "minecraft:overworld");
+        journal.close();
+
+        assertEquals(name, DeathJournal.open(dir).get(alice).name());
+    }
+
+    @Test
+    void testPayloadShape() {
+        Map<String, Object> payload = death(UUID.randomUUID(), "alice", 5).toPayload();
+        assertEquals(5, payload.get("death_count"));
+        assertEquals(42L, payload.get("last_death_day"));
+        assertEquals("minecraft:overworld", payload.get("world"));
+        assertEquals(Map.of("x", 10, "y", 64, "z", -20), payload.get("location"));
+        assertTrue(payload.get("last_death_time").toString().endsWith("Z"));
+    }
+
+    @Test
+    void testInMemoryJournalWritesNothing() throws IOException {
+        UUID alice = UUID.randomUUID();
+        DeathJournal journal = DeathJournal.inMemory();
+        journal.append(death(alice, "alice", 1));
+        assertEquals(1, journal.get(alice).deathCount());
+        journal.close();
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    private long countSegments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().startsWith("segment-")).count();
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package com.shadowbq.diocles;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Synthetic death-storm load generator.
+ *
+ * Wires the same pipeline {@link DeathboardManager} builds at init (memory-mapped
+ * journal, rollups, cause stats, SSE stream, optional batcher,
+ * {@link PostDispatcher}, {@link PayloadEncoder}, {@link OutboundSpool} and
+ * {@link HttpTransport}) against a local API, and emits deaths at a fixed
+ * rate through {@link DeathboardManager#recordDeath}; syncs go through
+ * {@link DeathboardManager#postSync(DeathboardManager.Pipeline, List, java.util.function.LongSupplier)}.
+ * Deaths cycle through the roster, so a player's death count says which
+ * death it was; an accepted body carrying that count delivers it and any
+ * earlier death of the player it superseded, which is how delivery latency
+ * is measured.
+ */
+final class DeathStorm {
+    private static final Gson GSON = new Gson();
+    static final String NAME_PREFIX = "Player";
+    private static final DeathCauseStats.Cause[] CAUSES = {
+            new DeathCauseStats.Cause("minecraft:fall", DeathCauseStats.NONE, DeathCauseStats.NONE),
+            new DeathCauseStats.Cause("minecraft:mob_attack", "minecraft:zombie", DeathCauseStats.NONE),
+            new DeathCauseStats.Cause("minecraft:lava", DeathCauseStats.NONE, DeathCauseStats.NONE) };
+
+    /**
+     * @param deathsPerSecond Emission rate
+     * @param duration        How long to emit
+     * @param drainTimeout    Time allowed after emission for the backlog to deliver
+     * @param players         Roster size; deaths cycle through it
+     * @param syncEvery       Time between /api/sync posts (zero = no syncs)
+     * @param fullSyncEvery   Send a full sync every this many syncs (1 = no delta syncs)
+     * @param batchWindowMs   DeathBatcher window (0 = post each death)
+     * @param capacity        Dispatch queue capacity
+     * @param policy          Dispatch overload policy
+     * @param gzip            Gzip bodies
+     */
+    record Config(int deathsPerSecond, Duration duration, Duration drainTimeout, int players, Duration syncEvery,
+            int fullSyncEvery, long batchWindowMs, int capacity, PostDispatcher.OverloadPolicy policy, boolean gzip) {
+    }
+
+    /**
+     * Results of a run.
+     *
+     * @param emitted           Deaths emitted
+     * @param delivered         Deaths in, or superseded by, a body the API accepted
+     * @param dropped           Deaths never delivered
+     * @param emitSeconds       Time spent emitting
+     * @param totalSeconds      Time until the backlog drained (or the drain timed out)
+     * @param posts             POSTs sent, including retries and syncs
+     * @param postsFailed       POSTs that failed or were rejected
+     * @param syncs             Syncs submitted, full or delta
+     * @param dispatchDropped   Posts dropped by the dispatch queue
+     * @param dispatchCoalesced Posts merged into a queued post
+     * @param latencyMs         Delivery latency percentiles p50, p90, p99, p99.9 and max
+     * @param heapStartMb       Used heap after GC before the run
+     * @param heapPeakMb        Highest used heap sampled during the run
+     * @param heapEndMb         Used heap after GC once drained
+     * @param startMillis       Wall-clock time emission started
+     */
+    record Report(long emitted, long delivered, long dropped, double emitSeconds, double totalSeconds, long posts,
+            long postsFailed, long syncs, long dispatchDropped, long dispatchCoalesced, long[] latencyMs,
+            double heapStartMb, double heapPeakMb, double heapEndMb, long startMillis) {
+
+        double deliveredPerSecond() {
+            return totalSeconds > 0 ? delivered / totalSeconds : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "emitted %d deaths in %.1fs (%.0f/s), delivered %d (%.0f/s sustained), dropped %d%n"
+                            + "posts %d sent, %d failed, %d syncs | dispatch dropped %d, coalesced %d%n"
+                            + "delivery latency ms: p50 %d, p90 %d, p99 %d, p99.9 %d, max %d%n"
+                            + "heap MB: start %.1f, peak %.1f, end %.1f (growth %+.1f)",
+                    emitted, emitSeconds, emitSeconds > 0 ? emitted / emitSeconds : 0, delivered,
+                    deliveredPerSecond(), dropped, posts, postsFailed, syncs, dispatchDropped, dispatchCoalesced,
+                    latencyMs[0], latencyMs[1], latencyMs[2], latencyMs[3], latencyMs[4], heapStartMb, heapPeakMb,
+                    heapEndMb, heapEndMb - heapStartMb);
+        }
+    }
+
+    private final Config config;
+    private final String baseUrl;
+    private final Path workDir;
+
+    private final String[] names;
+    private final UUID[] uuids;
+    private final int[] scores;
+
+    private long[] emittedAt;
+    private AtomicIntegerArray deliveredCount;
+    private long[] latencies;
+    private final AtomicInteger latencyCount = new AtomicInteger();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder posts = new LongAdder();
+    private final LongAdder postsFailed = new LongAdder();
+    private final AtomicLong heapPeak = new AtomicLong();
+
+    /**
+     * @param config   Load shape
+     * @param baseUrl  API base URL, e.g. a local mock
+     * @param workDir  Empty directory for the journal, rollups and spool
+     */
+    DeathStorm(Config config, String baseUrl, Path workDir) {
+        this.config = config;
+        this.baseUrl = baseUrl;
+        this.workDir = workDir;
+        this.names = new String[config.players()];
+        this.uuids = new UUID[config.players()];
+        this.scores = new int[config.players()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = String.format(NAME_PREFIX + "%06d", i);
+            uuids[i] = new UUID(0xD10C1E5L, i);
+        }
+    }
+
+    /**
+     * Run the storm and wait for the backlog to drain.
+     */
+    Report run() throws IOException, InterruptedException {
+        long planned = config.deathsPerSecond() * config.duration().toMillis() / 1000L;
+        if (planned > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("Too many deaths for one run: " + planned);
+        emittedAt = new long[(int) planned];
+        latencies = new long[(int) planned];
+        deliveredCount = new AtomicIntegerArray(names.length);
+
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        double heapStart = usedHeapAfterGc(memory);
+
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2, r -> {
+            Thread t = new Thread(r, "DeathStorm-Scheduler");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleAtFixedRate(() -> heapPeak.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(),
+                Math::max), 0, 250, TimeUnit.MILLISECONDS);
+
+        SyncTracker syncTracker = new SyncTracker(config.fullSyncEvery());
+        OutboundSpool spool = OutboundSpool.open(workDir.resolve("spool"), this::send, scheduler, 100L, 5000L);
+        spool.setDeliveryListener((endpoint, headers) -> DeathboardManager.acknowledgeSync(syncTracker, endpoint,
+                headers));
+        spool.start();
+        PostDispatcher dispatcher = new PostDispatcher(config.capacity(), 2, config.policy(),
+                (endpoint, payload, headers) -> {
+                    if (DeathboardManager.spoolPost(spool, endpoint, payload, headers, config.gzip()) != null)
+                        throw new IllegalStateException("Spool rejected post to " + endpoint);
+                });
+        DeathBatcher batcher = config.batchWindowMs() > 0
+                ? new DeathBatcher(config.batchWindowMs(), 100, batch -> dispatcher.submit("/api/deathboard", batch),
+                        scheduler)
+                : null;
+        DeathJournal journal = DeathJournal.open(workDir.resolve("journal"));
+        DeathboardManager.Pipeline pipeline = new DeathboardManager.Pipeline(
+                new DeathDedup(DeathDedup.DEFAULT_SLOTS), new LeaderboardIndex(), journal, syncTracker,
+                DailyRollupStore.open(workDir.resolve("rollups")), new DeathCauseStats(),
+                new DeathEventStream(DeathEventStream.DEFAULT_CAPACITY), batcher, dispatcher);
+
+        long syncs = 0;
+        long syncEveryNanos = config.syncEvery().toNanos();
+        long startMillis = System.currentTimeMillis();
+        long start = System.nanoTime();
+        long nextSync = syncEveryNanos > 0 ? start + syncEveryNanos : Long.MAX_VALUE;
+        int seq = 0;
+        // pace by the clock rather than by sleeping a fixed time per death
+        while (seq < emittedAt.length) {
+            long now = System.nanoTime();
+            int due = (int) Math.min(emittedAt.length,
+                    (now - start) * config.deathsPerSecond() / 1_000_000_000L);
+            for (; seq < due; seq++)
+                emitDeath(pipeline, seq);
+            if (now >= nextSync) {
+                List<DeathboardManager.OnlinePlayer> online = new ArrayList<>(names.length);
+                for (int i = 0; i < names.length; i++)
+                    online.add(new DeathboardManager.OnlinePlayer(uuids[i], names[i], scores[i]));
+                DeathboardManager.postSync(pipeline, online, () -> 0L);
+                syncs++;
+                nextSync += syncEveryNanos;
+            }
+            Thread.sleep(1);
+        }
+        double emitSeconds = (System.nanoTime() - start) / 1e9;
+
+        if (batcher != null) {
+            Map<String, Object> pending = batcher.drain();
+            if (pending != null)
+                dispatcher.submit("/api/deathboard", pending);
+        }
+        long deadline = System.nanoTime() + config.drainTimeout().toNanos();
+        while (System.nanoTime() < deadline && delivered.sum() < emittedAt.length
+                && (dispatcher.queueDepth() > 0 || spool.pendingCount() > 0
+                        || dispatcher.completedCount() < dispatcher.submittedCount()))
+            Thread.sleep(10);
+        double totalSeconds = (System.nanoTime() - start) / 1e9;
+
+        dispatcher.shutdown(0);
+        spool.close();
+        pipeline.events().close();
+        journal.close();
+        scheduler.shutdownNow();
+        double heapEnd = usedHeapAfterGc(memory);
+
+        long emitted = emittedAt.length;
+        long ok = delivered.sum();
+        return new Report(emitted, ok, emitted - ok, emitSeconds, totalSeconds, posts.sum(), postsFailed.sum(), syncs,
+                dispatcher.droppedCount(), dispatcher.coalescedCount(), latencyPercentiles(), heapStart,
+                heapPeak.get() / 1048576.0, heapEnd, startMillis);
+    }
+
+    // what DeathboardManager.handleDeath reads from the server, then its shared core
+    private void emitDeath(DeathboardManager.Pipeline pipeline, int seq) {
+        int p = seq % names.length;
+        int deaths = ++scores[p];
+        emittedAt[seq] = System.nanoTime();
+        // a tick per death, so none is taken for a repeated report
+        DeathboardManager.recordDeath(pipeline, new DeathboardManager.Death(uuids[p], names[p], seq, deaths, 0, seq,
+                64, -seq, "minecraft:overworld", CAUSES[seq % CAUSES.length]));
+    }
+
+    private CompletableFuture<Integer> send(String endpoint, Map<String, String> extraHeaders,
+            byte[] body, String idempotencyKey) {
+        Map<String, String> headers = new LinkedHashMap<>(extraHeaders);
+        headers.put("Content-Type", "application/json");
+        headers.put("Idempotency-Key", idempotencyKey);
+        posts.increment();
+        return HttpTransport.post(baseUrl + endpoint, body, headers, Duration.ofSeconds(10))
+                .whenComplete((code, error) -> {
+                    if (error != null || code < 200 || code >= 300) {
+                        postsFailed.increment();
+                    } else if ("/api/deathboard".equals(endpoint)) {
+                        recordDelivery(body, "gzip".equals(extraHeaders.get("Content-Encoding")));
+                    }
+                });
+    }
+
+    private void recordDelivery(byte[] body, boolean gzip) {
+        long now = System.nanoTime();
+        String json;
+        try {
+            json = gzip ? new String(new GZIPInputStream(new ByteArrayInputStream(body)).readAllBytes(),
+                    StandardCharsets.UTF_8) : new String(body, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        Map<String, Map<String, Object>> payload = GSON.fromJson(json,
+                new TypeToken<Map<String, Map<String, Object>>>() {
+                }.getType());
+        for (Map.Entry<String, Map<String, Object>> entry : payload.entrySet()) {
+            if (!entry.getKey().startsWith(NAME_PREFIX))
+                continue;
+            int p = Integer.parseInt(entry.getKey().substring(NAME_PREFIX.length()));
+            int count = ((Number) entry.getValue().get("death_count")).intValue();
+            int before = deliveredCount.getAndAccumulate(p, count, Math::max);
+            // the player's k-th death was emitted as seq (k - 1) * players + p
+            for (int k = before + 1; k <= count; k++) {
+                int seq = (k - 1) * names.length + p;
+                if (seq >= emittedAt.length)
+                    break;
+                int slot = latencyCount.getAndIncrement();
+                if (slot < latencies.length)
+                    latencies[slot] = now - emittedAt[seq];
+                delivered.increment();
+            }
+        }
+    }
+
+    private long[] latencyPercentiles() {
+        int n = Math.min(latencyCount.get(), latencies.length);
+        long[] sorted = Arrays.copyOf(latencies, n);
+        Arrays.sort(sorted);
+        long[] out = new long[5];
+        double[] qs = { 0.50, 0.90, 0.99, 0.999, 1.0 };
+        for (int i = 0; i < qs.length; i++) {
+            if (n == 0)
+                continue;
+            int idx = (int) Math.ceil(qs[i] * n) - 1;
+            out[i] = sorted[Math.max(0, Math.min(n - 1, idx))] / 1_000_000L;
+        }
+        return out;
+    }
+
+    private static double usedHeapAfterGc(MemoryMXBean memory) throws InterruptedException {
+        System.gc();
+        Thread.sleep(100);
+        return memory.getHeapMemoryUsage().getUsed() / 1048576.0;
+    }
+}
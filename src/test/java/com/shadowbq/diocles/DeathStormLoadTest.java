@@ -0,0 +1,135 @@
+package com.shadowbq.diocles;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.github.tomakehurst.wiremock.verification.LoggedRequest;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Death-storm load run against a local WireMock API with injected latency.
+ *
+ * Tagged "load", so it is skipped by {@code ./gradlew test}; run it with
+ * {@code ./gradlew loadTest}. The load shape comes from system properties
+ * (see the README), e.g. 1000 deaths/sec for 10 minutes:
+ * {@code ./gradlew loadTest -Pload.rate=1000 -Pload.durationSec=600}
+ *
+ * The harness's own figures are checked against what the mock recorded: the
+ * deaths it delivered, and the drop and p99 bounds, are worked out again from
+ * the mock's request journal.
+ */
+@Tag("load")
+public class DeathStormLoadTest {
+
+    @TempDir
+    Path dir;
+
+    private static final Gson GSON = new Gson();
+
+    private WireMockServer mockServer;
+
+    private static long prop(String name, long fallback) {
+        return Long.getLong("diocles.load." + name, fallback);
+    }
+
+    @BeforeEach
+    void setUp() {
+        mockServer = new WireMockServer(WireMockConfiguration.options().dynamicPort().containerThreads(64));
+        mockServer.start();
+        mockServer.stubFor(post(urlPathMatching("/api/.*"))
+                .willReturn(aResponse().withStatus(200).withFixedDelay((int) prop("latencyMs", 50))));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (mockServer != null)
+            mockServer.stop();
+    }
+
+    @Test
+    void testDeathStorm() throws Exception {
+        DeathStorm.Config config = new DeathStorm.Config(
+                (int) prop("rate", 1000),
+                Duration.ofSeconds(prop("durationSec", 60)),
+                Duration.ofSeconds(prop("drainSec", 60)),
+                (int) prop("players", 200),
+                Duration.ofSeconds(prop("syncSec", 10)),
+                (int) prop("fullSyncEvery", 1),
+                prop("batchMs", 0),
+                (int) prop("capacity", 1024),
+                PostDispatcher.OverloadPolicy.parse(System.getProperty("diocles.load.policy"),
+                        PostDispatcher.OverloadPolicy.COALESCE),
+                Boolean.getBoolean("diocles.load.gzip"));
+
+        DeathStorm.Report report = new DeathStorm(config, "http://localhost:" + mockServer.port(), dir).run();
+        System.out.println("[DeathStorm] " + config);
+        System.out.println("[DeathStorm] " + report);
+
+        long emitted = config.deathsPerSecond() * config.duration().toMillis() / 1000L;
+        assertEquals(emitted, report.emitted());
+        assertEquals(0, report.postsFailed(), "The mock API accepts every post");
+        assertEquals(report.posts(), mockServer.findAll(postRequestedFor(urlPathMatching("/api/.*"))).size(),
+                "Every post the harness sent should have reached the mock");
+
+        // the k-th death of player p was emitted as seq (k - 1) * players + p, on schedule at seq / rate
+        List<LoggedRequest> received = new ArrayList<>(
+                mockServer.findAll(postRequestedFor(urlPathEqualTo("/api/deathboard"))));
+        received.sort(Comparator.comparing(LoggedRequest::getLoggedDate));
+        int[] seen = new int[config.players()];
+        long[] latencies = new long[(int) emitted];
+        int delivered = 0;
+        for (LoggedRequest request : received) {
+            long at = request.getLoggedDate().getTime();
+            for (Map.Entry<String, Map<String, Object>> entry : deathboard(request.getBody()).entrySet()) {
+                if (!entry.getKey().startsWith(DeathStorm.NAME_PREFIX))
+                    continue;
+                int p = Integer.parseInt(entry.getKey().substring(DeathStorm.NAME_PREFIX.length()));
+                int count = ((Number) entry.getValue().get("death_count")).intValue();
+                for (int k = seen[p] + 1; k <= count; k++) {
+                    long seq = (long) (k - 1) * config.players() + p;
+                    latencies[delivered++] = at - (report.startMillis() + seq * 1000 / config.deathsPerSecond());
+                }
+                seen[p] = Math.max(seen[p], count);
+            }
+        }
+        assertEquals(delivered, report.delivered(), "Deaths the mock received");
+
+        long maxP99 = prop("maxP99Ms", 0);
+        if (maxP99 > 0) {
+            long[] sorted = Arrays.copyOf(latencies, delivered);
+            Arrays.sort(sorted);
+            long p99 = delivered > 0 ? sorted[(int) Math.ceil(0.99 * delivered) - 1] : 0;
+            assertTrue(p99 <= maxP99, "p99 time from emission to the mock " + p99 + " ms, over " + maxP99);
+        }
+        long maxDropped = prop("maxDropped", -1);
+        if (maxDropped >= 0)
+            assertTrue(emitted - delivered <= maxDropped, "Dropped " + (emitted - delivered) + " deaths");
+    }
+
+    private static Map<String, Map<String, Object>> deathboard(byte[] body) throws IOException {
+        boolean gzip = body.length > 1 && body[0] == (byte) 0x1f && body[1] == (byte) 0x8b;
+        String json = new String(gzip ? new GZIPInputStream(new ByteArrayInputStream(body)).readAllBytes() : body,
+                StandardCharsets.UTF_8);
+        return GSON.fromJson(json, new TypeToken<Map<String, Map<String, Object>>>() {
+        }.getType());
+    }
+}
@@ -0,0 +1,123 @@
+package com.shadowbq.diocles;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for config snapshots and config file watching
+ */
+public class DioclesConfigTest {
+
+    @Test
+    void testEmptyConfigIsDefaults() {
+        DioclesConfig cfg = DioclesConfig.parse(Map.of(), Map.of());
+        assertEquals(DioclesConfig.DEFAULTS, cfg);
+        assertFalse(cfg.hasApi());
+    }
+
+    @Test
+    void testEnvironmentWinsForEndpoint() {
+        Map<String, Object> file = new HashMap<>();
+        file.put("deathboard_uri", "http://file:3000");
+        file.put("authkey", "file-key");
+        file.put("batch_window_ms", 250.0); // Gson reads numbers as doubles
+
+        DioclesConfig fromFile = DioclesConfig.parse(file, Map.of());
+        assertEquals("http://file:3000", fromFile.postUrl());
+        assertEquals("file-key", fromFile.authKey());
+        assertEquals(250L, fromFile.batchWindowMs());
+
+        DioclesConfig fromEnv = DioclesConfig.parse(file,
+                Map.of(DioclesConfig.ENV_URL, "http://env:3000", DioclesConfig.ENV_AUTHKEY, "env-key"));
+        assertEquals("http://env:3000", fromEnv.postUrl());
+        assertEquals("env-key", fromEnv.authKey());
+        assertEquals(250L, fromEnv.batchWindowMs());
+        assertTrue(fromEnv.hasApi());
+    }
+
+    @Test
+    void testEnvironmentUrlIgnoresFileAuthKey() {
+        Map<String, Object> file = new HashMap<>();
+        file.put("deathboard_uri", "http://file:3000");
+        file.put("authkey", "file-key");
+        file.put("batch_window_ms", 250.0);
+
+        // a file key is never sent to an endpoint that came from the environment
+        DioclesConfig envUrl = DioclesConfig.parse(file, Map.of(DioclesConfig.ENV_URL, "http://env:3000"));
+        assertEquals("http://env:3000", envUrl.postUrl());
+        assertNull(envUrl.authKey());
+        assertEquals(250L, envUrl.batchWindowMs());
+
+        // an environment key still applies to the file's endpoint
+        DioclesConfig envKey = DioclesConfig.parse(file, Map.of(DioclesConfig.ENV_AUTHKEY, "env-key"));
+        assertEquals("http://file:3000", envKey.postUrl());
+        assertEquals("env-key", envKey.authKey());
+    }
+
+    @Test
+    void testTuningKeysAreClamped() {
+        Map<String, Object> file = new HashMap<>();
+        file.put("batch_max_size", 0.0);
+        file.put("metrics_interval_ms", "10");
+        file.put("hook_budget_us", "not a number");
+        file.put("sync_mode", "Delta");
+        file.put("gzip_payloads", "true");
+        file.put("dispatch_overload_policy", "drop_oldest");
+        file.put("metrics_textfile", " ");
+
+        DioclesConfig cfg = DioclesConfig.parse(file, Map.of());
+        assertEquals(1, cfg.batchMaxSize());
+        assertEquals(1000L, cfg.metricsIntervalMs());
+        assertEquals(DioclesConfig.DEFAULTS.hookBudgetUs(), cfg.hookBudgetUs());
+        assertTrue(cfg.deltaSync());
+        assertTrue(cfg.gzipPayloads());
+        assertEquals(PostDispatcher.OverloadPolicy.DROP_OLDEST, cfg.overloadPolicy());
+        assertNull(cfg.metricsTextfile());
+    }
+
+    @Test
+    void testToStringHidesAuthKey() {
+        DioclesConfig cfg = DioclesConfig.parse(Map.of("authkey", "s3cret"), Map.of());
+        assertFalse(cfg.toString().contains("s3cret"));
+    }
+
+    @Test
+    void testLoadMissingAndMalformedFiles() throws IOException {
+        Path dir = Files.createTempDirectory("diocles-config");
+        Path file = dir.resolve("diocles.json");
+        assertEquals(DioclesConfig.DEFAULTS, DioclesConfig.load(file, Map.of()));
+
+        Files.writeString(file, "{\"deathboard_uri\": \"http://a:1\", \"sync_mode\": \"delta\"}");
+        DioclesConfig cfg = DioclesConfig.load(file, Map.of());
+        assertEquals("http://a:1", cfg.postUrl());
+        assertTrue(cfg.deltaSync());
+
+        // a half-written file must not replace a good snapshot
+        Files.writeString(file, "{\"deathboard_uri\": ");
+        assertThrows(IOException.class, () -> DioclesConfig.load(file, Map.of()));
+    }
+
+    @Test
+    void testWatcherFiresOnlyForWatchedFile() throws Exception {
+        Path dir = Files.createTempDirectory("diocles-watch");
+        Path file = dir.resolve("diocles.json");
+        Semaphore changes = new Semaphore(0);
+        try (ConfigWatcher watcher = new ConfigWatcher(file, changes::release)) {
+            Files.writeString(dir.resolve("other.json"), "{}", StandardCharsets.UTF_8);
+            assertFalse(changes.tryAcquire(ConfigWatcher.SETTLE_MS * 3, TimeUnit.MILLISECONDS));
+
+            Files.writeString(file, "{\"batch_window_ms\": 100}", StandardCharsets.UTF_8);
+            // polling watch services (macOS) can take several seconds
+            assertTrue(changes.tryAcquire(15, TimeUnit.SECONDS));
+        }
+    }
+}
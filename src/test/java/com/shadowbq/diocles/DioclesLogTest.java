@@ -0,0 +1,159 @@
+package com.shadowbq.diocles;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.event.Level;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for rate-limited, asynchronous logging
+ */
+public class DioclesLogTest {
+
+    private record Line(Level level, String message, Throwable error, String thread) {
+    }
+
+    private static class RecordingSink implements DioclesLog.Sink {
+        final List<Line> lines = new CopyOnWriteArrayList<>();
+        Level threshold = Level.INFO;
+
+        @Override
+        public boolean enabled(Level level) {
+            return level.toInt() >= threshold.toInt();
+        }
+
+        @Override
+        public void write(Level level, String message, Throwable error) {
+            lines.add(new Line(level, message, error, Thread.currentThread().getName()));
+        }
+    }
+
+    @Test
+    void testRateLimiterBurstThenRefill() {
+        DioclesLog.RateLimiter limiter = new DioclesLog.RateLimiter(3, 1.0);
+        long t = 0;
+        for (int i = 0; i < 3; i++)
+            assertEquals(0, limiter.tryAcquire("death", t));
+        assertEquals(-1, limiter.tryAcquire("death", t));
+        assertEquals(-1, limiter.tryAcquire("death", t + 500_000_000L));
+        // another template has its own bucket
+        assertEquals(0, limiter.tryAcquire("post", t));
+        // one token back after a second, reporting what was suppressed
+        assertEquals(2, limiter.tryAcquire("death", t + 1_000_000_000L));
+        assertEquals(-1, limiter.tryAcquire("death", t + 1_000_000_000L));
+    }
+
+    @Test
+    void testWritesOffTheCallingThread() {
+        RecordingSink sink = new RecordingSink();
+        DioclesLog log = new DioclesLog(sink, 16, 10, 1.0);
+        log.log(Level.INFO, "Death player={} deaths={}", new Object[] { "Steve", 3 });
+        log.log(Level.DEBUG, "POST url={} status={}", new Object[] { "http://x", 200 });
+        assertTrue(log.awaitIdle(5000));
+
+        assertEquals(1, sink.lines.size(), "Disabled levels are not queued");
+        Line line = sink.lines.get(0);
+        assertEquals("Death player=Steve deaths=3", line.message());
+        assertEquals("Diocles-Log", line.thread());
+    }
+
+    @Test
+    void testArgumentsAreFormattedByTheCaller() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingSink sink = new RecordingSink() {
+            @Override
+            public void write(Level level, String message, Throwable error) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.write(level, message, error);
+            }
+        };
+        DioclesLog log = new DioclesLog(sink, 16, 10, 1.0);
+        List<String> players = new ArrayList<>(List.of("Steve"));
+        log.log(Level.INFO, "Online players={}", new Object[] { players });
+        players.add("Alex"); // changed before the writer gets to the line
+        release.countDown();
+        assertTrue(log.awaitIdle(5000));
+
+        assertEquals("Online players=[Steve]", sink.lines.get(0).message());
+    }
+
+    @Test
+    void testStormIsSuppressedAndCounted() {
+        RecordingSink sink = new RecordingSink();
+        DioclesLog log = new DioclesLog(sink, 1024, 5, 0.001);
+        Exception error = new IllegalStateException("boom");
+        for (int i = 0; i < 1000; i++)
+            log.log(Level.WARN, "POST failed endpoint={}", new Object[] { "/api/deathboard", error });
+        assertTrue(log.awaitIdle(5000));
+
+        assertEquals(5, sink.lines.size());
+        assertEquals(995, log.suppressed());
+        assertEquals(0, log.dropped());
+    }
+
+    @Test
+    void testErrorsAndCommandOutputAreNotLimited() {
+        RecordingSink sink = new RecordingSink();
+        DioclesLog log = new DioclesLog(sink, 1024, 1, 0.001);
+        for (int i = 0; i < 20; i++) {
+            log.log(Level.ERROR, "Spool write failed error={}", new Object[] { "disk full" });
+            log.log(Level.INFO, "Deathboard {}", new Object[] { i }, false);
+        }
+        assertTrue(log.awaitIdle(5000));
+
+        assertEquals(40, sink.lines.size());
+        assertEquals(0, log.suppressed());
+    }
+
+    @Test
+    void testSuppressedCountKeepsThrowable() throws Exception {
+        RecordingSink sink = new RecordingSink();
+        DioclesLog log = new DioclesLog(sink, 16, 1, 20.0);
+        Exception error = new IllegalStateException("boom");
+        log.log(Level.WARN, "POST failed endpoint={}", new Object[] { "/a", error });
+        log.log(Level.WARN, "POST failed endpoint={}", new Object[] { "/b", error });
+        // a token every 50ms
+        Thread.sleep(100);
+        log.log(Level.WARN, "POST failed endpoint={}", new Object[] { "/c", error });
+        assertTrue(log.awaitIdle(5000));
+
+        Line reported = sink.lines.get(1);
+        assertEquals("POST failed endpoint=/c (suppressed=1 similar)", reported.message());
+        assertSame(error, reported.error());
+    }
+
+    @Test
+    void testFullQueueDropsInsteadOfBlocking() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingSink sink = new RecordingSink() {
+            @Override
+            public void write(Level level, String message, Throwable error) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.write(level, message, error);
+            }
+        };
+        DioclesLog log = new DioclesLog(sink, 2, 100, 1.0);
+        long start = System.nanoTime();
+        for (int i = 0; i < 10; i++)
+            log.log(Level.INFO, "line {}", new Object[] { i });
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1), "Logging must not block");
+        release.countDown();
+        assertTrue(log.awaitIdle(5000));
+        // one line held by the writer, two queued, the rest dropped
+        assertTrue(log.dropped() >= 7, "dropped " + log.dropped());
+        assertEquals(10, sink.lines.size() + log.dropped());
+    }
+}
@@ -0,0 +1,141 @@
+package com.shadowbq.diocles;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for hook timing, per-tick budgets and the slow-hook watchdog
+ */
+public class HookProfilerTest {
+
+    private static void spin(long nanos) {
+        long end = System.nanoTime() + nanos;
+        while (System.nanoTime() < end)
+            Thread.onSpinWait();
+    }
+
+    @Test
+    void testRecordsCallStatistics() {
+        HookProfiler profiler = new HookProfiler(1_000_000L, 5_000_000L);
+        HookProfiler.Hook hook = profiler.hook("tick");
+        assertSame(hook, profiler.hook("tick"));
+        for (int i = 0; i < 10; i++) {
+            long start = hook.begin();
+            spin(100_000L);
+            hook.end(start);
+        }
+        HookProfiler.HookStats s = hook.stats();
+        assertEquals(10, s.calls());
+        assertTrue(s.totalNanos() >= 1_000_000L);
+        assertTrue(s.p50Nanos() >= 100_000L && s.p50Nanos() <= s.p99Nanos() && s.p99Nanos() <= s.maxNanos());
+        assertEquals(0, s.slowCalls());
+    }
+
+    @Test
+    void testTickBudget() {
+        HookProfiler profiler = new HookProfiler(500_000L, 50_000_000L);
+        HookProfiler.Hook tick = profiler.hook("tick");
+        HookProfiler.Hook death = profiler.hook("death");
+        // a cheap tick, then a tick whose two hooks only go over budget together
+        long start = tick.begin();
+        tick.end(start);
+        profiler.endTick();
+        start = death.begin();
+        spin(300_000L);
+        death.end(start);
+        start = tick.begin();
+        spin(300_000L);
+        tick.end(start);
+        profiler.endTick();
+
+        HookProfiler.TickStats t = profiler.tickStats();
+        assertEquals(2, t.ticks());
+        assertEquals(1, t.overBudget());
+        assertEquals(1, profiler.overBudgetTicks());
+        assertTrue(t.maxNanos() >= 600_000L);
+    }
+
+    @Test
+    void testWorstHooksFirst() {
+        HookProfiler profiler = new HookProfiler(1_000_000L, 50_000_000L);
+        HookProfiler.Hook fast = profiler.hook("fast");
+        HookProfiler.Hook slow = profiler.hook("slow");
+        long start = fast.begin();
+        fast.end(start);
+        start = slow.begin();
+        spin(1_000_000L);
+        slow.end(start);
+        List<HookProfiler.HookStats> worst = profiler.worstHooks();
+        assertEquals("slow", worst.get(0).name());
+        assertEquals("fast", worst.get(1).name());
+    }
+
+    @Test
+    void testWatchdogSamplesStuckHook() throws Exception {
+        HookProfiler profiler = new HookProfiler(1_000_000L, 20_000_000L);
+        HookProfiler.Hook hook = profiler.hook("death");
+        List<HookProfiler.SlowSample> samples = new CopyOnWriteArrayList<>();
+        CountDownLatch sampled = new CountDownLatch(1);
+        profiler.startWatchdog(5, sample -> {
+            samples.add(sample);
+            sampled.countDown();
+        });
+        try {
+            long start = hook.begin();
+            assertTrue(sampled.await(5, TimeUnit.SECONDS), "Watchdog never sampled the stuck hook");
+            Thread.sleep(50);
+            hook.end(start);
+        } finally {
+            profiler.stopWatchdog();
+        }
+
+        assertEquals(1, samples.size(), "A stuck call is sampled once");
+        HookProfiler.SlowSample s = samples.get(0);
+        assertEquals("death", s.hook());
+        assertEquals(Thread.currentThread().getName(), s.thread());
+        assertTrue(s.elapsedNanos() > 20_000_000L);
+        assertTrue(s.stack().stream().anyMatch(f -> f.getMethodName().equals("testWatchdogSamplesStuckHook")));
+        assertEquals(1, hook.stats().slowCalls());
+        assertSame(s, hook.stats().lastSlow());
+        assertTrue(HookProfiler.format(s).startsWith("Slow hook 'death' running for "));
+    }
+
+    @Test
+    void testNestedCallsReuseSlots() throws Exception {
+        HookProfiler profiler = new HookProfiler(1_000_000L, 20_000_000L);
+        HookProfiler.Hook tick = profiler.hook("tick");
+        HookProfiler.Hook death = profiler.hook("death");
+        // many quick calls through the same slots, then a stuck one nested in another
+        for (int i = 0; i < 1000; i++) {
+            long outer = tick.begin();
+            long inner = death.begin();
+            death.end(inner);
+            tick.end(outer);
+        }
+        List<HookProfiler.SlowSample> samples = new CopyOnWriteArrayList<>();
+        CountDownLatch sampled = new CountDownLatch(1);
+        profiler.startWatchdog(5, sample -> {
+            samples.add(sample);
+            sampled.countDown();
+        });
+        try {
+            long outer = tick.begin();
+            long inner = death.begin();
+            assertTrue(sampled.await(5, TimeUnit.SECONDS), "Watchdog never sampled the stuck hook");
+            death.end(inner);
+            tick.end(outer);
+        } finally {
+            profiler.stopWatchdog();
+        }
+
+        assertEquals("death", samples.get(0).hook());
+        assertEquals(1001, tick.stats().calls());
+        assertEquals(1001, death.stats().calls());
+        assertNull(profiler.checkSlow(), "Nothing is running once both calls ended");
+    }
+}
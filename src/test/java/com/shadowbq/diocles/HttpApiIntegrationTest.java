@@ -5,6 +5,7 @@ import com.github.tomakehurst.wiremock.client.WireMock;
 import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.sun.net.httpserver.HttpServer;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.AfterEach;
@@ -13,11 +14,19 @@ import static com.github.tomakehurst.wiremock.client.WireMock.*;
 
 import java.io.IOException;
 import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.URI;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Integration tests using WireMock to test HTTP API interactions
@@ -373,6 +382,65 @@ public class HttpApiIntegrationTest {
         });
     }
 
+    @Test
+    void testSharedTransportReusesClient() throws Exception {
+        // Setup: Mock both endpoints the deathboard poster and debug-ping use
+        stubFor(post(urlEqualTo("/api/deathboard"))
+                .willReturn(aResponse().withStatus(200)));
+        stubFor(get(urlEqualTo("/health"))
+                .willReturn(aResponse().withStatus(200)));
+
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Content-Type", "application/json");
+        headers.put("authkey", "test-auth-key");
+        byte[] body = gson.toJson(createTestDeathPayload()).getBytes(StandardCharsets.UTF_8);
+
+        // Act: several async sends over the same HttpClient
+        for (int i = 0; i < 3; i++) {
+            int code = HttpTransport.post(baseUrl + "/api/deathboard", body, headers, Duration.ofSeconds(5))
+                    .get(10, TimeUnit.SECONDS);
+            assertEquals(200, code);
+        }
+        int pingCode = HttpTransport.get(baseUrl + "/health", Map.of(), Duration.ofSeconds(5))
+                .get(10, TimeUnit.SECONDS);
+        assertEquals(200, pingCode);
+
+        verify(3, postRequestedFor(urlEqualTo("/api/deathboard"))
+                .withHeader("authkey", equalTo("test-auth-key"))
+                .withRequestBody(containing("testplayer")));
+        verify(getRequestedFor(urlEqualTo("/health")));
+
+        // Assert: sequential sends arrive over one kept-alive connection (one client port)
+        Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+        HttpServer local = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        local.createContext("/", ex -> {
+            clientPorts.add(ex.getRemoteAddress().getPort());
+            ex.getRequestBody().readAllBytes();
+            ex.sendResponseHeaders(200, -1);
+            ex.close();
+        });
+        local.start();
+        try {
+            String url = "http://127.0.0.1:" + local.getAddress().getPort() + "/api/deathboard";
+            for (int i = 0; i < 5; i++) {
+                int code = HttpTransport.post(url, body, headers, Duration.ofSeconds(5)).get(10, TimeUnit.SECONDS);
+                assertEquals(200, code);
+            }
+        } finally {
+            local.stop(0);
+        }
+        assertEquals(1, clientPorts.size(), "Posts should reuse one connection, saw ports " + clientPorts);
+    }
+
+    @Test
+    void testSharedTransportReportsConnectionFailure() {
+        // Nothing listens on the stopped server's port
+        mockServer.stop();
+        CompletableFuture<Integer> result = HttpTransport.get(baseUrl + "/health", Map.of(), Duration.ofSeconds(2));
+        ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(IOException.class, e.getCause());
+    }
+
     // Helper methods to create test data
 
     private Map<String, Object> createTestDeathPayload() {
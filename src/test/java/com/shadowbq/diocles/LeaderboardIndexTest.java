@@ -0,0 +1,101 @@
+package com.shadowbq.diocles;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Tests for the ranked leaderboard index
+ */
+public class LeaderboardIndexTest {
+
+    @Test
+    void testOrdersByScoreThenName() {
+        LeaderboardIndex index = new LeaderboardIndex();
+        index.update("carol", 3);
+        index.update("alice", 5);
+        index.update("bob", 3);
+        index.update("dave", 0);
+
+        assertEquals(List.of(
+                new LeaderboardIndex.Entry("alice", 5),
+                new LeaderboardIndex.Entry("bob", 3),
+                new LeaderboardIndex.Entry("carol", 3)), index.top(3));
+        assertEquals(4, index.top(10).size());
+        assertEquals(1, index.rank("alice"));
+        assertEquals(3, index.rank("carol"));
+        assertEquals(4, index.rank("dave"));
+        assertEquals(-1, index.rank("nobody"));
+    }
+
+    @Test
+    void testUpdateMovesEntry() {
+        LeaderboardIndex index = new LeaderboardIndex();
+        index.update("alice", 5);
+        index.update("bob", 1);
+        index.update("bob", 9);
+
+        assertEquals(2, index.size());
+        assertEquals(1, index.rank("bob"));
+        assertEquals(Integer.valueOf(9), index.score("bob"));
+        assertEquals("bob", index.top(1).get(0).name());
+    }
+
+    @Test
+    void testVersionChangesOnlyOnChange() {
+        LeaderboardIndex index = new LeaderboardIndex();
+        index.update("alice", 1);
+        long v = index.version();
+        index.update("alice", 1);
+        assertEquals(v, index.version());
+        index.update("alice", 2);
+        assertNotEquals(v, index.version());
+    }
+
+    @Test
+    void testRemoveAndClear() {
+        LeaderboardIndex index = new LeaderboardIndex();
+        index.update("alice", 5);
+        index.update("bob", 3);
+        index.remove("alice");
+        assertNull(index.score("alice"));
+        assertEquals(1, index.rank("bob"));
+        index.clear();
+        assertEquals(0, index.size());
+        assertTrue(index.top(10).isEmpty());
+    }
+
+    @Test
+    void testMatchesSortedReference() {
+        LeaderboardIndex index = new LeaderboardIndex();
+        Map<String, Integer> reference = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 5000; i++) {
+            String name = "p" + random.nextInt(300);
+            if (random.nextInt(10) == 0) {
+                index.remove(name);
+                reference.remove(name);
+            } else {
+                int score = random.nextInt(50);
+                index.update(name, score);
+                reference.put(name, score);
+            }
+        }
+
+        List<Map.Entry<String, Integer>> sorted = new ArrayList<>(reference.entrySet());
+        sorted.sort(Comparator.<Map.Entry<String, Integer>>comparingInt(Map.Entry::getValue).reversed()
+                .thenComparing(Map.Entry::getKey));
+        assertEquals(sorted.size(), index.size());
+        List<LeaderboardIndex.Entry> all = index.top(Integer.MAX_VALUE);
+        for (int i = 0; i < sorted.size(); i++) {
+            assertEquals(sorted.get(i).getKey(), all.get(i).name());
+            assertEquals(i + 1, index.rank(sorted.get(i).getKey()));
+        }
+    }
+}
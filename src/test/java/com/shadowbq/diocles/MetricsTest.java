@@ -0,0 +1,76 @@
+package com.shadowbq.diocles;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tests for the metrics registry and Prometheus rendering
+ */
+public class MetricsTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testCounterIsSharedByName() {
+        Metrics.Counter a = Metrics.counter("test_counter_shared_total", "Shared counter");
+        Metrics.Counter b = Metrics.counter("test_counter_shared_total", "Shared counter");
+        assertSame(a, b);
+        a.increment();
+        b.add(4);
+        assertEquals(5, a.get());
+        assertThrows(IllegalArgumentException.class,
+                () -> Metrics.histogram("test_counter_shared_total", "Clash", Metrics.SIZE_BUCKETS));
+    }
+
+    @Test
+    void testHistogramBucketsAndQuantiles() {
+        Metrics.Histogram h = Metrics.histogram("test_histogram_seconds", "Latency", new double[] { 1, 2, 5 });
+        for (int i = 0; i < 90; i++)
+            h.observe(0.5);
+        for (int i = 0; i < 9; i++)
+            h.observe(3);
+        h.observe(100);
+        assertEquals(100, h.count());
+        assertEquals(1.0, h.quantile(0.5));
+        assertEquals(5.0, h.quantile(0.99));
+        assertEquals(Double.POSITIVE_INFINITY, h.quantile(1));
+
+        String text = Metrics.renderPrometheus();
+        assertTrue(text.contains("# TYPE test_histogram_seconds histogram\n"));
+        assertTrue(text.contains("test_histogram_seconds_bucket{le=\"1\"} 90\n"));
+        assertTrue(text.contains("test_histogram_seconds_bucket{le=\"2\"} 90\n"));
+        assertTrue(text.contains("test_histogram_seconds_bucket{le=\"5\"} 99\n"));
+        assertTrue(text.contains("test_histogram_seconds_bucket{le=\"+Inf\"} 100\n"));
+        assertTrue(text.contains("test_histogram_seconds_count 100\n"));
+    }
+
+    @Test
+    void testGaugeIsSampledAtRenderTime() {
+        AtomicLong depth = new AtomicLong();
+        Metrics.gauge("test_gauge_depth", "Queue depth", depth::get);
+        depth.set(7);
+        assertTrue(Metrics.renderPrometheus().contains("test_gauge_depth 7\n"));
+        Metrics.gauge("test_gauge_broken", "Throws", () -> {
+            throw new IllegalStateException();
+        });
+        assertTrue(Metrics.renderPrometheus().contains("test_gauge_broken NaN\n"));
+    }
+
+    @Test
+    void testWriteTextfile() throws Exception {
+        Metrics.counter("test_textfile_total", "Written to disk").add(3);
+        Path file = dir.resolve("collector").resolve("diocles.prom");
+        Metrics.writeTextfile(file);
+        String text = Files.readString(file, StandardCharsets.UTF_8);
+        assertTrue(text.contains("# HELP test_textfile_total Written to disk\n"));
+        assertTrue(text.contains("test_textfile_total 3\n"));
+        assertFalse(Files.exists(file.resolveSibling("diocles.prom.tmp")));
+    }
+}
@@ -0,0 +1,229 @@
+package com.shadowbq.diocles;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for the write-ahead outbound spool
+ */
+public class OutboundSpoolTest {
+
+    @TempDir
+    Path dir;
+
+    private ScheduledExecutorService scheduler;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    private static byte[] body(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void awaitDrained(OutboundSpool spool) throws InterruptedException {
+        for (int i = 0; i < 200 && spool.pendingCount() > 0; i++)
+            Thread.sleep(10);
+        assertEquals(0, spool.pendingCount(), "Spool should drain");
+    }
+
+    @Test
+    void testDeliversInOrder() throws Exception {
+        List<String> delivered = new CopyOnWriteArrayList<>();
+        OutboundSpool spool = OutboundSpool.open(dir, (endpoint, headers, body, key) -> {
+            delivered.add(endpoint + " " + new String(body, StandardCharsets.UTF_8));
+            return CompletableFuture.completedFuture(200);
+        }, scheduler, 1, 10);
+        spool.start();
+        spool.enqueue("/api/deathboard", body("{\"a\":1}"));
+        spool.enqueue("/api/sync", body("{\"b\":2}"));
+        awaitDrained(spool);
+        spool.close();
+
+        assertEquals(List.of("/api/deathboard {\"a\":1}", "/api/sync {\"b\":2}"), delivered);
+        assertEquals(0L, Files.size(dir.resolve("spool.log")), "Drained spool should be truncated");
+    }
+
+    @Test
+    void testRetriesWithSameIdempotencyKey() throws Exception {
+        List<String> keys = new CopyOnWriteArrayList<>();
+        AtomicInteger attempts = new AtomicInteger();
+        OutboundSpool spool = OutboundSpool.open(dir, (endpoint, headers, body, key) -> {
+            keys.add(key);
+            if (attempts.incrementAndGet() < 3)
+                return CompletableFuture.failedFuture(new IOException("connection refused"));
+            return CompletableFuture.completedFuture(200);
+        }, scheduler, 1, 5);
+        spool.start();
+        String key = spool.enqueue("/api/deathboard", body("{}"));
+        awaitDrained(spool);
+        spool.close();
+
+        assertEquals(3, attempts.get());
+        assertEquals(List.of(key, key, key), keys);
+    }
+
+    @Test
+    void testPendingEntriesSurviveRestart() throws Exception {
+        OutboundSpool offline = OutboundSpool.open(dir,
+                (endpoint, headers, body, key) -> CompletableFuture.completedFuture(503), scheduler, 60_000, 60_000);
+        offline.start();
+        String first = offline.enqueue("/api/deathboard", body("{\"a\":1}"));
+        offline.enqueue("/api/deathboard", body("{\"a\":2}"));
+        offline.close();
+
+        List<String> keys = new CopyOnWriteArrayList<>();
+        OutboundSpool online = OutboundSpool.open(dir, (endpoint, headers, body, key) -> {
+            keys.add(key);
+            return CompletableFuture.completedFuture(200);
+        }, scheduler, 1, 10);
+        assertEquals(2, online.pendingCount());
+        online.start();
+        awaitDrained(online);
+        online.close();
+
+        assertEquals(2, keys.size());
+        assertEquals(first, keys.get(0));
+    }
+
+    @Test
+    void testHeadersAreStoredAndReportedOnDelivery() throws Exception {
+        List<String> sent = new CopyOnWriteArrayList<>();
+        List<String> delivered = new CopyOnWriteArrayList<>();
+        OutboundSpool spool = OutboundSpool.open(dir, (endpoint, headers, body, key) -> {
+            sent.add(headers.toString());
+            return CompletableFuture.completedFuture(sent.size() == 1 ? 500 : 200);
+        }, scheduler, 1, 10);
+        spool.setDeliveryListener((endpoint, headers) -> delivered.add(endpoint + headers));
+        spool.start();
+        spool.enqueue("/api/sync", Map.of("X-Diocles-Sync-Seq", "7"), body("{}"));
+        awaitDrained(spool);
+        spool.close();
+
+        assertEquals(List.of("{X-Diocles-Sync-Seq=7}", "{X-Diocles-Sync-Seq=7}"), sent);
+        assertEquals(List.of("/api/sync{X-Diocles-Sync-Seq=7}"), delivered,
+                "Only the successful attempt should be reported");
+    }
+
+    @Test
+    void testServerErrorsAreRetriedUntilAccepted() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        OutboundSpool spool = OutboundSpool.open(dir, (endpoint, headers, body, key) -> {
+            int n = attempts.incrementAndGet();
+            return CompletableFuture.completedFuture(n <= 12 ? (n % 2 == 0 ? 502 : 503) : 200);
+        }, scheduler, 1, 2);
+        spool.start();
+        spool.enqueue("/api/deathboard", body("{}"));
+        awaitDrained(spool);
+        assertEquals(0, spool.parkedCount(), "5xx should never park a post");
+        spool.close();
+
+        assertEquals(13, attempts.get());
+    }
+
+    @Test
+    void testRejectedEntryIsParkedWithoutBlockingLaterPosts() throws Exception {
+        List<String> delivered = new CopyOnWriteArrayList<>();
+        AtomicInteger rejected = new AtomicInteger();
+        OutboundSpool spool = OutboundSpool.open(dir, (endpoint, headers, body, key) -> {
+            String text = new String(body, StandardCharsets.UTF_8);
+            if (text.equals("bad")) {
+                rejected.incrementAndGet();
+                return CompletableFuture.completedFuture(400);
+            }
+            delivered.add(text);
+            return CompletableFuture.completedFuture(200);
+        }, scheduler, 1, 2);
+        spool.start();
+        spool.enqueue("/api/deathboard", body("bad"));
+        spool.enqueue("/api/deathboard", body("good"));
+        awaitDrained(spool);
+        assertEquals(1, spool.parkedCount());
+        spool.close();
+
+        assertEquals(List.of("good"), delivered);
+        assertEquals(1, rejected.get(), "4xx responses should not be retried");
+        assertTrue(Files.size(dir.resolve("spool.dead")) > 0, "Parked entry should be kept for inspection");
+        assertEquals(0L, Files.size(dir.resolve("spool.log")));
+    }
+
+    @Test
+    void testRedriveRequeuesParkedEntriesWithTheirKeys() throws Exception {
+        AtomicBoolean fixed = new AtomicBoolean();
+        List<String> keys = new CopyOnWriteArrayList<>();
+        List<String> delivered = new CopyOnWriteArrayList<>();
+        OutboundSpool spool = OutboundSpool.open(dir, (endpoint, headers, body, key) -> {
+            keys.add(key);
+            if (!fixed.get())
+                return CompletableFuture.completedFuture(422);
+            delivered.add(new String(body, StandardCharsets.UTF_8));
+            return CompletableFuture.completedFuture(200);
+        }, scheduler, 1, 2);
+        spool.start();
+        String first = spool.enqueue("/api/deathboard", body("a"));
+        String second = spool.enqueue("/api/deathboard", body("b"));
+        awaitDrained(spool);
+        assertEquals(2, spool.parkedCount());
+
+        fixed.set(true);
+        assertEquals(2, spool.redriveParked());
+        awaitDrained(spool);
+        spool.close();
+
+        assertEquals(List.of("a", "b"), delivered);
+        assertEquals(List.of(first, second), keys.subList(2, 4));
+        assertEquals(0L, Files.size(dir.resolve("spool.dead")));
+        assertEquals(0L, Files.size(dir.resolve("spool.log")));
+    }
+
+    @Test
+    void testSeveralSendsInFlight() throws Exception {
+        List<CompletableFuture<Integer>> outstanding = new CopyOnWriteArrayList<>();
+        OutboundSpool spool = OutboundSpool.open(dir, (endpoint, headers, body, key) -> {
+            CompletableFuture<Integer> f = new CompletableFuture<>();
+            outstanding.add(f);
+            return f;
+        }, scheduler, 1, 10);
+        spool.start();
+        for (int i = 0; i < OutboundSpool.MAX_IN_FLIGHT + 2; i++)
+            spool.enqueue("/api/deathboard", body("{\"n\":" + i + "}"));
+        assertEquals(OutboundSpool.MAX_IN_FLIGHT, outstanding.size());
+
+        // a later send finishing first does not acknowledge past the unfinished head
+        outstanding.get(1).complete(200);
+        Thread.sleep(50);
+        assertEquals(OutboundSpool.MAX_IN_FLIGHT + 1, outstanding.size());
+        assertEquals(OutboundSpool.MAX_IN_FLIGHT + 2, spool.pendingCount());
+
+        for (int i = 0; i < 20 && spool.pendingCount() > 0; i++) {
+            for (CompletableFuture<Integer> f : outstanding)
+                f.complete(200);
+            Thread.sleep(10);
+        }
+        awaitDrained(spool);
+        spool.close();
+        assertEquals(OutboundSpool.MAX_IN_FLIGHT + 2, outstanding.size());
+    }
+}
@@ -0,0 +1,81 @@
+package com.shadowbq.diocles;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Tests for streaming payload serialization
+ */
+public class PayloadEncoderTest {
+
+    private static Map<String, Object> player(int count) {
+        Map<String, Object> info = new LinkedHashMap<>();
+        info.put("death_count", count);
+        info.put("last_death_time", "2026-01-02T03:04:05Z");
+        info.put("last_death_day", 12L);
+        info.put("location", Map.of("x", 1.5, "y", 64.0, "z", -3.25));
+        info.put("world", "minecraft:overworld");
+        return info;
+    }
+
+    private static Map<String, Object> roster(int players) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        for (int i = 0; i < players; i++)
+            payload.put("player" + i, player(i));
+        return payload;
+    }
+
+    @Test
+    void testMatchesGsonOutput() {
+        Map<String, Object> payload = roster(3);
+        String json = new String(PayloadEncoder.encode(payload), StandardCharsets.UTF_8);
+        assertEquals(new Gson().toJson(payload), json);
+        assertFalse(json.contains("\n"), "Output should be compact");
+    }
+
+    @Test
+    void testNestedValues() {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("list", List.of(1, "two", true));
+        payload.put("skipped", null);
+        payload.put("unicode", "Zo\u00eb \u2620");
+        String json = new String(PayloadEncoder.encode(payload), StandardCharsets.UTF_8);
+        assertEquals("{\"list\":[1,\"two\",true],\"unicode\":\"Zo\u00eb \u2620\"}", json);
+    }
+
+    @Test
+    void testSmallBodyNotCompressed() {
+        PayloadEncoder.Body body = PayloadEncoder.encode(Map.of("alice", player(1)), true);
+        assertNull(body.contentEncoding());
+    }
+
+    @Test
+    void testGzipRoundTrip() throws IOException {
+        Map<String, Object> payload = roster(200);
+        PayloadEncoder.Body plain = PayloadEncoder.encode(payload, false);
+        PayloadEncoder.Body gz = PayloadEncoder.encode(payload, true);
+
+        assertEquals("gzip", gz.contentEncoding());
+        assertTrue(gz.bytes().length * 4 < plain.bytes().length,
+                "Roster should compress well: " + gz.bytes().length + " vs " + plain.bytes().length);
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gz.bytes()))) {
+            assertArrayEquals(plain.bytes(), in.readAllBytes());
+        }
+    }
+
+    @Test
+    void testBufferReuseDoesNotLeak() {
+        PayloadEncoder.encode(roster(50));
+        byte[] small = PayloadEncoder.encode(Map.of("bob", Map.of("death_count", 2)));
+        assertEquals("{\"bob\":{\"death_count\":2}}", new String(small, StandardCharsets.UTF_8));
+    }
+}
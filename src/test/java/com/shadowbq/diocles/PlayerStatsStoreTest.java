@@ -0,0 +1,66 @@
+package com.shadowbq.diocles;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.UUID;
+
+/**
+ * Tests for the column-wise per-player stats store
+ */
+public class PlayerStatsStoreTest {
+
+    @Test
+    void testRecordAndGet() {
+        PlayerStatsStore store = new PlayerStatsStore();
+        UUID alice = UUID.randomUUID();
+        DeathRecord record = new DeathRecord(alice, "alice", 1000L, 3L, 2, 10, 64, -5, "minecraft:overworld");
+        int index = store.record(record);
+
+        assertEquals(0, index);
+        assertEquals(record, store.get(alice));
+        assertEquals(record, store.get(index));
+        assertEquals(2, store.deathCount(index));
+        assertNull(store.get(UUID.randomUUID()));
+        assertEquals(-1, store.indexOf(UUID.randomUUID()));
+    }
+
+    @Test
+    void testRenameKeepsRow() {
+        PlayerStatsStore store = new PlayerStatsStore();
+        UUID uuid = UUID.randomUUID();
+        int first = store.record(uuid, "oldname", 1L, 0L, 1, 0, 0, 0, "minecraft:overworld");
+        int second = store.record(uuid, "newname", 2L, 0L, 2, 0, 0, 0, "minecraft:the_nether");
+
+        assertEquals(first, second);
+        assertEquals(1, store.size());
+        assertEquals("newname", store.name(first));
+        assertEquals("minecraft:the_nether", store.get(uuid).world());
+    }
+
+    @Test
+    void testWorldsInterned() {
+        PlayerStatsStore store = new PlayerStatsStore();
+        for (int i = 0; i < 100; i++)
+            store.record(UUID.randomUUID(), "p" + i, i, 0L, i, 0, 0, 0,
+                    i % 2 == 0 ? "minecraft:overworld" : "minecraft:the_end");
+        assertEquals(2, store.worldCount());
+    }
+
+    @Test
+    void testGrowsPastInitialCapacity() {
+        PlayerStatsStore store = new PlayerStatsStore();
+        UUID[] players = new UUID[1000];
+        for (int i = 0; i < players.length; i++) {
+            players[i] = UUID.randomUUID();
+            store.record(players[i], "p" + i, i, i, i, i, -i, i, "minecraft:overworld");
+        }
+        assertEquals(players.length, store.size());
+        for (int i = 0; i < players.length; i++) {
+            DeathRecord r = store.get(players[i]);
+            assertEquals(i, r.deathCount());
+            assertEquals(-i, r.y());
+            assertEquals("p" + i, r.name());
+        }
+    }
+}
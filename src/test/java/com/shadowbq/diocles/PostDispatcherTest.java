@@ -0,0 +1,155 @@
+package com.shadowbq.diocles;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for the bounded post dispatcher and its overload policies
+ */
+public class PostDispatcherTest {
+
+    private final List<String> handled = new CopyOnWriteArrayList<>();
+    private final List<Thread> handlerThreads = new CopyOnWriteArrayList<>();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final CountDownLatch started = new CountDownLatch(1);
+
+    /** Handler that holds worker threads until released so the queue can be filled. */
+    private void blockingHandler(String endpoint, Map<String, Object> payload, Map<String, String> headers) {
+        handlerThreads.add(Thread.currentThread());
+        started.countDown();
+        if (Thread.currentThread().getName().startsWith("Diocles-Dispatch")) {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ignored) {
+            }
+        }
+        handled.add(endpoint + payload.keySet() + (headers.isEmpty() ? "" : headers));
+    }
+
+    private static Map<String, Object> payload(String... names) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        for (String n : names)
+            m.put(n, Map.of("death_count", 1));
+        return m;
+    }
+
+    private PostDispatcher fill(PostDispatcher.OverloadPolicy policy) throws InterruptedException {
+        PostDispatcher d = new PostDispatcher(2, 1, policy, this::blockingHandler);
+        d.submit("/api/deathboard", payload("busy"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        d.submit("/api/deathboard", payload("a"));
+        d.submit("/api/sync", payload("b"), Map.of("X-Seq", "1"));
+        assertEquals(2, d.queueDepth());
+        return d;
+    }
+
+    @Test
+    void testDropOldest() throws InterruptedException {
+        PostDispatcher d = fill(PostDispatcher.OverloadPolicy.DROP_OLDEST);
+        d.submit("/api/deathboard", payload("c"));
+        assertEquals(2, d.queueDepth());
+        assertEquals(1, d.droppedCount());
+        release.countDown();
+        assertEquals(0, d.shutdown(5000));
+        assertEquals(List.of("/api/deathboard[busy]", "/api/sync[b]{X-Seq=1}", "/api/deathboard[c]"), handled);
+    }
+
+    @Test
+    void testCoalesce() throws InterruptedException {
+        PostDispatcher d = fill(PostDispatcher.OverloadPolicy.COALESCE);
+        d.submit("/api/deathboard", payload("c"));
+        assertEquals(2, d.queueDepth());
+        assertEquals(1, d.coalescedCount());
+        release.countDown();
+        d.shutdown(5000);
+        assertEquals(List.of("/api/deathboard[busy]", "/api/deathboard[a, c]", "/api/sync[b]{X-Seq=1}"), handled);
+        assertEquals(0, d.droppedCount());
+    }
+
+    @Test
+    void testCoalesceNeedsSameHeaders() throws InterruptedException {
+        PostDispatcher d = fill(PostDispatcher.OverloadPolicy.COALESCE);
+        d.submit("/api/sync", payload("b", "c"), Map.of("X-Seq", "2"));
+        assertEquals(0, d.coalescedCount());
+        assertEquals(1, d.spilledCount());
+        // while spilling, only the last spilled post can take a merge
+        d.submit("/api/sync", payload("d"), Map.of("X-Seq", "1"));
+        d.submit("/api/sync", payload("e"), Map.of("X-Seq", "1"));
+        assertEquals(2, d.spilledCount());
+        assertEquals(1, d.coalescedCount());
+        release.countDown();
+        d.shutdown(5000);
+        // a post with other headers is never relabelled, and keeps its place in line
+        assertEquals(List.of("/api/deathboard[busy]", "/api/deathboard[a]", "/api/sync[b]{X-Seq=1}",
+                "/api/sync[b, c]{X-Seq=2}", "/api/sync[d, e]{X-Seq=1}"), handled);
+    }
+
+    @Test
+    void testSpillKeepsOrderOffCaller() throws InterruptedException {
+        PostDispatcher d = fill(PostDispatcher.OverloadPolicy.SPILL);
+        d.submit("/api/deathboard", payload("c"));
+        d.submit("/api/deathboard", payload("d"));
+        assertEquals(2, d.spilledCount());
+        assertEquals(4, d.queueDepth());
+        // the spilled posts wait for the queued ones instead of running on this thread
+        Thread.sleep(50);
+        assertEquals(0, handled.size());
+        release.countDown();
+        assertEquals(0, d.shutdown(5000));
+        assertEquals(List.of("/api/deathboard[busy]", "/api/deathboard[a]", "/api/sync[b]{X-Seq=1}",
+                "/api/deathboard[c]", "/api/deathboard[d]"), handled);
+        assertFalse(handlerThreads.contains(Thread.currentThread()));
+    }
+
+    @Test
+    void testOverflowIsBounded() throws InterruptedException {
+        PostDispatcher d = fill(PostDispatcher.OverloadPolicy.SPILL);
+        d.submit("/api/deathboard", payload("c"));
+        d.submit("/api/deathboard", payload("d"));
+        d.submit("/api/deathboard", payload("e"));
+        assertEquals(3, d.spilledCount());
+        assertEquals(1, d.droppedCount());
+        assertEquals(4, d.queueDepth());
+        release.countDown();
+        assertEquals(0, d.shutdown(5000));
+        assertEquals(List.of("/api/deathboard[busy]", "/api/deathboard[a]", "/api/sync[b]{X-Seq=1}",
+                "/api/deathboard[d]", "/api/deathboard[e]"), handled);
+    }
+
+    @Test
+    void testShutdownDeadlineAbandonsQueue() throws InterruptedException {
+        PostDispatcher d = fill(PostDispatcher.OverloadPolicy.DROP_OLDEST);
+        long start = System.nanoTime();
+        assertEquals(2, d.shutdown(100));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+        assertFalse(d.submit("/api/deathboard", payload("late")));
+        release.countDown();
+    }
+
+    @Test
+    void testWorkersAreDaemons() throws InterruptedException {
+        PostDispatcher d = fill(PostDispatcher.OverloadPolicy.COALESCE);
+        assertTrue(handlerThreads.get(0).isDaemon());
+        release.countDown();
+        d.shutdown(5000);
+    }
+
+    @Test
+    void testParsePolicy() {
+        assertEquals(PostDispatcher.OverloadPolicy.DROP_OLDEST,
+                PostDispatcher.OverloadPolicy.parse("drop-oldest", PostDispatcher.OverloadPolicy.SPILL));
+        assertEquals(PostDispatcher.OverloadPolicy.SPILL,
+                PostDispatcher.OverloadPolicy.parse(" Spill ", PostDispatcher.OverloadPolicy.COALESCE));
+        assertEquals(PostDispatcher.OverloadPolicy.COALESCE,
+                PostDispatcher.OverloadPolicy.parse("bogus", PostDispatcher.OverloadPolicy.COALESCE));
+        assertEquals(PostDispatcher.OverloadPolicy.COALESCE,
+                PostDispatcher.OverloadPolicy.parse(null, PostDispatcher.OverloadPolicy.COALESCE));
+    }
+}
@@ -0,0 +1,83 @@
+package com.shadowbq.diocles;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Tests for the preloaded quote catalog and quote pack reloading
+ */
+public class QuoteCatalogTest {
+
+    @TempDir
+    Path dir;
+
+    @AfterEach
+    void tearDown() {
+        AnnouncementQuotes.stopWatching();
+    }
+
+    private void writePack(String file, String quote, String source) throws IOException {
+        Files.writeString(dir.resolve(file),
+                "[{\"quote\": \"" + quote + "\", \"source\": \"" + source + "\"}]", StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void testLoadsBundledQuotes() {
+        QuoteCatalog catalog = QuoteCatalog.load(null);
+        assertTrue(catalog.size() > 0);
+        assertTrue(catalog.next().matches("§6\".*§6\" §7- .*"));
+    }
+
+    @Test
+    void testShuffleBagShowsEveryQuoteOncePerRound() {
+        QuoteCatalog catalog = QuoteCatalog.of(List.of("a", "b", "c", "d", "e"));
+        String previous = null;
+        for (int round = 0; round < 20; round++) {
+            Set<String> seen = new HashSet<>();
+            for (int i = 0; i < catalog.size(); i++) {
+                String q = catalog.next();
+                assertNotEquals(previous, q, "No back-to-back repeats");
+                assertTrue(seen.add(q), "Quote repeated within a round");
+                previous = q;
+            }
+        }
+    }
+
+    @Test
+    void testEmptyCatalog() {
+        assertEquals(QuoteCatalog.NO_QUOTES, QuoteCatalog.of(List.of()).next());
+    }
+
+    @Test
+    void testPacksAddToBundledQuotes() throws IOException {
+        int bundled = QuoteCatalog.load(null).size();
+        writePack("extra.json", "Hello", "Test");
+        Files.writeString(dir.resolve("broken.json"), "{not json", StandardCharsets.UTF_8);
+        Files.writeString(dir.resolve("notes.txt"), "ignored", StandardCharsets.UTF_8);
+
+        QuoteCatalog catalog = QuoteCatalog.load(dir);
+        assertEquals(bundled + 1, catalog.size());
+    }
+
+    @Test
+    void testPackChangeIsReloaded() throws Exception {
+        AnnouncementQuotes.watchPacks(dir);
+        int before = AnnouncementQuotes.size();
+        writePack("extra.json", "Hot", "Reload");
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (AnnouncementQuotes.size() == before && System.currentTimeMillis() < deadline)
+            Thread.sleep(50);
+        assertEquals(before + 1, AnnouncementQuotes.size());
+    }
+}
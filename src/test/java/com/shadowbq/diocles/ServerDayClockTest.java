@@ -0,0 +1,106 @@
+package com.shadowbq.diocles;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for the countdown-based server-day clock
+ */
+public class ServerDayClockTest {
+
+    /** World time that advances one tick per clock tick, like the daylight cycle. */
+    private static final class FakeWorld {
+        long time;
+        int reads;
+
+        long read() {
+            reads++;
+            return time;
+        }
+    }
+
+    private static void advance(FakeWorld world, ServerDayClock clock, long ticks) {
+        for (long i = 0; i < ticks; i++) {
+            world.time++;
+            clock.tick();
+        }
+    }
+
+    @Test
+    void testFiresOnceAtBoundary() {
+        FakeWorld world = new FakeWorld();
+        world.time = 23000;
+        ServerDayClock clock = new ServerDayClock(world::read);
+        List<long[]> changes = new ArrayList<>();
+        clock.addListener((prev, day) -> changes.add(new long[] { prev, day }));
+
+        clock.tick(); // first read sets the baseline
+        assertEquals(0, clock.currentDay());
+        advance(world, clock, 999);
+        assertTrue(changes.isEmpty());
+        advance(world, clock, 1);
+        assertEquals(1, changes.size());
+        assertArrayEquals(new long[] { 0, 1 }, changes.get(0));
+        advance(world, clock, 23999);
+        assertEquals(1, changes.size());
+    }
+
+    @Test
+    void testReadsTimeOncePerDay() {
+        FakeWorld world = new FakeWorld();
+        ServerDayClock clock = new ServerDayClock(world::read);
+        clock.tick();
+        advance(world, clock, 3 * ServerDayClock.TICKS_PER_DAY);
+        assertEquals(4, world.reads);
+        assertEquals(3, clock.currentDay());
+    }
+
+    @Test
+    void testRearmAfterTimeJump() {
+        FakeWorld world = new FakeWorld();
+        ServerDayClock clock = new ServerDayClock(world::read);
+        List<Long> days = new ArrayList<>();
+        clock.addListener((prev, day) -> days.add(day));
+        clock.tick();
+
+        world.time = 5 * ServerDayClock.TICKS_PER_DAY + 100; // /time set
+        clock.rearm();
+        clock.tick();
+        assertEquals(List.of(5L), days);
+
+        // countdown restarts from the new time
+        advance(world, clock, ServerDayClock.TICKS_PER_DAY - 101);
+        assertEquals(1, days.size());
+        advance(world, clock, 1);
+        assertEquals(List.of(5L, 6L), days);
+    }
+
+    @Test
+    void testFrozenTimeDoesNotFire() {
+        FakeWorld world = new FakeWorld();
+        world.time = 100;
+        ServerDayClock clock = new ServerDayClock(world::read);
+        List<Long> days = new ArrayList<>();
+        clock.addListener((prev, day) -> days.add(day));
+        for (int i = 0; i < 3 * ServerDayClock.TICKS_PER_DAY; i++)
+            clock.tick(); // doDaylightCycle false: time stands still
+        assertTrue(days.isEmpty());
+    }
+
+    @Test
+    void testFailingListenerDoesNotStopOthers() {
+        FakeWorld world = new FakeWorld();
+        ServerDayClock clock = new ServerDayClock(world::read);
+        List<Long> days = new ArrayList<>();
+        clock.addListener((prev, day) -> {
+            throw new IllegalStateException("boom");
+        });
+        clock.addListener((prev, day) -> days.add(day));
+        clock.tick();
+        advance(world, clock, ServerDayClock.TICKS_PER_DAY);
+        assertEquals(List.of(1L), days);
+    }
+}
@@ -0,0 +1,118 @@
+package com.shadowbq.diocles;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Tests for delta sync change tracking
+ */
+public class SyncTrackerTest {
+
+    private final UUID alice = UUID.randomUUID();
+    private final UUID bob = UUID.randomUUID();
+
+    @Test
+    void testFirstSyncIsFull() {
+        SyncTracker tracker = new SyncTracker(7);
+        assertTrue(tracker.begin().full(), "Nothing acknowledged yet, so the first sync must be full");
+    }
+
+    @Test
+    void testDeltaCarriesOnlyChangedPlayers() {
+        SyncTracker tracker = new SyncTracker(7);
+        tracker.markChanged(alice);
+        tracker.markChanged(bob);
+        SyncTracker.Sync full = tracker.begin();
+        tracker.sent(full, alice, 1);
+        tracker.sent(full, bob, 1);
+        tracker.acknowledge(full.seq());
+
+        tracker.markChanged(bob);
+        SyncTracker.Sync delta = tracker.begin();
+        assertFalse(delta.full());
+        assertEquals(List.of(bob), tracker.changedPlayers());
+    }
+
+    @Test
+    void testUnacknowledgedDeltasAreCumulative() {
+        SyncTracker tracker = new SyncTracker(7);
+        tracker.acknowledge(tracker.begin().seq());
+
+        tracker.markChanged(alice);
+        SyncTracker.Sync lost = tracker.begin(); // never acknowledged
+        tracker.sent(lost, alice, 1);
+        tracker.markChanged(bob);
+        tracker.begin();
+
+        assertTrue(tracker.changedPlayers().containsAll(List.of(alice, bob)));
+    }
+
+    @Test
+    void testObserveCountDetectsScoreboardEdits() {
+        SyncTracker tracker = new SyncTracker(7);
+        SyncTracker.Sync full = tracker.begin();
+        tracker.sent(full, alice, 3);
+        tracker.acknowledge(full.seq());
+
+        tracker.observeCount(alice, 3);
+        assertTrue(tracker.changedPlayers().isEmpty());
+        tracker.observeCount(alice, 5);
+        assertEquals(List.of(alice), tracker.changedPlayers());
+    }
+
+    @Test
+    void testFullSyncKeepsChangesOfPlayersItDidNotCarry() {
+        SyncTracker tracker = new SyncTracker(7);
+        tracker.markChanged(alice); // online
+        tracker.markChanged(bob); // offline, e.g. a scoreboard edit
+        SyncTracker.Sync full = tracker.begin();
+        tracker.sent(full, alice, 2);
+        tracker.markChanged(alice); // died again while the sync was in flight
+        tracker.acknowledge(full.seq());
+
+        assertTrue(tracker.changedPlayers().containsAll(List.of(alice, bob)));
+
+        SyncTracker.Sync delta = tracker.begin();
+        tracker.sent(delta, alice, 3);
+        tracker.sent(delta, bob, 1);
+        tracker.acknowledge(delta.seq());
+        assertTrue(tracker.changedPlayers().isEmpty());
+    }
+
+    @Test
+    void testDiscardDropsStampUntilCountChanges() {
+        SyncTracker tracker = new SyncTracker(7);
+        SyncTracker.Sync full = tracker.begin();
+        tracker.sent(full, alice, 3);
+        tracker.acknowledge(full.seq());
+
+        tracker.observeCount(alice, 4); // edited, then logged off with no journaled death
+        tracker.discard(alice);
+        assertTrue(tracker.changedPlayers().isEmpty());
+        tracker.observeCount(alice, 4); // back online: still not what was sent
+        assertEquals(List.of(alice), tracker.changedPlayers());
+    }
+
+    @Test
+    void testPeriodicFullResync() {
+        SyncTracker tracker = new SyncTracker(3);
+        tracker.acknowledge(tracker.begin().seq()); // full
+        assertFalse(tracker.begin().full());
+        assertFalse(tracker.begin().full());
+        assertTrue(tracker.begin().full());
+        assertFalse(tracker.begin().full());
+    }
+
+    @Test
+    void testAcknowledgeNeverMovesBackwards() {
+        SyncTracker tracker = new SyncTracker(7);
+        tracker.markChanged(alice);
+        tracker.markChanged(alice);
+        tracker.acknowledge(2);
+        tracker.acknowledge(1);
+        assertEquals(2, tracker.acknowledgedSeq());
+    }
+}